@@ -0,0 +1,55 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * Einstieg des benchmarks.jar: wie {@code org.openjdk.jmh.Main}, schreibt die Ergebnisse aber standardmäßig
+ * als JSON nach {@code jmh-result-<version>.json}, damit sich Releases vergleichen lassen
+ * (z.B. mit jmh.morethan.io). {@code -rf}/{@code -rff} auf der Kommandozeile haben Vorrang.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() { }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp() || cmdOptions.shouldList() || cmdOptions.shouldListProfilers()
+                || cmdOptions.shouldListResultFormats() || cmdOptions.shouldListWithParams()) {
+            // Nur Auflistungen/Hilfe: wie gewohnt an JMH durchreichen
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+        if (cmdOptions.getResultFormat().hasValue() || cmdOptions.getResult().hasValue()) {
+            new Runner(options.build()).run();
+            return;
+        }
+
+        String resultFile = "jmh-result-" + applicationVersion() + ".json";
+        new Runner(options.resultFormat(ResultFormatType.JSON).result(resultFile).build()).run();
+    }
+
+    private static String applicationVersion() {
+        Properties properties = new Properties();
+        try (InputStream in = BenchmarkRunner.class.getResourceAsStream("/benchmark.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return properties.getProperty("application.version", "unknown");
+    }
+}
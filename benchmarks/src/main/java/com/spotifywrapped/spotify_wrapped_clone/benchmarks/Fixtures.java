@@ -0,0 +1,28 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Echte Spotify-Antworten (gekürzt auf realistische Größe) aus fixtures/ im Projektverzeichnis,
+ * abgelegt nach Spotify-Pfad wie beim FakeSpotifyServer des Lasttests.
+ */
+final class Fixtures {
+
+    static final String TOP_TRACKS = "v1/me/top/tracks.json";
+    static final String PROFILE = "v1/me.json";
+
+    private Fixtures() { }
+
+    static byte[] read(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Fixture not found: " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
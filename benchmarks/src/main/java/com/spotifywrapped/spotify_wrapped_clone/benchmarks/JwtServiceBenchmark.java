@@ -0,0 +1,70 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import com.spotifywrapped.spotify_wrapped_clone.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durchsatz der JWT-Verifikation:
+ * – {@code parserPerCall}: bisheriges Verhalten, neuer Parser pro Aufruf.
+ * – {@code parseUserId} mit verifiedCacheSize=0: wiederverwendeter Parser, ohne Cache.
+ * – {@code parseUserId} mit verifiedCacheSize>0: wiederholte Tokens kommen aus dem Cache.
+ * – {@code generateAccessToken}: Signieren beim Login (unabhängig von der Cachegröße).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "benchmark-jwt-secret-which-is-long-enough-32";
+
+    @Param({"0", "10000"})
+    public long verifiedCacheSize;
+
+    private JwtService jwtService;
+    private SecretKey secretKey;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, Duration.ofHours(1), Duration.ofMinutes(10), verifiedCacheSize);
+        secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+
+        user = new User();
+        user.setId(42L);
+        user.setUsername("benchmark");
+        user.setEmail("benchmark@example.com");
+        token = jwtService.generateAccessToken(user);
+    }
+
+    @Benchmark
+    public Claims parserPerCall() {
+        return Jwts.parser()
+                .verifyWith(secretKey)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public Long parseUserId() {
+        return jwtService.parseUserId(token);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtService.generateAccessToken(user);
+    }
+}
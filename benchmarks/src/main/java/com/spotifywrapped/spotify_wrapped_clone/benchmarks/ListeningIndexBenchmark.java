@@ -0,0 +1,79 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.ListeningEvent;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latenz der Index-Abfragen für einen Nutzer mit {@code playsPerUser} Wiedergaben über ein Jahr.
+ * Mit {@code -prof gc} lässt sich prüfen, dass pro Abfrage nur die K Ergebnisobjekte alloziert werden.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListeningIndexBenchmark {
+
+    static final Instant YEAR_START = Instant.parse("2025-01-01T00:00:00Z");
+    static final Instant YEAR_END = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Param({"10000", "100000"})
+    public int playsPerUser;
+
+    private ListeningIndex listeningIndex;
+
+    @Setup
+    public void setUp() {
+        listeningIndex = new ListeningIndex(null, false, 0);
+        fill(listeningIndex, 1, playsPerUser, 20_000, 5_000, new SplittableRandom(42));
+        listeningIndex.markReady();
+    }
+
+    @Benchmark
+    public Object topTracksForYear() {
+        return listeningIndex.topTracks(1L, YEAR_START, YEAR_END, 10);
+    }
+
+    @Benchmark
+    public Object topArtistsForYear() {
+        return listeningIndex.topArtists(1L, YEAR_START, YEAR_END, 10);
+    }
+
+    @Benchmark
+    public Object totalForYear() {
+        return listeningIndex.total(1L, YEAR_START, YEAR_END);
+    }
+
+    /**
+     * Erzeugt gleichmäßig über das Jahr verteilte Wiedergaben mit zufälligen Tracks/Artists.
+     */
+    static void fill(ListeningIndex index, int users, int playsPerUser, int distinctTracks, int distinctArtists,
+                     SplittableRandom random) {
+        long step = (YEAR_END.toEpochMilli() - YEAR_START.toEpochMilli()) / playsPerUser;
+        for (long userId = 1; userId <= users; userId++) {
+            List<ListeningEvent> batch = new ArrayList<>(1000);
+            for (int i = 0; i < playsPerUser; i++) {
+                int track = random.nextInt(distinctTracks);
+                batch.add(new ListeningEvent(
+                        "track-" + track,
+                        "artist-" + (track % distinctArtists),
+                        Instant.ofEpochMilli(YEAR_START.toEpochMilli() + i * step),
+                        120_000 + random.nextInt(120_000)
+                ));
+                if (batch.size() == 1000) {
+                    index.append(userId, batch);
+                    batch.clear();
+                }
+            }
+            index.append(userId, batch);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningIndex;
+
+import java.util.SplittableRandom;
+
+/**
+ * Misst den Heap-Bedarf des {@link ListeningIndex} pro Million Wiedergaben.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar \
+ *     com.spotifywrapped.spotify_wrapped_clone.benchmarks.ListeningIndexFootprint [plays] [users]
+ * </pre>
+ */
+public final class ListeningIndexFootprint {
+
+    private ListeningIndexFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int plays = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        long before = usedHeap();
+        ListeningIndex index = new ListeningIndex(null, false, 0);
+        ListeningIndexBenchmark.fill(index, users, plays / users, 200_000, 50_000, new SplittableRandom(42));
+        long after = usedHeap();
+
+        long bytes = after - before;
+        System.out.printf("plays=%d users=%d tracks=%d artists=%d%n",
+                index.getPlayCount(), users, index.getTrackCount(), index.getArtistCount());
+        System.out.printf("heap=%.1f MiB (%.1f bytes/play, %.1f MiB per million plays)%n",
+                bytes / 1048576.0,
+                (double) bytes / index.getPlayCount(),
+                bytes / 1048576.0 / (index.getPlayCount() / 1_000_000.0));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,77 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import com.spotifywrapped.spotify_wrapped_clone.service.CryptoConfig;
+import com.spotifywrapped.spotify_wrapped_clone.service.SensitiveDataService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.encrypt.Encryptors;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latenz der Krypto-Operationen pro Request, mit denselben Encodern wie in {@code CryptoConfig}.
+ * – {@code encrypt}/{@code decrypt}: AES-GCM-Envelope eines Spotify Access Tokens (Schlüssel einmalig per PBKDF2 abgeleitet).
+ * – {@code decryptLegacy}: bisheriges Format (AES-CBC, hex), solange der Re-Encryption-Job nicht durch ist.
+ * – {@code passwordMatches}: BCrypt-Prüfung beim Login inkl. Übergabe an den Hashing-Executor;
+ *   liegt um Größenordnungen über AES.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensitiveDataServiceBenchmark {
+
+    // Spotify Access Tokens sind ca. 300 Zeichen lang
+    private static final String ACCESS_TOKEN = "BQ" + "x".repeat(298);
+    private static final String PASSWORD = "correct horse battery staple";
+    private static final String CRYPTO_PASSWORD = "benchmark-password";
+    private static final String CRYPTO_SALT = "1234567890abcdef";
+
+    private SensitiveDataService sensitiveDataService;
+    private byte[] encryptedToken;
+    private String legacyEncryptedToken;
+    private String passwordHash;
+
+    @Setup
+    public void setUp() {
+        sensitiveDataService = new SensitiveDataService(
+                new BCryptPasswordEncoder(),
+                Encryptors.text(CRYPTO_PASSWORD, CRYPTO_SALT),
+                new CryptoConfig().tokenEncryptor(CRYPTO_PASSWORD, CRYPTO_SALT, "", 1),
+                new SimpleMeterRegistry(),
+                1, 16, Duration.ofSeconds(1)
+        );
+        encryptedToken = sensitiveDataService.encryptToken(ACCESS_TOKEN);
+        legacyEncryptedToken = Encryptors.text(CRYPTO_PASSWORD, CRYPTO_SALT).encrypt(ACCESS_TOKEN);
+        passwordHash = sensitiveDataService.hashPassword(PASSWORD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sensitiveDataService.shutdown();
+    }
+
+    @Benchmark
+    public byte[] encrypt() {
+        return sensitiveDataService.encryptToken(ACCESS_TOKEN);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return sensitiveDataService.decryptToken(encryptedToken, null);
+    }
+
+    @Benchmark
+    public String decryptLegacy() {
+        return sensitiveDataService.decryptToken(null, legacyEncryptedToken);
+    }
+
+    @Benchmark
+    public boolean passwordMatches() {
+        return sensitiveDataService.passwordMatches(PASSWORD, passwordHash);
+    }
+}
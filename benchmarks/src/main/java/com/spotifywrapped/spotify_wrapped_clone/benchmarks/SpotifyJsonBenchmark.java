@@ -0,0 +1,46 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyProfileService.SpotifyUserProfileResponse;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTopTracksService.SpotifyTopTracksResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kosten der Jackson-Deserialisierung von Spotify-Antworten in die Response-Records.
+ * – Der ObjectMapper ist wie in der Anwendung konfiguriert (unbekannte Felder werden ignoriert).
+ * – Die Top-Tracks-Antwort enthält wie bei Spotify die vollständigen available_markets-Listen,
+ *   die den Großteil der Bytes ausmachen, obwohl die Anwendung sie nicht liest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpotifyJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private byte[] topTracksJson;
+    private byte[] profileJson;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        topTracksJson = Fixtures.read(Fixtures.TOP_TRACKS);
+        profileJson = Fixtures.read(Fixtures.PROFILE);
+    }
+
+    @Benchmark
+    public SpotifyTopTracksResponse deserializeTopTracks() throws IOException {
+        return objectMapper.readValue(topTracksJson, SpotifyTopTracksResponse.class);
+    }
+
+    @Benchmark
+    public SpotifyUserProfileResponse deserializeProfile() throws IOException {
+        return objectMapper.readValue(profileJson, SpotifyUserProfileResponse.class);
+    }
+}
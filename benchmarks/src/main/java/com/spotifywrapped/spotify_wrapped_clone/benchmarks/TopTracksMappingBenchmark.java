@@ -0,0 +1,164 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyTopTrackDto;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.AlbumImageService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAccessTokenProvider;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiClient;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCircuitBreakers;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyRateLimiter;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyResponseCache;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyResult;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTopTracksService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTopTracksService.SpotifyTopTracksResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU-Kosten von {@code SpotifyTopTracksService.fetchTopTracks} ohne Netzwerk und Datenbank.
+ * – responseCached=true: Treffer im Antwort-Cache, danach Katalog-Lookup und DTO-Mapping (häufigster Fall).
+ * – responseCached=false: Spotify antwortet jedes Mal mit 200; zusätzlich IDs extrahieren, Katalog primen
+ *   und die ID-Liste serialisieren. Die Antwort ist vorab geparst, Jackson misst {@link SpotifyJsonBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopTracksMappingBenchmark {
+
+    private static final Long USER_ID = 1L;
+
+    @Param({"true", "false"})
+    public boolean responseCached;
+
+    private SpotifyApiClient apiClient;
+    private SpotifyCatalogService catalogService;
+    private SpotifyTopTracksService topTracksService;
+
+    @Setup
+    public void setUp() throws IOException, ReflectiveOperationException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        SpotifyTopTracksResponse response =
+                objectMapper.readValue(Fixtures.read(Fixtures.TOP_TRACKS), SpotifyTopTracksResponse.class);
+
+        apiClient = new FixedResponseApiClient(response);
+        catalogService = new SpotifyCatalogService(
+                new InMemoryCatalogDBaccess(), null, apiClient, 100_000, 1, Duration.ofSeconds(5),
+                Duration.ofMinutes(10));
+        Path imageDir = Files.createTempDirectory("benchmark-images");
+        AlbumImageService albumImageService =
+                new AlbumImageService(catalogService, apiClient, imageDir, DataSize.ofMegabytes(1), 300, "benchmark-key");
+
+        topTracksService = new SpotifyTopTracksService(
+                new SpotifyResponseCache(apiClient, objectMapper, 10_000, Duration.ofHours(24)),
+                new FixedTokenProvider(),
+                catalogService,
+                albumImageService
+        );
+        // @Value-Felder, die sonst Spring setzt
+        setField(topTracksService, "apiBaseUrl", "https://api.spotify.com/v1");
+        setField(topTracksService, "topTracksTtl", responseCached ? Duration.ofHours(1) : Duration.ZERO);
+
+        // Erster Aufruf füllt Antwort-Cache und Katalog
+        topTracksService.fetchTopTracks(USER_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalogService.shutdown();
+        apiClient.close();
+    }
+
+    @Benchmark
+    public SpotifyResult<List<SpotifyTopTrackDto>> fetchTopTracks() {
+        return topTracksService.fetchTopTracks(USER_ID);
+    }
+
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * Liefert für jedes GET dieselbe, bereits geparste Antwort.
+     */
+    private static final class FixedResponseApiClient extends SpotifyApiClient {
+
+        private final Object response;
+
+        private FixedResponseApiClient(Object response) {
+            super(
+                    new SpotifyRateLimiter(1000, 1000, 0, Duration.ZERO, Duration.ZERO, Duration.ZERO),
+                    new SpotifyCircuitBreakers(50, 100, Duration.ofSeconds(5), 20, 10, Duration.ofSeconds(30), 3, 20, Duration.ZERO),
+                    new SimpleMeterRegistry(),
+                    0, Duration.ZERO, 1, 1,
+                    Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(30)
+            );
+            this.response = response;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> ResponseEntity<T> get(String uri, String accessToken, String ifNoneMatch, Class<T> responseType) {
+            return ResponseEntity.ok().eTag("\"benchmark\"").body((T) response);
+        }
+    }
+
+    private static final class FixedTokenProvider extends SpotifyAccessTokenProvider {
+
+        private FixedTokenProvider() {
+            super(null, null, null, new SimpleMeterRegistry(),
+                    Duration.ofSeconds(10), Duration.ofSeconds(20), Duration.ofMillis(100));
+        }
+
+        @Override
+        public String getValidAccessToken(Long userId) {
+            return "benchmark-access-token";
+        }
+    }
+
+    /**
+     * Katalog ohne Datenbank: alle Einträge kommen über primeTracks in den In-Process-Cache.
+     */
+    private static final class InMemoryCatalogDBaccess extends SpotifyCatalogDBaccess {
+
+        private InMemoryCatalogDBaccess() {
+            super(null, null);
+        }
+
+        @Override
+        public Map<String, CatalogTrack> findTracks(Collection<String> ids) {
+            return Map.of();
+        }
+
+        @Override
+        public Map<String, CatalogAlbum> findAlbums(Collection<String> ids) {
+            return Map.of();
+        }
+
+        @Override
+        public void saveTracks(List<CatalogTrack> tracks) { }
+
+        @Override
+        public void saveAlbums(List<CatalogAlbum> albums) { }
+    }
+}
@@ -0,0 +1,117 @@
+package com.spotifywrapped.spotify_wrapped_clone.benchmarks;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login-Lookup auf einer users-Tabelle mit {@code users} Zeilen (H2 im MySQL-Modus, Schema per Flyway-Migrationen).
+ * – {@code usernameOrEmail}: bisherige Abfrage "username = ? OR email = ?".
+ * – {@code caseInsensitiveOrLookup}: was Groß-/Kleinschreibung ohne normalisierte Spalten kosten würde (LOWER() → Scan).
+ * – {@code normalizedEmail}/{@code normalizedUsername}: eine Spalte mit Unique-Index, gewählt nach '@'.
+ * H2 plant OR-Abfragen anders als MySQL; dort zusätzlich per EXPLAIN prüfen (index_merge bzw. ALL vs. const).
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar UserLookup -p users=5000000 -jvmArgs -Xmx4g
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class UserLookupBenchmark {
+
+    @Param({"1000000"})
+    public int users;
+
+    private Connection connection;
+    private PreparedStatement usernameOrEmail;
+    private PreparedStatement caseInsensitiveOrLookup;
+    private PreparedStatement byUsernameNormalized;
+    private PreparedStatement byEmailNormalized;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = "jdbc:h2:mem:user_lookup;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        Flyway.configure()
+                .dataSource(url, "sa", "")
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        connection = DriverManager.getConnection(url, "sa", "");
+        try (PreparedStatement insert = connection.prepareStatement("""
+                INSERT INTO users (username, email, password, username_normalized, email_normalized)
+                SELECT 'User' || X, 'User' || X || '@Example.com', 'hash', 'user' || X, 'user' || X || '@example.com'
+                FROM SYSTEM_RANGE(1, ?)""")) {
+            insert.setInt(1, users);
+            insert.executeUpdate();
+        }
+
+        usernameOrEmail = connection.prepareStatement(
+                "SELECT id FROM users WHERE username = ? OR email = ?");
+        caseInsensitiveOrLookup = connection.prepareStatement(
+                "SELECT id FROM users WHERE LOWER(username) = ? OR LOWER(email) = ?");
+        byUsernameNormalized = connection.prepareStatement(
+                "SELECT id FROM users WHERE username_normalized = ?");
+        byEmailNormalized = connection.prepareStatement(
+                "SELECT id FROM users WHERE email_normalized = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public long usernameOrEmail() throws SQLException {
+        String email = "User" + randomUser() + "@Example.com";
+        usernameOrEmail.setString(1, email);
+        usernameOrEmail.setString(2, email);
+        return firstId(usernameOrEmail);
+    }
+
+    @Benchmark
+    public long caseInsensitiveOrLookup() throws SQLException {
+        String email = "user" + randomUser() + "@example.com";
+        caseInsensitiveOrLookup.setString(1, email);
+        caseInsensitiveOrLookup.setString(2, email);
+        return firstId(caseInsensitiveOrLookup);
+    }
+
+    @Benchmark
+    public long normalizedEmail() throws SQLException {
+        byEmailNormalized.setString(1, "user" + randomUser() + "@example.com");
+        return firstId(byEmailNormalized);
+    }
+
+    @Benchmark
+    public long normalizedUsername() throws SQLException {
+        byUsernameNormalized.setString(1, "user" + randomUser());
+        return firstId(byUsernameNormalized);
+    }
+
+
+    private int randomUser() {
+        return ThreadLocalRandom.current().nextInt(1, users + 1);
+    }
+
+    private static long firstId(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.spotifywrapped.spotify_wrapped_clone.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lokaler Ersatz für accounts.spotify.com und api.spotify.com, damit Lasttests weder echte Konten
+ * noch das echte Ratelimit brauchen.
+ * – Endpoints: POST /api/token, GET /v1/me, GET /v1/me/top/tracks (Query-Parameter werden ignoriert).
+ * – Antworten kommen aus Fixtures: zuerst {@code <fixtureDir>/<pfad>.json} (aufgezeichnete Antworten),
+ *   sonst die mitgelieferten aus fixtures/ im Projektverzeichnis (gemeinsam mit den Benchmarks).
+ * – Jede Antwort wird um latency ± jitter verzögert; mit throttleRate kommt 429 mit Retry-After,
+ *   mit errorRate 503. ETag/If-None-Match wird wie bei Spotify mit 304 beantwortet.
+ * – 429/503 erst nach {@link #enableFaults()}, damit das Setup (Nutzer verbinden) nicht daran scheitert.
+ */
+public final class FakeSpotifyServer implements AutoCloseable {
+
+    private static final String[] FIXTURES = {"api/token", "v1/me", "v1/me/top/tracks"};
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Fixture> fixtures = new ConcurrentHashMap<>();
+
+    private volatile boolean faultsEnabled;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+
+    private FakeSpotifyServer(Settings settings) throws IOException {
+        this.settings = settings;
+        for (String path : FIXTURES) {
+            fixtures.put("/" + path, loadFixture(path));
+        }
+
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public static FakeSpotifyServer start(Settings settings) throws IOException {
+        FakeSpotifyServer fake = new FakeSpotifyServer(settings);
+        fake.server.start();
+        return fake;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void enableFaults() {
+        faultsEnabled = true;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getNotModifiedCount() {
+        return notModified.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            exchange.getRequestBody().readAllBytes();
+            delay();
+
+            String path = exchange.getRequestURI().getPath();
+            Fixture fixture = fixtures.get(path);
+            if (fixture == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!isAuthorized(exchange, path)) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (faultsEnabled && random.nextDouble() < settings.throttleRate()) {
+                throttled.increment();
+                exchange.getResponseHeaders().add("Retry-After", Long.toString(settings.retryAfter().toSeconds()));
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+            if (faultsEnabled && random.nextDouble() < settings.errorRate()) {
+                failed.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().add("ETag", fixture.etag());
+            if (fixture.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.increment();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, fixture.body().length);
+            exchange.getResponseBody().write(fixture.body());
+        }
+    }
+
+    /**
+     * Token-Endpoint verlangt Basic Auth (Client-ID/Secret), die Web API einen Bearer Token.
+     */
+    private static boolean isAuthorized(HttpExchange exchange, String path) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null) {
+            return false;
+        }
+        return path.startsWith("/api/") ? authorization.startsWith("Basic ") : authorization.startsWith("Bearer ");
+    }
+
+    private void delay() {
+        long latency = settings.latency().toNanos();
+        long jitter = settings.jitter().toNanos();
+        if (jitter > 0) {
+            latency += ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+        }
+        if (latency <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(latency);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Fixture loadFixture(String path) throws IOException {
+        byte[] body;
+        Path recorded = settings.fixtureDir() != null ? settings.fixtureDir().resolve(path + ".json") : null;
+        if (recorded != null && Files.isRegularFile(recorded)) {
+            body = Files.readAllBytes(recorded);
+        } else {
+            try (InputStream in = FakeSpotifyServer.class.getResourceAsStream("/fixtures/" + path + ".json")) {
+                if (in == null) {
+                    throw new IllegalStateException("Fixture not found: " + path);
+                }
+                body = in.readAllBytes();
+            }
+        }
+        return new Fixture(body, "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"");
+    }
+
+    /**
+     * @param latency      Grundverzögerung jeder Antwort
+     * @param jitter       zufällige Abweichung (gleichverteilt ±jitter)
+     * @param errorRate    Anteil 503-Antworten (0..1)
+     * @param throttleRate Anteil 429-Antworten (0..1)
+     * @param retryAfter   Retry-After der 429-Antworten
+     * @param fixtureDir   Verzeichnis mit aufgezeichneten Antworten, oder null
+     */
+    public record Settings(
+            Duration latency,
+            Duration jitter,
+            double errorRate,
+            double throttleRate,
+            Duration retryAfter,
+            Path fixtureDir
+    ) { }
+
+    private record Fixture(byte[] body, String etag) { }
+}
@@ -0,0 +1,339 @@
+package com.spotifywrapped.spotify_wrapped_clone.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lastgenerator für die REST-API.
+ * – Setup: registriert {@code users} Nutzer, loggt sie ein und verbindet sie über /callback mit dem Fake-Spotify.
+ * – Danach offenes Lastmodell: Anfragen starten im festen Takt (rps), unabhängig davon, ob frühere fertig sind.
+ *   Die Latenz zählt ab dem geplanten Startzeitpunkt, damit ein überlasteter Server nicht geschönt wird
+ *   (keine "coordinated omission").
+ * – Mix siehe {@link Operation}; Latenzen pro Operation in einem HdrHistogram (µs).
+ */
+public final class LoadGenerator {
+
+    private static final String PASSWORD = "loadtest-password";
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Settings settings;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Session> sessions = new ArrayList<>();
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    public LoadGenerator(Settings settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+
+    /** ---------------------------------------------
+     *   PUBLIC METHODS
+     *  --------------------------------------------- */
+
+    /**
+     * Legt die Nutzer an und verbindet sie mit Spotify; höchstens setupConcurrency gleichzeitig (BCrypt ist teuer).
+     */
+    public void setUp() throws InterruptedException {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        Semaphore permits = new Semaphore(settings.setupConcurrency());
+        List<Future<Session>> pending = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < settings.users(); i++) {
+                String username = "load-" + runId + "-" + i;
+                pending.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return createSession(username);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<Session> session : pending) {
+                try {
+                    sessions.add(session.get());
+                } catch (Exception ex) {
+                    throw new IllegalStateException("User setup failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Warm-up (nicht gemessen), dann die Messphase; Ergebnisse liefert {@link #printReport}.
+     */
+    public void run() {
+        drive(settings.warmup(), false);
+        stats.values().forEach(Stats::reset);
+        drive(settings.duration(), true);
+    }
+
+    public void printReport(PrintStream out, FakeSpotifyServer spotify) {
+        double seconds = settings.duration().toNanos() / 1e9;
+        out.printf("%n%-12s %9s %7s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        long totalErrors = 0;
+        for (Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats s = entry.getValue();
+            total.add(s.latencies);
+            totalErrors += s.errors.sum();
+            printRow(out, entry.getKey().name().toLowerCase(), s.latencies, s.errors.sum(), seconds);
+        }
+        printRow(out, "total", total, totalErrors, seconds);
+
+        out.println();
+        for (Entry<Operation, Stats> entry : stats.entrySet()) {
+            if (!entry.getValue().statuses.isEmpty()) {
+                out.printf("%-12s status %s%n", entry.getKey().name().toLowerCase(), entry.getValue().statusSummary());
+            }
+        }
+        out.printf("fake spotify: %d requests, 429: %d, 503: %d, 304: %d%n",
+                spotify.getRequestCount(), spotify.getThrottledCount(),
+                spotify.getFailedCount(), spotify.getNotModifiedCount());
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private Session createSession(String username) throws IOException, InterruptedException {
+        send("POST", "/api/users", null, json(Map.of(
+                "username", username,
+                "email", username + "@loadtest.local",
+                "password", PASSWORD)), 201);
+
+        Session session = new Session(username);
+        login(session);
+
+        HttpResponse<String> loginUrl = send("GET", "/api/spotify/login", session.accessToken, null, 200);
+        String authorizationUrl = objectMapper.readTree(loginUrl.body()).path("authorizationUrl").asText();
+        String state = queryParameter(authorizationUrl, "state");
+
+        send("GET", "/api/spotify/callback?code=" + username + "&state=" + state, null, null, 302);
+        return session;
+    }
+
+    private void login(Session session) throws IOException, InterruptedException {
+        HttpResponse<String> response = send("POST", "/api/users/login", null,
+                json(Map.of("identifier", session.username, "password", PASSWORD)), 200);
+        JsonNode body = objectMapper.readTree(response.body());
+        session.accessToken = body.path("accessToken").asText();
+    }
+
+    private void drive(Duration duration, boolean record) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / settings.rps());
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long scheduled = start; scheduled < end; scheduled += intervalNanos) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long intendedStart = scheduled;
+                Operation operation = Operation.pick(ThreadLocalRandom.current());
+                Session session = sessions.get(ThreadLocalRandom.current().nextInt(sessions.size()));
+                executor.execute(() -> execute(operation, session, intendedStart, record));
+            }
+        }
+    }
+
+    private void execute(Operation operation, Session session, long intendedStart, boolean record) {
+        int status;
+        try {
+            status = switch (operation) {
+                case LOGIN -> send("POST", "/api/users/login", null,
+                        json(Map.of("identifier", session.username, "password", PASSWORD)), -1).statusCode();
+                case STATUS -> send("GET", "/api/spotify/status", session.accessToken, null, -1).statusCode();
+                case PROFILE -> send("GET", "/api/spotify/profile", session.accessToken, null, -1).statusCode();
+                case TOP_TRACKS -> send("GET", "/api/spotify/top-tracks", session.accessToken, null, -1).statusCode();
+            };
+        } catch (IOException ex) {
+            status = 0;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (record) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+            stats.get(operation).record(status, Math.min(micros, MAX_LATENCY_MICROS));
+        }
+    }
+
+    private HttpResponse<String> send(String method, String path, String bearer, String body, int expectedStatus)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(settings.appBaseUrl() + path))
+                .timeout(Duration.ofSeconds(30));
+        if (bearer != null) {
+            request.header("Authorization", "Bearer " + bearer);
+        }
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (expectedStatus > 0 && response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(method + " " + path + " returned " + response.statusCode()
+                    + " (expected " + expectedStatus + "): " + response.body());
+        }
+        return response;
+    }
+
+    private String json(Object value) throws IOException {
+        return objectMapper.writeValueAsString(value);
+    }
+
+    private static String queryParameter(String url, String name) {
+        String query = URI.create(url).getRawQuery();
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && pair.substring(0, separator).equals(name)) {
+                return URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        throw new IllegalStateException("No " + name + " in " + url);
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram latencies, long errors, double seconds) {
+        out.printf("%-12s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                latencies.getTotalCount(),
+                errors,
+                latencies.getTotalCount() / seconds,
+                latencies.getValueAtPercentile(50) / 1000.0,
+                latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0,
+                latencies.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Anfrage-Mix mit relativen Gewichten; Login ist selten, aber wegen BCrypt teuer.
+     */
+    enum Operation {
+        LOGIN(5),
+        STATUS(35),
+        PROFILE(30),
+        TOP_TRACKS(30);
+
+        private static final int TOTAL_WEIGHT = 100;
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick(ThreadLocalRandom random) {
+            int value = random.nextInt(TOTAL_WEIGHT);
+            for (Operation operation : values()) {
+                value -= operation.weight;
+                if (value < 0) {
+                    return operation;
+                }
+            }
+            return TOP_TRACKS;
+        }
+    }
+
+    private static final class Session {
+
+        private final String username;
+        private volatile String accessToken;
+
+        private Session(String username) {
+            this.username = username;
+        }
+    }
+
+    private static final class Stats {
+
+        private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final LongAdder errors = new LongAdder();
+        // HTTP-Status → Anzahl (0 = I/O-Fehler)
+        private final SortedMap<Integer, LongAdder> statuses = new ConcurrentSkipListMap<>();
+
+        private void record(int status, long micros) {
+            latencies.recordValue(micros);
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            if (status < 200 || status >= 400) {
+                errors.increment();
+            }
+        }
+
+        private void reset() {
+            latencies.reset();
+            errors.reset();
+            statuses.clear();
+        }
+
+        private String statusSummary() {
+            StringBuilder summary = new StringBuilder();
+            statuses.forEach((status, count) -> summary.append(status).append(':').append(count.sum()).append(' '));
+            return summary.toString().trim();
+        }
+    }
+
+    /**
+     * @param appBaseUrl        z.B. http://127.0.0.1:8080
+     * @param users             Anzahl angelegter Nutzer; jede Anfrage nimmt einen zufälligen
+     * @param rps               Zielrate aller Anfragen zusammen
+     * @param warmup            ungemessene Vorlaufzeit (JIT, Caches)
+     * @param duration          Messdauer
+     * @param setupConcurrency  gleichzeitige Registrierungen im Setup
+     */
+    public record Settings(
+            String appBaseUrl,
+            int users,
+            double rps,
+            Duration warmup,
+            Duration duration,
+            int setupConcurrency
+    ) { }
+}
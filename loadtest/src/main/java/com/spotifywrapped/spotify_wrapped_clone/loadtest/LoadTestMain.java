@@ -0,0 +1,106 @@
+package com.spotifywrapped.spotify_wrapped_clone.loadtest;
+
+import com.spotifywrapped.spotify_wrapped_clone.SpotifyWrappedCloneApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startet Fake-Spotify und die Anwendung (Profil "test", H2 in-memory) in einer JVM und treibt Last gegen die API.
+ * <pre>
+ * java -jar loadtest/target/loadtest.jar --users=200 --rps=100 --warmup=15s --duration=60s \
+ *      --spotify-latency=80ms --spotify-jitter=40ms --spotify-error-rate=0.01 --spotify-throttle-rate=0.005
+ * </pre>
+ * Optionen (Standardwerte in Klammern):
+ * – --users (100), --rps (50), --warmup (10s), --duration (30s), --setup-concurrency (8)
+ * – --spotify-latency (50ms), --spotify-jitter (20ms), --spotify-error-rate (0), --spotify-throttle-rate (0),
+ *   --spotify-retry-after (1s)
+ * – --fixtures=&lt;dir&gt;: aufgezeichnete Spotify-Antworten, z.B. &lt;dir&gt;/v1/me/top/tracks.json
+ * – Optionen mit Punkt gehen an die Anwendung, z.B. --app.spotify.rate-limit.requests-per-second=200
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() { }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            String name = separator > 0 ? option.substring(0, separator) : option;
+            if (name.contains(".")) {
+                applicationArgs.add(arg);
+            } else {
+                options.put(name, separator > 0 ? option.substring(separator + 1) : "true");
+            }
+        }
+
+        FakeSpotifyServer.Settings spotifySettings = new FakeSpotifyServer.Settings(
+                duration(options, "spotify-latency", "50ms"),
+                duration(options, "spotify-jitter", "20ms"),
+                Double.parseDouble(options.getOrDefault("spotify-error-rate", "0")),
+                Double.parseDouble(options.getOrDefault("spotify-throttle-rate", "0")),
+                duration(options, "spotify-retry-after", "1s"),
+                options.containsKey("fixtures") ? Path.of(options.get("fixtures")) : null
+        );
+
+        try (FakeSpotifyServer spotify = FakeSpotifyServer.start(spotifySettings);
+             ConfigurableApplicationContext application = startApplication(spotify.baseUrl(), applicationArgs)) {
+
+            String appBaseUrl = "http://127.0.0.1:" + application.getEnvironment().getProperty("local.server.port");
+            LoadGenerator generator = new LoadGenerator(new LoadGenerator.Settings(
+                    appBaseUrl,
+                    Integer.parseInt(options.getOrDefault("users", "100")),
+                    Double.parseDouble(options.getOrDefault("rps", "50")),
+                    duration(options, "warmup", "10s"),
+                    duration(options, "duration", "30s"),
+                    Integer.parseInt(options.getOrDefault("setup-concurrency", "8"))
+            ));
+
+            System.out.printf("Fake Spotify at %s, application at %s%n", spotify.baseUrl(), appBaseUrl);
+            generator.setUp();
+            System.out.println("Users registered and connected, starting load");
+            spotify.enableFaults();
+            generator.run();
+            generator.printReport(System.out, spotify);
+        }
+    }
+
+    /**
+     * Anwendung mit dem Profil loadtest (H2, application-loadtest.properties); alle Spotify-URLs zeigen auf den Fake.
+     * Kommandozeilen-Argumente haben Vorrang vor application*.properties, eigene Argumente danach erst recht.
+     */
+    private static ConfigurableApplicationContext startApplication(String spotifyBaseUrl, List<String> overrides)
+            throws Exception {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=loadtest",
+                "--server.port=0",
+                "--management.server.port=0",
+                "--logging.level.root=WARN",
+                "--spring.security.oauth2.client.registration.spotify.client-id=loadtest",
+                "--spring.security.oauth2.client.registration.spotify.client-secret=loadtest",
+                "--spring.security.oauth2.client.registration.spotify.scope=user-read-private,user-top-read",
+                "--spring.security.oauth2.client.registration.spotify.redirect-uri=http://127.0.0.1/api/spotify/callback",
+                "--spring.security.oauth2.client.provider.spotify.authorization-uri=" + spotifyBaseUrl + "/authorize",
+                "--spring.security.oauth2.client.provider.spotify.token-uri=" + spotifyBaseUrl + "/api/token",
+                "--spring.security.oauth2.client.provider.spotify.user-info-uri=" + spotifyBaseUrl + "/v1/me",
+                "--app.spotify.api-base-url=" + spotifyBaseUrl + "/v1",
+                "--app.images.cache-dir=" + Files.createTempDirectory("loadtest-images")
+        ));
+        args.addAll(overrides);
+        return SpringApplication.run(SpotifyWrappedCloneApplication.class, args.toArray(String[]::new));
+    }
+
+    private static Duration duration(Map<String, String> options, String name, String defaultValue) {
+        return DurationStyle.detectAndParse(options.getOrDefault(name, defaultValue));
+    }
+}
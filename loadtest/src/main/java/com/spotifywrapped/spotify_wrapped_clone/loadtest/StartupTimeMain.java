@@ -0,0 +1,233 @@
+package com.spotifywrapped.spotify_wrapped_clone.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst die Zeit vom Prozessstart bis zur ersten erfolgreichen Antwort (HTTP 200) für jede Startvariante.
+ * Braucht nur das JDK, läuft daher direkt aus dem Quelltext:
+ * <pre>
+ * ./mvnw -B -Pfast-startup -DskipTests package
+ * docker compose up -d mysql
+ * java loadtest/src/main/java/com/spotifywrapped/spotify_wrapped_clone/loadtest/StartupTimeMain.java --runs=10
+ * </pre>
+ * Varianten (fehlende Artefakte werden übersprungen):
+ * – jar: Fat Jar wie bisher im Dockerfile
+ * – extracted: ausgepacktes Jar aus target/fast-startup
+ * – aot: extracted mit -Dspring.aot.enabled=true
+ * – aot-cds: aot mit dem AppCDS-Archiv application.jsa
+ * – native: GraalVM-Binary aus -Pnative native:compile
+ * Optionen (Standardwerte in Klammern):
+ * – --runs (5) gemessene Starts je Variante, reihum gemischt; --warmup-runs (1) vorab, nicht gezählt
+ * – --variants (alle), --path (/actuator/health), --timeout (120s)
+ * – --env-file (.env, falls vorhanden): Umgebung für die Anwendung, z.B. DB_HOST, APP_JWT_SECRET
+ * – --java: JVM für die Jar-Varianten (die laufende); muss die sein, mit der application.jsa erzeugt wurde
+ * – Optionen mit Punkt gehen an die Anwendung, z.B. --app.spotify.ingestion.enabled=false
+ */
+public final class StartupTimeMain {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private StartupTimeMain() { }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            String name = separator > 0 ? option.substring(0, separator) : option;
+            if (name.contains(".")) {
+                applicationArgs.add(arg);
+            } else {
+                options.put(name, separator > 0 ? option.substring(separator + 1) : "true");
+            }
+        }
+
+        String java = options.getOrDefault("java", Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        Path jar = Path.of(options.getOrDefault("jar", "target/spotify-wrapped-clone-0.0.1-SNAPSHOT.jar")).toAbsolutePath();
+        Path fastStartup = Path.of(options.getOrDefault("fast-startup-dir", "target/fast-startup")).toAbsolutePath();
+        Path nativeImage = Path.of(options.getOrDefault("native", "target/spotify-wrapped-clone")).toAbsolutePath();
+
+        Map<String, Variant> available = new LinkedHashMap<>();
+        available.put("jar", new Variant(jar, jar.getParent(), List.of(java, "-jar", jar.toString())));
+        Path applicationJar = fastStartup.resolve("application.jar");
+        available.put("extracted", new Variant(applicationJar, fastStartup,
+                List.of(java, "-jar", "application.jar")));
+        available.put("aot", new Variant(applicationJar, fastStartup,
+                List.of(java, "-Dspring.aot.enabled=true", "-jar", "application.jar")));
+        available.put("aot-cds", new Variant(fastStartup.resolve("application.jsa"), fastStartup,
+                List.of(java, "-XX:SharedArchiveFile=application.jsa", "-Xlog:cds=error",
+                        "-Dspring.aot.enabled=true", "-jar", "application.jar")));
+        available.put("native", new Variant(nativeImage, nativeImage.getParent(), List.of(nativeImage.toString())));
+
+        Map<String, Variant> variants = new LinkedHashMap<>();
+        List<String> requested = options.containsKey("variants")
+                ? Arrays.asList(options.get("variants").split(","))
+                : List.copyOf(available.keySet());
+        for (String name : requested) {
+            Variant variant = available.get(name.trim());
+            if (variant == null) {
+                throw new IllegalArgumentException("Unknown variant " + name + ", expected one of " + available.keySet());
+            }
+            if (Files.exists(variant.artifact())) {
+                variants.put(name.trim(), variant);
+            } else {
+                System.out.printf("Skipping %s: %s not found%n", name.trim(), variant.artifact());
+            }
+        }
+
+        Settings settings = new Settings(
+                options.getOrDefault("path", "/actuator/health"),
+                Duration.parse("PT" + options.getOrDefault("timeout", "120s").toUpperCase()),
+                readEnvFile(Path.of(options.getOrDefault("env-file", ".env"))),
+                applicationArgs,
+                Files.createTempDirectory("startup-time")
+        );
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        int warmupRuns = Integer.parseInt(options.getOrDefault("warmup-runs", "1"));
+
+        // Reihum statt Variante für Variante: Störungen der Maschine verteilen sich auf alle Varianten
+        Map<String, List<Long>> results = new LinkedHashMap<>();
+        variants.keySet().forEach(name -> results.put(name, new ArrayList<>()));
+        for (int run = 0; run < warmupRuns + runs; run++) {
+            for (Map.Entry<String, Variant> variant : variants.entrySet()) {
+                long millis = timeToFirstRequest(variant.getKey(), variant.getValue(), settings, run);
+                if (run >= warmupRuns) {
+                    results.get(variant.getKey()).add(millis);
+                }
+                System.out.printf("%-10s run %d: %d ms%s%n", variant.getKey(), run + 1, millis,
+                        run < warmupRuns ? " (warmup)" : "");
+            }
+        }
+
+        printReport(results, settings.path());
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    /**
+     * Startet die Variante auf einem freien Port, fragt {@code path} ab, bis 200 kommt, und beendet sie wieder.
+     */
+    private static long timeToFirstRequest(String name, Variant variant, Settings settings, int run) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(variant.command());
+        command.add("--server.port=" + port);
+        // Actuator sonst auf eigenem Port; für die Messung auf denselben legen
+        command.add("--management.server.port=" + port);
+        command.addAll(settings.applicationArgs());
+
+        Path log = settings.logDirectory().resolve(name + "-" + (run + 1) + ".log");
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(variant.workingDirectory().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        builder.environment().putAll(settings.environment());
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + settings.path()))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long started = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long deadline = started + settings.timeout().toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    }
+                } catch (IOException notListeningYet) {
+                    // Port noch nicht offen
+                }
+                Thread.sleep(POLL_INTERVAL);
+            }
+            throw new IllegalStateException(name + " did not answer " + settings.path() + " within "
+                    + settings.timeout() + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static void printReport(Map<String, List<Long>> results, String path) {
+        System.out.println();
+        System.out.printf("Time to first request (GET %s), ms%n", path);
+        System.out.printf("%-10s %6s %8s %8s %8s%n", "variant", "runs", "min", "median", "max");
+        for (Map.Entry<String, List<Long>> result : results.entrySet()) {
+            List<Long> millis = result.getValue().stream().sorted().toList();
+            if (millis.isEmpty()) {
+                continue;
+            }
+            int middle = millis.size() / 2;
+            double median = millis.size() % 2 == 1
+                    ? millis.get(middle)
+                    : (millis.get(middle - 1) + millis.get(middle)) / 2.0;
+            System.out.printf("%-10s %6d %8d %8.0f %8d%n",
+                    result.getKey(), millis.size(), millis.getFirst(), median, millis.getLast());
+        }
+    }
+
+    /**
+     * KEY=VALUE je Zeile wie bei docker compose; Kommentare und Leerzeilen werden übersprungen.
+     */
+    private static Map<String, String> readEnvFile(Path envFile) throws IOException {
+        Map<String, String> environment = new HashMap<>();
+        if (!Files.exists(envFile)) {
+            return environment;
+        }
+        for (String line : Files.readAllLines(envFile)) {
+            String trimmed = line.trim();
+            int separator = trimmed.indexOf('=');
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || separator < 1) {
+                continue;
+            }
+            String value = trimmed.substring(separator + 1).trim();
+            if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"")
+                    || value.startsWith("'") && value.endsWith("'"))) {
+                value = value.substring(1, value.length() - 1);
+            }
+            environment.put(trimmed.substring(0, separator).trim(), value);
+        }
+        return environment;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Variant(Path artifact, Path workingDirectory, List<String> command) { }
+
+    private record Settings(
+            String path,
+            Duration timeout,
+            Map<String, String> environment,
+            List<String> applicationArgs,
+            Path logDirectory
+    ) { }
+}
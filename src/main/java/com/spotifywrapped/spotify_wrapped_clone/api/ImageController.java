@@ -0,0 +1,65 @@
+package com.spotifywrapped.spotify_wrapped_clone.api;
+
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.AlbumImageService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+/**
+ * Albumcover über die eigene API; öffentlich, damit sie direkt in img-Tags stehen können.
+ * – Nur mit gültiger Signatur aus {@link AlbumImageService#proxyUrl}, sonst 403 ohne Spotify-Aufruf.
+ * – Von Spotify unbekannte Alben merkt sich der Katalog kurz (negative-ttl).
+ */
+@RestController
+@RequestMapping("/api/images")
+public class ImageController {
+
+    private static final int MAX_IMAGE_SIZE = 2000;
+
+    // Spotify-IDs sind Base62
+    private static final Pattern SPOTIFY_ID = Pattern.compile("[0-9A-Za-z]{1,64}");
+
+    // Ein Album-Cover ändert sich nicht, der Browser muss also nie revalidieren
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final AlbumImageService albumImageService;
+
+    public ImageController(AlbumImageService albumImageService) {
+        this.albumImageService = albumImageService;
+    }
+
+    @GetMapping(value = "/{albumId}", produces = MediaType.IMAGE_JPEG_VALUE)
+    public ResponseEntity<byte[]> albumImage(
+            @PathVariable String albumId,
+            @RequestParam(value = "size", defaultValue = "300") int size,
+            @RequestParam(value = "sig", required = false) String signature) {
+
+        if (!SPOTIFY_ID.matcher(albumId).matches() || size < 1 || size > MAX_IMAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        if (!albumImageService.isValidSignature(albumId, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        try {
+            AlbumImageService.AlbumImage image = albumImageService.getAlbumImage(albumId, size);
+            if (image == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            // Spotify liefert Cover ausschließlich als JPEG
+            return ResponseEntity.ok()
+                    .cacheControl(IMMUTABLE)
+                    .eTag(image.key())
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .body(image.bytes());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+        }
+    }
+}
@@ -1,35 +1,61 @@
 package com.spotifywrapped.spotify_wrapped_clone.api;
 
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.ListeningStatsDto;
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyLoginDto;
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyProfileDto;
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyStatusDto;
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyTopTrackDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyWrappedDto;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import com.spotifywrapped.spotify_wrapped_clone.service.AuthenticatedUser;
 import com.spotifywrapped.spotify_wrapped_clone.service.JwtService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningGranularity;
 import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAuthService;
 import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyProfileService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyRateLimitedException;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyResponseCache;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyResult;
 import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenService;
 import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTopTracksService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyWrappedService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.WrappedService;
 import com.spotifywrapped.spotify_wrapped_clone.service.user_services.UserService;
 
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/spotify")
 public class SpotifyController {
 
+    private static final int MAX_STATS_LIMIT = 50;
+
+    // "true", wenn die Daten aus dem letzten erfolgreichen Abruf stammen, weil Spotify gerade gestört ist
+    private static final String STALE_HEADER = "X-Spotify-Data-Stale";
+
     private final SpotifyAuthService spotifyAuthService;
     private final UserService userService;
     private final SpotifyProfileService spotifyProfileService;
     private final SpotifyTokenService spotifyTokenService;
     private final JwtService jwtService;
     private final SpotifyTopTracksService spotifyTopTracksService;
+    private final SpotifyResponseCache spotifyResponseCache;
+    private final SpotifyWrappedService spotifyWrappedService;
+    private final WrappedService wrappedService;
 
     public SpotifyController(
             SpotifyAuthService spotifyAuthService,
@@ -37,7 +63,10 @@ public class SpotifyController {
             UserService userService,
             SpotifyTokenService spotifyTokenService,
             JwtService jwtService,
-            SpotifyTopTracksService spotifyTopTracksService
+            SpotifyTopTracksService spotifyTopTracksService,
+            SpotifyResponseCache spotifyResponseCache,
+            SpotifyWrappedService spotifyWrappedService,
+            WrappedService wrappedService
     ) {
         this.spotifyAuthService = spotifyAuthService;
         this.spotifyProfileService = spotifyProfileService;
@@ -45,18 +74,20 @@ public class SpotifyController {
         this.spotifyTokenService = spotifyTokenService;
         this.jwtService = jwtService;
         this.spotifyTopTracksService = spotifyTopTracksService;
+        this.spotifyResponseCache = spotifyResponseCache;
+        this.spotifyWrappedService = spotifyWrappedService;
+        this.wrappedService = wrappedService;
     }
 
     @GetMapping("/login")
     public ResponseEntity<SpotifyLoginDto> redirectToSpotify(
-            @RequestHeader(value = "Authorization", required = false) String authorization) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
 
-        User user = userService.findUserByAccessToken(extractBearerToken(authorization));
-        if (user == null) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        String state = jwtService.generateSpotifyStateToken(user.getId());
+        String state = jwtService.generateSpotifyStateToken(principal.id());
         String authorizationUrl = spotifyAuthService.buildAuthorizationUrl(state);
 
         return ResponseEntity.ok(new SpotifyLoginDto(authorizationUrl));
@@ -90,6 +121,9 @@ public class SpotifyController {
                 expiresAt
         );
 
+        // Evtl. wurde ein anderes Spotify-Konto verbunden → alte Antworten verwerfen
+        spotifyResponseCache.invalidateUser(user.getId());
+
         return ResponseEntity.status(HttpStatus.FOUND)
                 .location(URI.create(spotifyAuthService.getSuccessRedirect()))
                 .build();
@@ -97,33 +131,39 @@ public class SpotifyController {
 
     @GetMapping("/status")
     public ResponseEntity<SpotifyStatusDto> spotifyStatus(
-            @RequestHeader(value = "Authorization", required = false) String authorization) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
 
-        User user = userService.findUserByAccessToken(extractBearerToken(authorization));
-        if (user == null) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        boolean connected = spotifyTokenService.hasRefreshToken(user.getId());
+        boolean connected = spotifyTokenService.hasRefreshToken(principal.id());
         return ResponseEntity.ok(new SpotifyStatusDto(connected));
     }
 
-    @GetMapping("/profile")
-    public ResponseEntity<SpotifyProfileDto> spotifyProfile(
-            @RequestHeader(value = "Authorization", required = false) String authorization) {
+    @GetMapping(value = "/profile", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = SpotifyProfileDto.class)))
+    public ResponseEntity<byte[]> spotifyProfile(
+            @AuthenticationPrincipal AuthenticatedUser principal) {
 
-        User user = userService.findUserByAccessToken(extractBearerToken(authorization));
-        if (user == null) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
         try {
-            SpotifyProfileDto profile = spotifyProfileService.fetchProfile(user);
+            SpotifyResponseCache.SpotifyCachedResponse<SpotifyProfileDto> profile =
+                    spotifyProfileService.fetchProfile(principal.id());
             if (profile == null) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
             }
 
-            return ResponseEntity.ok(profile);
+            // Gecachtes JSON direkt schreiben, ohne erneute Serialisierung
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(STALE_HEADER, Boolean.toString(profile.stale()))
+                    .body(profile.json());
+        } catch (SpotifyRateLimitedException e) {
+            return rateLimited(e);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
         }
@@ -131,25 +171,72 @@ public class SpotifyController {
 
     @GetMapping("/top-tracks")
     public ResponseEntity<List<SpotifyTopTrackDto>> topTracks(
-            @RequestHeader(value = "Authorization", required = false) String authorization) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
 
-        User user = userService.findUserByAccessToken(extractBearerToken(authorization));
-        if (user == null) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
         try {
-            List<SpotifyTopTrackDto> tracks = spotifyTopTracksService.fetchTopTracks(user);
-            return ResponseEntity.ok(tracks);
+            SpotifyResult<List<SpotifyTopTrackDto>> tracks = spotifyTopTracksService.fetchTopTracks(principal.id());
+            if (tracks == null) {
+                return ResponseEntity.ok(List.of());
+            }
+
+            return ResponseEntity.ok()
+                    .header(STALE_HEADER, Boolean.toString(tracks.stale()))
+                    .body(tracks.data());
+        } catch (SpotifyRateLimitedException e) {
+            return rateLimited(e);
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
         }
     }
 
-    private String extractBearerToken(String authorization) {
-        if (authorization == null || !authorization.startsWith("Bearer ")) {
-            return null;
+    @GetMapping("/listening-stats")
+    public ResponseEntity<ListeningStatsDto> listeningStats(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "10") int limit,
+            @RequestParam(value = "granularity", defaultValue = "MONTH") ListeningGranularity granularity) {
+
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        // Standard: aktuelles Jahr bis heute (UTC)
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.withDayOfYear(1);
+        if (start.isAfter(end) || limit < 1 || limit > MAX_STATS_LIMIT) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        return authorization.substring("Bearer ".length()).trim();
+
+        return ResponseEntity.ok(wrappedService.getListeningStats(principal.id(), start, end, limit, granularity));
+    }
+
+    @GetMapping("/wrapped")
+    public ResponseEntity<SpotifyWrappedDto> wrapped(
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        if (!spotifyTokenService.hasRefreshToken(principal.id())) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        return ResponseEntity.ok(spotifyWrappedService.fetchWrapped(principal.id()));
+    }
+
+    /**
+     * 503 mit Retry-After, damit der Client nach der Spotify-Pause erneut fragt statt sofort.
+     */
+    private static <T> ResponseEntity<T> rateLimited(SpotifyRateLimitedException e) {
+        long seconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+                .build();
     }
 }
@@ -4,9 +4,15 @@ import com.spotifywrapped.spotify_wrapped_clone.api.dto.userdto.AuthResponseDto;
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.userdto.LoginDto;
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.userdto.UserDtoIn;
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.userdto.UserDtoOut;
+import com.spotifywrapped.spotify_wrapped_clone.service.AuthenticatedUser;
+import com.spotifywrapped.spotify_wrapped_clone.service.PasswordHashingBusyException;
+import com.spotifywrapped.spotify_wrapped_clone.service.user_services.UserAlreadyExistsException;
 import com.spotifywrapped.spotify_wrapped_clone.service.user_services.UserService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 
 import org.springframework.web.bind.annotation.*;
 
@@ -60,20 +66,37 @@ public class UserController {
 
     @GetMapping("/session")
     public ResponseEntity<Void> validateSession(
-            @RequestHeader(value = "Authorization", required = false) String authorization) {
-        boolean valid = userService.isAccessTokenValid(extractBearerToken(authorization));
+            @AuthenticationPrincipal AuthenticatedUser principal) {
 
-        if (!valid) {
+        if (principal == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
         return ResponseEntity.noContent().build();
     }
 
-    private String extractBearerToken(String authorization) {
-        if (authorization == null || !authorization.startsWith("Bearer ")) {
-            return null;
-        }
-        return authorization.substring("Bearer ".length()).trim();
+    @ExceptionHandler(UserAlreadyExistsException.class)
+    public ResponseEntity<Void> userAlreadyExists(UserAlreadyExistsException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * Eine andere Instanz hat den User zwischen Lesen und Schreiben geändert (Versionskonflikt); erneut versuchen.
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Void> concurrentUpdate(ObjectOptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * Registrierung, Passwortänderung und Login hashen auf einem begrenzten Executor;
+     * ist er voll, 503 mit Retry-After statt Request-Threads zu blockieren.
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Void> hashingBusy(PasswordHashingBusyException e) {
+        long seconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+                .build();
     }
 }
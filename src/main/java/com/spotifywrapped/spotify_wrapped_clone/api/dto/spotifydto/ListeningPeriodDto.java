@@ -0,0 +1,9 @@
+package com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto;
+
+import java.time.LocalDate;
+
+public record ListeningPeriodDto(
+        LocalDate periodStart,
+        long playCount,
+        long minutesListened
+) {}
@@ -0,0 +1,9 @@
+package com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto;
+
+public record ListeningRankDto(
+        String spotifyId,
+        String name,
+        String imageUrl,
+        long playCount,
+        long minutesListened
+) {}
@@ -0,0 +1,14 @@
+package com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record ListeningStatsDto(
+        LocalDate from,
+        LocalDate to,
+        long totalPlays,
+        long totalMinutes,
+        List<ListeningRankDto> topTracks,
+        List<ListeningRankDto> topArtists,
+        List<ListeningPeriodDto> periods
+) {}
@@ -0,0 +1,11 @@
+package com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto;
+
+import java.util.List;
+import java.util.Map;
+
+public record SpotifyWrappedDto(
+        SpotifyWrappedSectionDto<SpotifyProfileDto> profile,
+        Map<String, SpotifyWrappedSectionDto<List<SpotifyTopTrackDto>>> topTracks,
+        Map<String, SpotifyWrappedSectionDto<List<SpotifyTopArtistDto>>> topArtists
+) {
+}
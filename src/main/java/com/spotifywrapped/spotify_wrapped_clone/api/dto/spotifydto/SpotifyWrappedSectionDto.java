@@ -0,0 +1,12 @@
+package com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto;
+
+/**
+ * Ein Abschnitt der Wrapped-Übersicht: entweder Daten oder eine Fehlermeldung.
+ * {@code stale} markiert Daten aus dem letzten erfolgreichen Abruf, weil Spotify gerade gestört ist.
+ */
+public record SpotifyWrappedSectionDto<T>(
+        T data,
+        String error,
+        boolean stale
+) {
+}
@@ -0,0 +1,195 @@
+package com.spotifywrapped.spotify_wrapped_clone.dbaccess;
+
+import jakarta.transaction.Transactional;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Zugriff auf die gesammelten Wiedergaben (listening_events) und den Ingestion-Zustand pro Nutzer.
+ * – Reines JDBC statt JPA: Events werden nur angehängt, nie als Entities geladen oder geändert.
+ */
+@Repository
+@Transactional
+public class ListeningEventDBaccess {
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO listening_events (user_id, track_id, artist_id, played_at, duration_ms) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_STATE =
+            "INSERT INTO listening_ingestion_state (user_id, after_cursor, poll_interval_seconds, next_poll_at) " +
+                    "VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ListeningRollupDBaccess listeningRollupDBaccess;
+
+    public ListeningEventDBaccess(JdbcTemplate jdbcTemplate, ListeningRollupDBaccess listeningRollupDBaccess) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listeningRollupDBaccess = listeningRollupDBaccess;
+    }
+
+    /**
+     * Nutzer mit Refresh Token, deren nächster Poll fällig ist (neue Nutzer ohne Zustand zuerst).
+     */
+    public List<IngestionState> findDueStates(Instant now, int limit) {
+        return jdbcTemplate.query(
+                "SELECT t.user_id, s.after_cursor, s.poll_interval_seconds, s.next_poll_at " +
+                        "FROM spotify_tokens t " +
+                        "LEFT JOIN listening_ingestion_state s ON s.user_id = t.user_id " +
+                        "WHERE (t.refresh_token IS NOT NULL OR t.refresh_token_enc IS NOT NULL) " +
+                        "AND (s.next_poll_at IS NULL OR s.next_poll_at <= ?) " +
+                        "ORDER BY s.next_poll_at IS NOT NULL, s.next_poll_at, t.user_id " +
+                        "LIMIT ?",
+                (rs, rowNum) -> new IngestionState(
+                        rs.getLong("user_id"),
+                        (Long) rs.getObject("after_cursor", Long.class),
+                        (Integer) rs.getObject("poll_interval_seconds", Integer.class),
+                        rs.getTimestamp("next_poll_at") != null ? rs.getTimestamp("next_poll_at").toInstant() : null
+                ),
+                Timestamp.from(now),
+                limit
+        );
+    }
+
+    /**
+     * Beansprucht einen fälligen Nutzer vor dem Poll; alle Instanzen bekommen von {@link #findDueStates} dieselben Nutzer.
+     * – Bedingtes UPDATE auf das gelesene next_poll_at: nur eine Instanz schiebt es auf {@code claimedUntil}.
+     * – Neue Nutzer bekommen ihre Zustandszeile hier; über den Primärschlüssel gewinnt genau eine Instanz.
+     * – Nach dem Poll überschreibt saveState() den Wert; stürzt die Instanz ab, ist der Nutzer ab claimedUntil wieder fällig.
+     *
+     * @param pollInterval Intervall für die neue Zustandszeile; bestehende Zeilen behalten ihres
+     * @return true, wenn diese Instanz den Nutzer pollen darf
+     */
+    public boolean claimDue(IngestionState state, Duration pollInterval, Instant claimedUntil) {
+        if (state.nextPollAt() != null) {
+            return jdbcTemplate.update(
+                    "UPDATE listening_ingestion_state SET next_poll_at = ? WHERE user_id = ? AND next_poll_at = ?",
+                    Timestamp.from(claimedUntil), state.userId(), Timestamp.from(state.nextPollAt())) == 1;
+        }
+
+        try {
+            jdbcTemplate.update(INSERT_STATE,
+                    state.userId(), null, (int) pollInterval.toSeconds(), Timestamp.from(claimedUntil));
+            return true;
+        } catch (DuplicateKeyException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Hängt neue Wiedergaben per JDBC-Batch an und schreibt Tages-Rollups, Cursor und nächsten Poll in derselben Transaktion.
+     * – Events müssen bereits per Cursor dedupliziert sein; der Unique-Key (user_id, played_at) ist nur die Absicherung.
+     */
+    public void appendEvents(Long userId, List<ListeningEvent> events, Long afterCursor, Duration pollInterval, Instant nextPollAt) {
+        if (!events.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_EVENT, events, events.size(), (ps, event) -> {
+                ps.setLong(1, userId);
+                ps.setString(2, event.trackId());
+                ps.setString(3, event.artistId());
+                ps.setTimestamp(4, Timestamp.from(event.playedAt()));
+                ps.setInt(5, event.durationMs());
+            });
+            listeningRollupDBaccess.addEvents(userId, events);
+        }
+
+        saveState(userId, afterCursor, pollInterval, nextPollAt);
+    }
+
+    public void saveState(Long userId, Long afterCursor, Duration pollInterval, Instant nextPollAt) {
+        int updated = jdbcTemplate.update(
+                "UPDATE listening_ingestion_state " +
+                        "SET after_cursor = ?, poll_interval_seconds = ?, next_poll_at = ? WHERE user_id = ?",
+                afterCursor, (int) pollInterval.toSeconds(), Timestamp.from(nextPollAt), userId);
+
+        if (updated == 0) {
+            jdbcTemplate.update(INSERT_STATE, userId, afterCursor, (int) pollInterval.toSeconds(), Timestamp.from(nextPollAt));
+        }
+    }
+
+    /**
+     * Liest alle Events seitenweise (Keyset über user_id, played_at), sortiert nach Nutzer und Zeit.
+     * – Speicherbedarf bleibt unabhängig von der Tabellengröße auf eine Seite begrenzt.
+     */
+    public void forEachEvent(int pageSize, StoredEventHandler handler) {
+        long[] last = {-1L, 0L};
+        int[] rows = new int[1];
+
+        do {
+            rows[0] = 0;
+            jdbcTemplate.query(
+                    "SELECT user_id, track_id, artist_id, played_at, duration_ms FROM listening_events " +
+                            "WHERE user_id > ? OR (user_id = ? AND played_at > ?) " +
+                            "ORDER BY user_id, played_at " +
+                            "LIMIT ?",
+                    rs -> {
+                        long userId = rs.getLong("user_id");
+                        long playedAt = rs.getTimestamp("played_at").getTime();
+                        handler.accept(userId, rs.getString("track_id"), rs.getString("artist_id"),
+                                playedAt, rs.getInt("duration_ms"));
+                        last[0] = userId;
+                        last[1] = playedAt;
+                        rows[0]++;
+                    },
+                    last[0], last[0], new Timestamp(last[1]), pageSize
+            );
+        } while (rows[0] == pageSize);
+    }
+
+    /**
+     * Höchste vergebene Event-ID; Startpunkt für {@link #findEventsAfterId} nach einem Rebuild.
+     */
+    public long findMaxEventId() {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM listening_events", Long.class);
+        return max != null ? max : 0;
+    }
+
+    /**
+     * Events mit id > afterId in ID-Reihenfolge, höchstens limit Zeilen.
+     */
+    public List<StoredEvent> findEventsAfterId(long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, user_id, track_id, artist_id, played_at, duration_ms FROM listening_events " +
+                        "WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new StoredEvent(
+                        rs.getLong("id"),
+                        rs.getLong("user_id"),
+                        new ListeningEvent(
+                                rs.getString("track_id"),
+                                rs.getString("artist_id"),
+                                rs.getTimestamp("played_at").toInstant(),
+                                rs.getInt("duration_ms")
+                        )
+                ),
+                afterId,
+                limit
+        );
+    }
+
+    public long countEvents(Long userId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM listening_events WHERE user_id = ?", Long.class, userId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Zustand des Pollings: Cursor (played_at in ms), aktuelles Intervall und nächster Poll; alles null bei neuen Nutzern.
+     */
+    public record IngestionState(Long userId, Long afterCursor, Integer pollIntervalSeconds, Instant nextPollAt) { }
+
+    public record ListeningEvent(String trackId, String artistId, Instant playedAt, int durationMs) { }
+
+    public record StoredEvent(long id, Long userId, ListeningEvent event) { }
+
+    /**
+     * Callback pro gespeichertem Event, ohne ein Objekt pro Zeile anzulegen.
+     */
+    @FunctionalInterface
+    public interface StoredEventHandler {
+        void accept(long userId, String trackId, String artistId, long playedAtMillis, int durationMs);
+    }
+}
@@ -0,0 +1,178 @@
+package com.spotifywrapped.spotify_wrapped_clone.dbaccess;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.ListeningEvent;
+import jakarta.transaction.Transactional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tägliche Vorverdichtung der Wiedergaben pro Nutzer (Gesamt, Tracks, Artists).
+ * – Wird beim Anhängen neuer Events inkrementell fortgeschrieben; Auswertungen lesen nie die Roh-Events.
+ * – Tage werden in UTC gezählt.
+ */
+@Repository
+@Transactional
+public class ListeningRollupDBaccess {
+
+    private static final String TOTALS_TABLE = "listening_daily_totals";
+    private static final String TRACKS_TABLE = "listening_daily_tracks";
+    private static final String ARTISTS_TABLE = "listening_daily_artists";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ListeningRollupDBaccess(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Addiert neue Events auf die Tageszeilen. Die Events werden vorher in Java pro Tag/Track/Artist
+     * zusammengefasst, sodass pro Zeile nur ein Upsert nötig ist.
+     * – Tabellen- und Spaltennamen in den SQL-Strings sind Konstanten dieser Klasse, keine Nutzereingaben.
+     */
+    public void addEvents(Long userId, List<ListeningEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Map<LocalDate, Counter> totals = new LinkedHashMap<>();
+        Map<DayKey, Counter> tracks = new LinkedHashMap<>();
+        Map<DayKey, Counter> artists = new LinkedHashMap<>();
+
+        for (ListeningEvent event : events) {
+            LocalDate day = LocalDate.ofInstant(event.playedAt(), ZoneOffset.UTC);
+            totals.computeIfAbsent(day, d -> new Counter()).add(event.durationMs());
+            tracks.computeIfAbsent(new DayKey(day, event.trackId()), k -> new Counter()).add(event.durationMs());
+            if (event.artistId() != null) {
+                artists.computeIfAbsent(new DayKey(day, event.artistId()), k -> new Counter()).add(event.durationMs());
+            }
+        }
+
+        upsert(TOTALS_TABLE, null, userId, totals.entrySet().stream()
+                .map(entry -> new RollupRow(entry.getKey(), null, entry.getValue()))
+                .toList());
+        upsert(TRACKS_TABLE, "track_id", userId, toRows(tracks));
+        upsert(ARTISTS_TABLE, "artist_id", userId, toRows(artists));
+    }
+
+    public List<RankedItem> findTopTracks(Long userId, LocalDate from, LocalDate to, int limit) {
+        return findTop(TRACKS_TABLE, "track_id", userId, from, to, limit);
+    }
+
+    public List<RankedItem> findTopArtists(Long userId, LocalDate from, LocalDate to, int limit) {
+        return findTop(ARTISTS_TABLE, "artist_id", userId, from, to, limit);
+    }
+
+    /**
+     * Tageswerte im Zeitraum (beide Grenzen inklusive), aufsteigend nach Tag.
+     */
+    public List<DailyTotal> findDailyTotals(Long userId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT play_date, play_count, ms_played FROM " + TOTALS_TABLE + " " +
+                        "WHERE user_id = ? AND play_date BETWEEN ? AND ? ORDER BY play_date",
+                (rs, rowNum) -> new DailyTotal(
+                        rs.getDate("play_date").toLocalDate(),
+                        rs.getLong("play_count"),
+                        rs.getLong("ms_played")
+                ),
+                userId, Date.valueOf(from), Date.valueOf(to)
+        );
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    /**
+     * Portables Upsert (MySQL und H2): erst alle Zeilen per Batch erhöhen, dann die fehlenden per Batch einfügen.
+     * Pro Nutzer pollt immer nur ein Thread, auch über Instanzen hinweg (Claim per {@link ListeningEventDBaccess#claimDue}),
+     * daher gibt es zwischen beiden Schritten keinen Konkurrenten.
+     */
+    private void upsert(String table, String idColumn, Long userId, List<RollupRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        String keyCondition = "user_id = ? AND play_date = ?" + (idColumn != null ? " AND " + idColumn + " = ?" : "");
+        int[][] updated = jdbcTemplate.batchUpdate(
+                "UPDATE " + table + " SET play_count = play_count + ?, ms_played = ms_played + ? WHERE " + keyCondition,
+                rows, rows.size(), (ps, row) -> {
+                    ps.setInt(1, row.counter().plays);
+                    ps.setLong(2, row.counter().msPlayed);
+                    ps.setLong(3, userId);
+                    ps.setDate(4, Date.valueOf(row.day()));
+                    if (idColumn != null) {
+                        ps.setString(5, row.id());
+                    }
+                });
+
+        List<RollupRow> missing = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (updated[0][i] == 0) {
+                missing.add(rows.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO " + table + " (user_id, play_date, " + (idColumn != null ? idColumn + ", " : "") +
+                        "play_count, ms_played) VALUES (?, ?, " + (idColumn != null ? "?, " : "") + "?, ?)",
+                missing, missing.size(), (ps, row) -> {
+                    int index = 1;
+                    ps.setLong(index++, userId);
+                    ps.setDate(index++, Date.valueOf(row.day()));
+                    if (idColumn != null) {
+                        ps.setString(index++, row.id());
+                    }
+                    ps.setInt(index++, row.counter().plays);
+                    ps.setLong(index, row.counter().msPlayed);
+                });
+    }
+
+    private static List<RollupRow> toRows(Map<DayKey, Counter> counters) {
+        return counters.entrySet().stream()
+                .map(entry -> new RollupRow(entry.getKey().day(), entry.getKey().id(), entry.getValue()))
+                .toList();
+    }
+
+    private List<RankedItem> findTop(String table, String idColumn, Long userId, LocalDate from, LocalDate to, int limit) {
+        return jdbcTemplate.query(
+                "SELECT " + idColumn + " AS id, SUM(play_count) AS plays, SUM(ms_played) AS ms " +
+                        "FROM " + table + " " +
+                        "WHERE user_id = ? AND play_date BETWEEN ? AND ? " +
+                        "GROUP BY " + idColumn + " " +
+                        "ORDER BY plays DESC, ms DESC, id " +
+                        "LIMIT ?",
+                (rs, rowNum) -> new RankedItem(rs.getString("id"), rs.getLong("plays"), rs.getLong("ms")),
+                userId, Date.valueOf(from), Date.valueOf(to), limit
+        );
+    }
+
+    private record DayKey(LocalDate day, String id) { }
+
+    private record RollupRow(LocalDate day, String id, Counter counter) { }
+
+    private static final class Counter {
+        private int plays;
+        private long msPlayed;
+
+        private void add(int durationMs) {
+            plays++;
+            msPlayed += durationMs;
+        }
+    }
+
+    public record RankedItem(String id, long playCount, long msPlayed) { }
+
+    public record DailyTotal(LocalDate day, long playCount, long msPlayed) { }
+}
@@ -0,0 +1,87 @@
+package com.spotifywrapped.spotify_wrapped_clone.dbaccess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Misst den Replikations-Lag über die Tabelle replication_heartbeat und entscheidet, ob das Replica lesen darf.
+ * – Pro Durchlauf: beat_at von Primary und Replica lesen, Lag = Differenz; danach einen neuen Beat schreiben.
+ *   Die Auflösung ist damit das Prüfintervall.
+ * – Lag über max-lag oder Replica nicht erreichbar → Lesezugriffe gehen an den Primary, bis es wieder aufholt.
+ * – Vor der ersten erfolgreichen Messung gilt das Replica als nicht nutzbar.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String READ_BEAT = "SELECT beat_at FROM replication_heartbeat WHERE id = 1";
+    private static final String WRITE_BEAT = "UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+
+    private volatile boolean replicaUsable;
+    private volatile Duration lastLag;
+
+    public ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource, Duration maxLag) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLag = maxLag;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval:1s}")
+    public void checkLag() {
+        try {
+            Instant primaryBeat = primary.queryForObject(READ_BEAT, Timestamp.class).toInstant();
+            Instant replicaBeat = replica.queryForObject(READ_BEAT, Timestamp.class).toInstant();
+            Duration lag = Duration.between(replicaBeat, primaryBeat);
+            lastLag = lag.isNegative() ? Duration.ZERO : lag;
+            updateUsable(lastLag.compareTo(maxLag) <= 0);
+        } catch (DataAccessException e) {
+            lastLag = null;
+            updateUsable(false);
+            log.warn("Replica lag check failed, reading from primary: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            primary.update(WRITE_BEAT, Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MILLIS)));
+        } catch (DataAccessException e) {
+            log.warn("Could not write replication heartbeat: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Zuletzt gemessener Lag in Sekunden; NaN, wenn die letzte Messung fehlgeschlagen ist.
+     */
+    public double getLagSeconds() {
+        Duration lag = lastLag;
+        return lag == null ? Double.NaN : lag.toMillis() / 1000.0;
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private void updateUsable(boolean usable) {
+        if (usable != replicaUsable) {
+            log.info("Read replica {} (lag {})", usable ? "in use" : "bypassed", lastLag);
+        }
+        replicaUsable = usable;
+    }
+}
@@ -0,0 +1,52 @@
+package com.spotifywrapped.spotify_wrapped_clone.dbaccess;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verbindungen für readOnly-Transaktionen vom Replica, alles andere (Schreiben, ohne Transaktion, Flyway) vom Primary.
+ * – Hängt hinter einem LazyConnectionDataSourceProxy: die Verbindung wird erst beim ersten Statement geholt,
+ *   wenn das readOnly-Flag der Transaktion schon gesetzt ist.
+ * – Meldet der {@link ReplicaLagMonitor} zu viel Lag, lesen auch readOnly-Transaktionen vom Primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    public long getReplicaReadCount() {
+        return replicaReads.sum();
+    }
+
+    public long getFallbackReadCount() {
+        return fallbackReads.sum();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        if (lagMonitor.isReplicaUsable()) {
+            replicaReads.increment();
+            return REPLICA;
+        }
+        fallbackReads.increment();
+        return PRIMARY;
+    }
+}
@@ -0,0 +1,250 @@
+package com.spotifywrapped.spotify_wrapped_clone.dbaccess;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gemeinsamer Metadaten-Katalog für Tracks, Artists und Alben (catalog_*), nach Spotify-ID.
+ * – Nutzerbezogene Daten speichern nur IDs; Namen und Bilder stehen genau einmal hier.
+ * – Listen (Artists, Genres, Bildgrößen) werden als JSON-Text gespeichert.
+ */
+@Repository
+@Transactional
+public class SpotifyCatalogDBaccess {
+
+    private static final Logger log = LoggerFactory.getLogger(SpotifyCatalogDBaccess.class);
+
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() { };
+    private static final TypeReference<List<CatalogImage>> IMAGE_LIST = new TypeReference<>() { };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public SpotifyCatalogDBaccess(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    public Map<String, CatalogTrack> findTracks(Collection<String> ids) {
+        Map<String, CatalogTrack> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        jdbcTemplate.query(
+                "SELECT id, name, artist_ids, artist_names, album_id, image_url, duration_ms " +
+                        "FROM catalog_tracks WHERE id IN (" + placeholders(ids.size()) + ")",
+                rs -> {
+                    CatalogTrack track = new CatalogTrack(
+                            rs.getString("id"),
+                            rs.getString("name"),
+                            readJson(rs.getString("artist_ids"), STRING_LIST),
+                            readJson(rs.getString("artist_names"), STRING_LIST),
+                            rs.getString("album_id"),
+                            rs.getString("image_url"),
+                            (Integer) rs.getObject("duration_ms", Integer.class)
+                    );
+                    result.put(track.id(), track);
+                },
+                ids.toArray()
+        );
+        return result;
+    }
+
+    public Map<String, CatalogArtist> findArtists(Collection<String> ids) {
+        Map<String, CatalogArtist> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        jdbcTemplate.query(
+                "SELECT id, name, genres, image_url FROM catalog_artists WHERE id IN (" + placeholders(ids.size()) + ")",
+                rs -> {
+                    CatalogArtist artist = new CatalogArtist(
+                            rs.getString("id"),
+                            rs.getString("name"),
+                            readJson(rs.getString("genres"), STRING_LIST),
+                            rs.getString("image_url")
+                    );
+                    result.put(artist.id(), artist);
+                },
+                ids.toArray()
+        );
+        return result;
+    }
+
+    public Map<String, CatalogAlbum> findAlbums(Collection<String> ids) {
+        Map<String, CatalogAlbum> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        jdbcTemplate.query(
+                "SELECT id, name, image_url, images FROM catalog_albums WHERE id IN (" + placeholders(ids.size()) + ")",
+                rs -> {
+                    CatalogAlbum album = new CatalogAlbum(
+                            rs.getString("id"),
+                            rs.getString("name"),
+                            rs.getString("image_url"),
+                            readJson(rs.getString("images"), IMAGE_LIST)
+                    );
+                    result.put(album.id(), album);
+                },
+                ids.toArray()
+        );
+        return result;
+    }
+
+    public void saveTracks(List<CatalogTrack> tracks) {
+        upsert(tracks,
+                "UPDATE catalog_tracks SET name = ?, artist_ids = ?, artist_names = ?, album_id = ?, image_url = ?, " +
+                        "duration_ms = ?, fetched_at = CURRENT_TIMESTAMP WHERE id = ?",
+                "INSERT INTO catalog_tracks (name, artist_ids, artist_names, album_id, image_url, duration_ms, id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                (ps, track) -> {
+                    ps.setString(1, track.name());
+                    ps.setString(2, writeJson(track.artistIds()));
+                    ps.setString(3, writeJson(track.artistNames()));
+                    ps.setString(4, track.albumId());
+                    ps.setString(5, track.imageUrl());
+                    ps.setObject(6, track.durationMs());
+                    ps.setString(7, track.id());
+                });
+    }
+
+    public void saveArtists(List<CatalogArtist> artists) {
+        upsert(artists,
+                "UPDATE catalog_artists SET name = ?, genres = ?, image_url = ?, fetched_at = CURRENT_TIMESTAMP WHERE id = ?",
+                "INSERT INTO catalog_artists (name, genres, image_url, id) VALUES (?, ?, ?, ?)",
+                (ps, artist) -> {
+                    ps.setString(1, artist.name());
+                    ps.setString(2, writeJson(artist.genres()));
+                    ps.setString(3, artist.imageUrl());
+                    ps.setString(4, artist.id());
+                });
+    }
+
+    public void saveAlbums(List<CatalogAlbum> albums) {
+        upsert(albums,
+                "UPDATE catalog_albums SET name = ?, image_url = ?, images = ?, fetched_at = CURRENT_TIMESTAMP WHERE id = ?",
+                "INSERT INTO catalog_albums (name, image_url, images, id) VALUES (?, ?, ?, ?)",
+                (ps, album) -> {
+                    ps.setString(1, album.name());
+                    ps.setString(2, album.imageUrl());
+                    ps.setString(3, writeJson(album.images()));
+                    ps.setString(4, album.id());
+                });
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    /**
+     * Portables Upsert wie bei den Rollups: erst per Batch aktualisieren, dann die fehlenden Zeilen einfügen.
+     * – UPDATE und INSERT nutzen dieselbe Parameter-Reihenfolge (ID zuletzt).
+     * – Hat eine andere Instanz dieselbe ID gleichzeitig eingefügt, scheitert der ganze INSERT-Batch (mehrzeiliges INSERT
+     *   durch rewriteBatchedStatements): die Zeilen werden dann einzeln nachgezogen, erst UPDATE, sonst INSERT.
+     */
+    private <T> void upsert(
+            List<T> items,
+            String updateSql,
+            String insertSql,
+            ParameterizedPreparedStatementSetter<T> setter
+    ) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        int[][] updated = jdbcTemplate.batchUpdate(updateSql, items, items.size(), setter);
+
+        List<T> missing = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (updated[0][i] == 0) {
+                missing.add(items.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(insertSql, missing, missing.size(), setter);
+        } catch (DuplicateKeyException ex) {
+            log.debug("Catalog rows were inserted concurrently, retrying row by row: {}", ex.getMessage());
+            missing.forEach(item -> upsertOne(item, updateSql, insertSql, setter));
+        }
+    }
+
+    private <T> void upsertOne(T item, String updateSql, String insertSql, ParameterizedPreparedStatementSetter<T> setter) {
+        if (jdbcTemplate.update(updateSql, ps -> setter.setValues(ps, item)) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(insertSql, ps -> setter.setValues(ps, item));
+        } catch (DuplicateKeyException ex) {
+            log.debug("Catalog row was inserted concurrently: {}", ex.getMessage());
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private String writeJson(List<?> values) {
+        if (values == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(values);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize catalog list", ex);
+        }
+    }
+
+    private <T> List<T> readJson(String json, TypeReference<List<T>> type) {
+        if (json == null) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to read catalog list", ex);
+        }
+    }
+
+    public record CatalogTrack(
+            String id,
+            String name,
+            List<String> artistIds,
+            List<String> artistNames,
+            String albumId,
+            String imageUrl,
+            Integer durationMs
+    ) { }
+
+    public record CatalogArtist(String id, String name, List<String> genres, String imageUrl) { }
+
+    /**
+     * {@code imageUrl} ist das größte Bild; {@code images} enthält alle Größen, die Spotify anbietet.
+     */
+    public record CatalogAlbum(String id, String name, String imageUrl, List<CatalogImage> images) { }
+
+    public record CatalogImage(String url, Integer width, Integer height) { }
+}
@@ -2,31 +2,110 @@ package com.spotifywrapped.spotify_wrapped_clone.dbaccess;
 
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.SpotifyToken;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Repository
 @Transactional
 public class SpotifyTokenDBaccess {
 
+    private static final String TOKEN_BY_USER_REGION = "spotify-token-by-user";
+
+    private static final String UPDATE_RE_ENCRYPTED =
+            "UPDATE spotify_tokens SET " +
+                    "refresh_token_enc = ?, refresh_token = NULL, access_token_enc = ?, access_token = NULL, key_version = ? " +
+                    "WHERE id = ? AND key_version = ? AND ";
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    private final JdbcTemplate jdbcTemplate;
+
+    public SpotifyTokenDBaccess(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Über den Query-Cache (Region spotify-token-by-user): Hibernate verwirft das Ergebnis bei jedem Schreibzugriff
+     * auf spotify_tokens, die Entity selbst kommt aus der Region spotify-tokens.
+     * getResultList statt getResultStream: Streams laufen über Scrolling und umgehen den Query-Cache.
+     * readOnly (→ Replica) gilt nur für Aufrufe von außen; createOrUpdateToken liest in seiner eigenen Transaktion.
+     */
+    @Transactional(readOnly = true)
     public SpotifyToken findByUserId(Long userId) {
         return entityManager.createQuery(
                         "SELECT t FROM SpotifyToken t WHERE t.user.id = :userId",
                         SpotifyToken.class)
                 .setParameter("userId", userId)
-                .getResultStream()
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, TOKEN_BY_USER_REGION)
+                .getResultList()
+                .stream()
                 .findFirst()
                 .orElse(null);
     }
 
-    public SpotifyToken createOrUpdateToken(Long userId, String refreshToken, String accessToken, Instant accessTokenExpiresAt) {
+    /**
+     * Wie findByUserId, aber am Second-Level-Cache und am Replica vorbei (Schreibtransaktion → Primary).
+     * Für den Refresh bei mehreren Instanzen: der Cache dieser JVM weiß nichts von Refreshes anderer Instanzen.
+     * Der gelesene Stand ersetzt den gecachten Eintrag.
+     */
+    public SpotifyToken findCurrentByUserId(Long userId) {
+        return entityManager.createQuery(
+                        "SELECT t FROM SpotifyToken t WHERE t.user.id = :userId",
+                        SpotifyToken.class)
+                .setParameter("userId", userId)
+                .setHint(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS)
+                .setHint(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.REFRESH)
+                .getResultList()
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * User-IDs mit Refresh Token, deren Access Token vor {@code cutoff} abläuft.
+     * Von Spotify abgelehnte Refresh Tokens (refresh_failed_at) bleiben außen vor, sonst käme jeder widerrufene Zugriff
+     * in jedem Lauf wieder dran.
+     * Keyset-Pagination über die User-ID: nächste Seite mit der letzten ID als {@code afterUserId}.
+     */
+    public List<Long> findUserIdsWithAccessTokenExpiringBefore(Instant cutoff, Long afterUserId, int limit) {
+        return entityManager.createQuery(
+                        "SELECT t.user.id FROM SpotifyToken t " +
+                                "WHERE (t.refreshToken IS NOT NULL OR t.refreshTokenCiphertext IS NOT NULL) " +
+                                "AND (t.accessTokenExpiresAt IS NULL OR t.accessTokenExpiresAt < :cutoff) " +
+                                "AND t.refreshFailedAt IS NULL " +
+                                "AND t.user.id > :afterUserId " +
+                                "ORDER BY t.user.id",
+                        Long.class)
+                .setParameter("cutoff", cutoff)
+                .setParameter("afterUserId", afterUserId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Speichert verschlüsselte Tokens (AES-GCM-Envelopes mit Schlüsselversion {@code keyVersion}).
+     * – null lässt den bisherigen Wert stehen; ein neuer Wert ersetzt auch den Altbestand in der String-Spalte.
+     * – key_version ist die älteste noch enthaltene Version, damit der Re-Encryption-Job die Zeile findet.
+     * – Ein neuer Token hebt eine frühere Ablehnung durch Spotify auf (refresh_failed_at).
+     */
+    public SpotifyToken createOrUpdateToken(Long userId, byte[] refreshToken, byte[] accessToken, int keyVersion,
+                                            Instant accessTokenExpiresAt) {
         SpotifyToken token = findByUserId(userId);
         if (token == null) {
             User user = entityManager.find(User.class, userId);
@@ -36,19 +115,165 @@ public class SpotifyTokenDBaccess {
             token = new SpotifyToken();
             token.setUser(user);
             entityManager.persist(token);
-            user.setSpotifyToken(token);
         }
 
+        boolean keepsOlderValues = (refreshToken == null && token.hasRefreshToken())
+                || (accessToken == null && token.hasAccessToken());
+        token.setKeyVersion(keepsOlderValues ? Math.min(token.getKeyVersion(), keyVersion) : keyVersion);
+
         if (refreshToken != null) {
-            token.setRefreshToken(refreshToken);
+            token.setRefreshTokenCiphertext(refreshToken);
+            token.setRefreshToken(null);
         }
         if (accessToken != null) {
-            token.setAccessToken(accessToken);
+            token.setAccessTokenCiphertext(accessToken);
+            token.setAccessToken(null);
         }
         if (accessTokenExpiresAt != null) {
             token.setAccessTokenExpiresAt(accessTokenExpiresAt);
         }
+        if (refreshToken != null || accessToken != null) {
+            token.setRefreshFailedAt(null);
+        }
 
         return token;
     }
+
+    /**
+     * Spotify hat den Refresh Token abgelehnt: der Hintergrund-Refresh lässt die Zeile aus,
+     * bis {@link #createOrUpdateToken} wieder einen Token speichert.
+     */
+    public void markRefreshRejected(Long userId) {
+        SpotifyToken token = findCurrentByUserId(userId);
+        if (token != null) {
+            token.setRefreshFailedAt(Instant.now());
+        }
+    }
+
+    /**
+     * Zeilen mit genau dieser Schlüsselversion für den Re-Encryption-Job.
+     * Keyset-Pagination über die ID (Index auf key_version, id): nächste Seite mit der letzten ID als {@code afterId}.
+     * Per JDBC wie {@link #updateReEncryptedTokens}, damit die Ablaufzeit beim Vergleich genauso gebunden wird wie gelesen.
+     */
+    public List<StoredTokenCiphertext> findTokensWithKeyVersion(int keyVersion, Long afterId, int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, refresh_token_enc, refresh_token, access_token_enc, access_token, access_token_expires_at " +
+                        "FROM spotify_tokens " +
+                        "WHERE key_version = ? AND id > ? " +
+                        "ORDER BY id " +
+                        "LIMIT ?",
+                (rs, rowNum) -> {
+                    Timestamp expiresAt = rs.getTimestamp("access_token_expires_at");
+                    return new StoredTokenCiphertext(
+                            rs.getLong("id"),
+                            keyVersion,
+                            rs.getBytes("refresh_token_enc"),
+                            rs.getString("refresh_token"),
+                            rs.getBytes("access_token_enc"),
+                            rs.getString("access_token"),
+                            expiresAt != null ? expiresAt.toInstant() : null
+                    );
+                },
+                keyVersion, afterId, limit
+        );
+    }
+
+    /**
+     * Schreibt eine Seite umgeschlüsselter Tokens in einer Transaktion.
+     * Eine Zeile wird nur geändert, wenn Schlüsselversion und Ablaufzeit noch dem gelesenen Stand entsprechen;
+     * sonst hat ein Refresh sie inzwischen neu geschrieben und das Ergebnis des Jobs wäre veraltet.
+     * – Ein JDBC-Batch pro Seite (je einer für Zeilen mit und ohne Ablaufzeit) statt eines Bulk-UPDATEs pro Zeile;
+     *   JPQL-Bulk-UPDATEs würden jedes Mal die ganze Region spotify-tokens und den Query-Cache verwerfen.
+     * – Aus dem Second-Level-Cache fallen nach dem Commit nur die geänderten Zeilen. Die gecachten Lookups
+     *   (spotify-token-by-user) halten nur die Token-ID (@QueryCacheLayout an SpotifyToken), die sich nicht ändert;
+     *   die Entity wird danach neu geladen.
+     *
+     * @return Anzahl tatsächlich geänderter Zeilen
+     */
+    public int updateReEncryptedTokens(List<ReEncryptedToken> tokens) {
+        List<ReEncryptedToken> withExpiry = new ArrayList<>();
+        List<ReEncryptedToken> withoutExpiry = new ArrayList<>();
+        for (ReEncryptedToken token : tokens) {
+            (token.expectedExpiresAt() != null ? withExpiry : withoutExpiry).add(token);
+        }
+
+        List<Long> updatedIds = new ArrayList<>(tokens.size());
+        updateBatch(withExpiry, "access_token_expires_at = ?", updatedIds);
+        updateBatch(withoutExpiry, "access_token_expires_at IS NULL", updatedIds);
+
+        evictAfterCompletion(updatedIds);
+        return updatedIds.size();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private void updateBatch(List<ReEncryptedToken> tokens, String expiryCondition, List<Long> updatedIds) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        int[][] updated = jdbcTemplate.batchUpdate(UPDATE_RE_ENCRYPTED + expiryCondition, tokens, tokens.size(), (ps, token) -> {
+            ps.setBytes(1, token.refreshToken());
+            ps.setBytes(2, token.accessToken());
+            ps.setInt(3, token.keyVersion());
+            ps.setLong(4, token.id());
+            ps.setInt(5, token.expectedKeyVersion());
+            if (token.expectedExpiresAt() != null) {
+                ps.setTimestamp(6, Timestamp.from(token.expectedExpiresAt()));
+            }
+        });
+
+        for (int i = 0; i < tokens.size(); i++) {
+            if (updated[0][i] > 0) {
+                updatedIds.add(tokens.get(i).id());
+            }
+        }
+    }
+
+    /**
+     * Verwirft die Einträge erst nach dem Commit: ein paralleler Leser würde sonst noch den alten Stand neu cachen.
+     */
+    private void evictAfterCompletion(List<Long> tokenIds) {
+        if (tokenIds.isEmpty()) {
+            return;
+        }
+
+        Runnable evict = () -> tokenIds.forEach(id ->
+                entityManager.getEntityManagerFactory().getCache().evict(SpotifyToken.class, id));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evict.run();
+            }
+        });
+    }
+
+    /**
+     * Gespeicherter Stand einer Zeile: je Token entweder Envelope oder Altbestand (oder beides null).
+     */
+    public record StoredTokenCiphertext(
+            Long id,
+            int keyVersion,
+            byte[] refreshToken,
+            String legacyRefreshToken,
+            byte[] accessToken,
+            String legacyAccessToken,
+            Instant accessTokenExpiresAt
+    ) { }
+
+    public record ReEncryptedToken(
+            Long id,
+            int expectedKeyVersion,
+            Instant expectedExpiresAt,
+            byte[] refreshToken,
+            byte[] accessToken,
+            int keyVersion
+    ) { }
 }
@@ -0,0 +1,46 @@
+package com.spotifywrapped.spotify_wrapped_clone.dbaccess;
+
+import jakarta.transaction.Transactional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+/**
+ * Refresh-Lease auf der spotify_tokens-Zeile eines Nutzers, damit bei mehreren Instanzen nur eine Spotify aufruft.
+ * – Erwerben ist ein bedingtes UPDATE: frei, abgelaufen oder schon vom selben Owner gehalten → genau eine Instanz gewinnt.
+ * – Zeit kommt von der Datenbank (CURRENT_TIMESTAMP), damit Uhrabweichungen zwischen Pods keine Rolle spielen.
+ * – Per JDBC statt JPA: die Lease-Spalten sind nicht gemappt, ein Lease ändert daher nichts am Second-Level-Cache.
+ */
+@Repository
+@Transactional
+public class SpotifyTokenLeaseDBaccess {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SpotifyTokenLeaseDBaccess(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return true, wenn {@code owner} die Lease jetzt hält; false, wenn eine andere Instanz sie hat oder kein Token existiert
+     */
+    public boolean tryAcquire(Long userId, String owner, Duration leaseTime) {
+        return jdbcTemplate.update(
+                "UPDATE spotify_tokens " +
+                        "SET refresh_lease_owner = ?, refresh_lease_until = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP(3)) " +
+                        "WHERE user_id = ? " +
+                        "AND (refresh_lease_until IS NULL OR refresh_lease_until < CURRENT_TIMESTAMP(3) OR refresh_lease_owner = ?)",
+                owner, Math.max(1, leaseTime.toSeconds()), userId, owner) == 1;
+    }
+
+    /**
+     * Gibt die Lease frei, sofern sie noch {@code owner} gehört (nach Ablauf kann sie schon übernommen sein).
+     */
+    public void release(Long userId, String owner) {
+        jdbcTemplate.update(
+                "UPDATE spotify_tokens SET refresh_lease_owner = NULL, refresh_lease_until = NULL " +
+                        "WHERE user_id = ? AND refresh_lease_owner = ?",
+                userId, owner);
+    }
+}
@@ -1,12 +1,18 @@
 package com.spotifywrapped.spotify_wrapped_clone.dbaccess;
 
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.transaction.Transactional;
+import org.hibernate.jpa.SpecHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.SpotifyToken;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
 
+import java.util.Map;
+
 @Repository
 @Transactional
 public class UserDBaccess {
@@ -19,12 +25,23 @@ public class UserDBaccess {
         return user;
     }
 
+    /**
+     * Bewusst ohne readOnly, also auch bei konfiguriertem Replica vom Primary (siehe ReadReplicaConfig):
+     * der Lookup folgt oft direkt auf einen Schreibzugriff (Registrierung, Spotify-Callback), evtl. auf einer
+     * anderen Instanz, und muss ihn sehen. Per ID kommt der User meist ohnehin aus dem Second-Level-Cache.
+     */
     public User findUserById(Long id) {
         return entityManager.find(User.class, id);
     }
 
+    /**
+     * Liest den User an der Datenbank vorbei am Second-Level-Cache (der ist pro Instanz und kann veraltet sein).
+     * – Gesetzte Felder werden übernommen, die übrigen bleiben wie in der Datenbank.
+     * – Ändert eine andere Instanz den User gleichzeitig, scheitert der Commit an der Version
+     *   (ObjectOptimisticLockingFailureException) statt deren Änderung zu überschreiben.
+     */
     public User updateUser(Long id, User userUpdates) {
-        User existingUser = entityManager.find(User.class, id);
+        User existingUser = findCurrent(id);
 
         if (existingUser == null) {
             return null;
@@ -45,24 +62,91 @@ public class UserDBaccess {
         return existingUser;
     }
 
+    /**
+     * Tokens über den EntityManager statt per ON DELETE CASCADE löschen: nur so verwirft Hibernate auch
+     * den gecachten Token und die Ergebnisse von findByUserId im Second-Level-Cache.
+     */
     public boolean deleteUser(Long id) {
-        User existingUser = entityManager.find(User.class, id);
+        // Aktuelle Version aus der Datenbank, sonst scheitert remove an einer veralteten gecachten Version
+        User existingUser = findCurrent(id);
 
         if (existingUser == null) {
             return false;
         }
 
+        entityManager.createQuery("SELECT t FROM SpotifyToken t WHERE t.user = :user", SpotifyToken.class)
+                .setParameter("user", existingUser)
+                .getResultStream()
+                .forEach(entityManager::remove);
         entityManager.remove(existingUser);
         return true;
     }
 
+    /**
+     * Login-Lookup ohne OR: die Form des Identifiers wählt genau eine Spalte mit Unique-Index.
+     * – Mit '@' zuerst E-Mail; nur wenn dort nichts gefunden wird, noch der Username (Altbestand mit '@').
+     * – Groß-/Kleinschreibung spielt keine Rolle.
+     * – Authentifizierung: immer vom Primary, nie vom Replica – ein gerade registrierter User oder ein
+     *   geändertes Passwort muss beim nächsten Login sofort gelten.
+     */
     public User findByUsernameOrEmail(String identifier) {
+        if (identifier == null) {
+            return null;
+        }
+        String normalized = User.normalize(identifier);
+        if (identifier.indexOf('@') >= 0) {
+            User byEmail = findByNormalizedColumn("emailNormalized", normalized);
+            if (byEmail != null) {
+                return byEmail;
+            }
+        }
+        return findByNormalizedColumn("usernameNormalized", normalized);
+    }
+
+    /**
+     * Duplikatprüfung für Registrierung und Update; excludeUserId ist der User selbst (oder null).
+     */
+    public boolean isUsernameTaken(String username, Long excludeUserId) {
+        return isTaken("usernameNormalized", User.normalize(username), excludeUserId);
+    }
+
+    public boolean isEmailTaken(String email, Long excludeUserId) {
+        return isTaken("emailNormalized", User.normalize(email), excludeUserId);
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private User findCurrent(Long id) {
+        return entityManager.find(User.class, id, Map.of(
+                SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS,
+                SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.REFRESH));
+    }
+
+    // column ist immer eine der Konstanten oben, nie Nutzereingabe
+    private User findByNormalizedColumn(String column, String normalized) {
         return entityManager.createQuery(
-                        "SELECT u FROM User u WHERE u.username = :identifier OR u.email = :identifier",
+                        "SELECT u FROM User u WHERE u." + column + " = :value",
                         User.class)
-                .setParameter("identifier", identifier)
+                .setParameter("value", normalized)
                 .getResultStream()
                 .findFirst()
                 .orElse(null);
     }
-}
\ No newline at end of file
+
+    private boolean isTaken(String column, String normalized, Long excludeUserId) {
+        if (normalized == null) {
+            return false;
+        }
+        return !entityManager.createQuery(
+                        "SELECT u.id FROM User u WHERE u." + column + " = :value",
+                        Long.class)
+                .setParameter("value", normalized)
+                .getResultStream()
+                .filter(id -> !id.equals(excludeUserId))
+                .findFirst()
+                .isEmpty();
+    }
+}
@@ -1,11 +1,19 @@
 package com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.CacheLayout;
+import org.hibernate.annotations.QueryCacheLayout;
 
 import java.time.Instant;
 
 @Entity
 @Table(name = "spotify_tokens")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "spotify-tokens")
+// Query-Cache (spotify-token-by-user) hält nur die ID; die Daten kommen aus spotify-tokens und lassen sich pro Zeile verwerfen
+@QueryCacheLayout(layout = CacheLayout.SHALLOW)
 public class SpotifyToken {
 
     @Id
@@ -17,15 +25,31 @@ public class SpotifyToken {
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
 
+    // Altbestand (AES-CBC, hex): wird nur noch gelesen und beim Umschlüsseln geleert
     @Column(name = "refresh_token", length = 1024)
     private String refreshToken;
 
     @Column(name = "access_token", length = 1024)
     private String accessToken;
 
+    // AES-GCM-Envelopes, Schlüsselversion im ersten Byte
+    @Column(name = "refresh_token_enc", length = 1024)
+    private byte[] refreshTokenCiphertext;
+
+    @Column(name = "access_token_enc", length = 1024)
+    private byte[] accessTokenCiphertext;
+
+    // Älteste Schlüsselversion in dieser Zeile, 0 = Altbestand
+    @Column(name = "key_version", nullable = false)
+    private int keyVersion;
+
     @Column(name = "access_token_expires_at")
     private Instant accessTokenExpiresAt;
 
+    // Spotify hat den Refresh Token abgelehnt; null, sobald wieder ein Token gespeichert wird
+    @Column(name = "refresh_failed_at")
+    private Instant refreshFailedAt;
+
     public Long getId() {
         return id;
     }
@@ -54,6 +78,38 @@ public class SpotifyToken {
         this.accessToken = accessToken;
     }
 
+    public byte[] getRefreshTokenCiphertext() {
+        return refreshTokenCiphertext;
+    }
+
+    public void setRefreshTokenCiphertext(byte[] refreshTokenCiphertext) {
+        this.refreshTokenCiphertext = refreshTokenCiphertext;
+    }
+
+    public byte[] getAccessTokenCiphertext() {
+        return accessTokenCiphertext;
+    }
+
+    public void setAccessTokenCiphertext(byte[] accessTokenCiphertext) {
+        this.accessTokenCiphertext = accessTokenCiphertext;
+    }
+
+    public int getKeyVersion() {
+        return keyVersion;
+    }
+
+    public void setKeyVersion(int keyVersion) {
+        this.keyVersion = keyVersion;
+    }
+
+    public boolean hasRefreshToken() {
+        return refreshToken != null || refreshTokenCiphertext != null;
+    }
+
+    public boolean hasAccessToken() {
+        return accessToken != null || accessTokenCiphertext != null;
+    }
+
     public Instant getAccessTokenExpiresAt() {
         return accessTokenExpiresAt;
     }
@@ -61,4 +117,12 @@ public class SpotifyToken {
     public void setAccessTokenExpiresAt(Instant accessTokenExpiresAt) {
         this.accessTokenExpiresAt = accessTokenExpiresAt;
     }
+
+    public Instant getRefreshFailedAt() {
+        return refreshFailedAt;
+    }
+
+    public void setRefreshFailedAt(Instant refreshFailedAt) {
+        this.refreshFailedAt = refreshFailedAt;
+    }
 }
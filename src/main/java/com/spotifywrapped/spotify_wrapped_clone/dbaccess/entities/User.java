@@ -1,12 +1,17 @@
 package com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.Instant;
+import java.util.Locale;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,13 +27,22 @@ public class User {
     @Column(name = "password", nullable = false)
     private String password;
 
-    @OneToOne(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
-    private SpotifyToken spotifyToken;
+    // Login-Schlüssel mit Unique-Index; werden von den Settern mitgeführt
+    @Column(name = "username_normalized", nullable = false, length = 100)
+    private String usernameNormalized;
+
+    @Column(name = "email_normalized", nullable = false, length = 150)
+    private String emailNormalized;
 
     @CreationTimestamp
     @Column(name = "created_at", updatable = false, nullable = false)
     private Instant createdAt;
 
+    // Optimistisches Locking: der Second-Level-Cache ist pro Instanz, siehe hibernate-jcache.conf
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     public Long getId() {
         return id;
     }
@@ -43,6 +57,7 @@ public class User {
 
     public void setUsername(String username) {
         this.username = username;
+        this.usernameNormalized = normalize(username);
     }
 
     public String getEmail() {
@@ -51,6 +66,15 @@ public class User {
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailNormalized = normalize(email);
+    }
+
+    public String getUsernameNormalized() {
+        return usernameNormalized;
+    }
+
+    public String getEmailNormalized() {
+        return emailNormalized;
     }
 
     public String getPassword() {
@@ -65,11 +89,14 @@ public class User {
         return createdAt;
     }
 
-    public SpotifyToken getSpotifyToken() {
-        return spotifyToken;
+    public long getVersion() {
+        return version;
     }
 
-    public void setSpotifyToken(SpotifyToken spotifyToken) {
-        this.spotifyToken = spotifyToken;
+    /**
+     * Schreibweise der Lookup-Spalten (wie LOWER() in der Migration); null bleibt null.
+     */
+    public static String normalize(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
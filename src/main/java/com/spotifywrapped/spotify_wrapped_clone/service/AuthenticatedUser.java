@@ -0,0 +1,7 @@
+package com.spotifywrapped.spotify_wrapped_clone.service;
+
+/**
+ * Leichtgewichtiger Principal aus den Claims des Access Tokens.
+ * – Enthält nur, was im JWT steht; die User-Entity wird nur geladen, wenn ein Handler sie wirklich braucht.
+ */
+public record AuthenticatedUser(Long id, String username, String email) { }
@@ -4,18 +4,50 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.encrypt.AesBytesEncryptor;
+import org.springframework.security.crypto.encrypt.AesBytesEncryptor.CipherAlgorithm;
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
 import org.springframework.security.crypto.encrypt.Encryptors;
 import org.springframework.security.crypto.encrypt.TextEncryptor;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 public class CryptoConfig {
 
+    // 96-Bit-IV, Standardlänge für GCM
+    private static final int GCM_IV_LENGTH = 12;
+
+    /**
+     * Hashes tragen ihr Verfahren als Präfix ({bcrypt}…), damit Kosten oder Algorithmus geändert werden können:
+     * – Neue Hashes nutzen app.crypto.password-algorithm mit app.crypto.bcrypt-strength.
+     * – Alte Hashes ohne Präfix (vor der Umstellung) werden weiter als BCrypt geprüft.
+     * – {@link PasswordEncoder#upgradeEncoding} meldet veraltete Hashes; der Login hasht sie dann neu.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${app.crypto.password-algorithm:bcrypt}") String algorithm,
+            @Value("${app.crypto.bcrypt-strength:10}") int bcryptStrength) {
+
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", new BCryptPasswordEncoder(bcryptStrength),
+                "pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8()
+        );
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return passwordEncoder;
     }
 
+    /**
+     * Altes Format (AES-CBC, hex): nur noch zum Lesen von Tokens, die noch nicht umgeschlüsselt wurden.
+     */
     @Bean
     public TextEncryptor textEncryptor(
             @Value("${app.crypto.password}") String cryptoPassword,
@@ -23,4 +55,41 @@ public class CryptoConfig {
 
         return Encryptors.text(cryptoPassword, cryptoSalt);
     }
+
+    /**
+     * Schlüssel für gespeicherte Spotify-Tokens (AES-256-GCM), je Version.
+     * – Version 1 wird per PBKDF2 aus app.crypto.password/salt abgeleitet, damit ohne neue Konfiguration alles läuft.
+     * – Weitere Versionen: app.crypto.token-keys=2:&lt;Base64, 32 Byte&gt;,3:…; verschlüsselt wird mit
+     *   app.crypto.token-key-version, die übrigen werden nur noch zum Lesen und Umschlüsseln gebraucht.
+     */
+    @Bean
+    public VersionedTokenEncryptor tokenEncryptor(
+            @Value("${app.crypto.password}") String cryptoPassword,
+            @Value("${app.crypto.salt}") String cryptoSalt,
+            @Value("${app.crypto.token-keys:}") String tokenKeys,
+            @Value("${app.crypto.token-key-version:1}") int activeVersion) {
+
+        Map<Integer, BytesEncryptor> encryptors = new HashMap<>();
+        encryptors.put(1, new AesBytesEncryptor(
+                cryptoPassword, cryptoSalt, KeyGenerators.secureRandom(GCM_IV_LENGTH), CipherAlgorithm.GCM));
+
+        for (String entry : tokenKeys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("app.crypto.token-keys entries must look like <version>:<base64 key>");
+            }
+            int version = Integer.parseInt(entry.substring(0, separator).trim());
+            byte[] key = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+            if (key.length != 32) {
+                throw new IllegalArgumentException("Token key version " + version + " must be 32 bytes (AES-256)");
+            }
+            encryptors.put(version, new AesBytesEncryptor(
+                    new SecretKeySpec(key, "AES"), KeyGenerators.secureRandom(GCM_IV_LENGTH), CipherAlgorithm.GCM));
+        }
+
+        return new VersionedTokenEncryptor(encryptors, activeVersion);
+    }
 }
@@ -0,0 +1,33 @@
+package com.spotifywrapped.spotify_wrapped_clone.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(FlywayConfig.class);
+
+    /**
+     * Migrationen beim Start abschaltbar (app.flyway.migrate-on-startup=false):
+     * – wenn sie vor dem Rollout als eigener Schritt laufen, oder für den AppCDS-Trainingslauf ohne Datenbank.
+     * – Als Strategy statt spring.flyway.enabled: mit Spring AOT stehen die Bedingungen der Autokonfiguration
+     *   schon zur Build-Zeit fest, die Strategy wird erst beim Start ausgewertet.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${app.flyway.migrate-on-startup:true}") boolean migrateOnStartup) {
+
+        return flyway -> {
+            if (migrateOnStartup) {
+                flyway.migrate();
+            } else {
+                log.info("Flyway migrations skipped on startup (app.flyway.migrate-on-startup=false)");
+            }
+        };
+    }
+}
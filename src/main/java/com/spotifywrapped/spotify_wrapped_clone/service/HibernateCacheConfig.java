@@ -0,0 +1,35 @@
+package com.spotifywrapped.spotify_wrapped_clone.service;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+
+@Configuration
+public class HibernateCacheConfig {
+
+    /**
+     * CacheManager des Second-Level-Cache mit den Regionen aus hibernate-jcache.conf.
+     * – Nicht per hibernate.javax.cache.uri: Hibernate macht daraus eine URL, im Spring-Boot-Jar eine jar:-URL,
+     *   die Caffeine nicht lesen kann – die Regionen fehlen dann und der Start scheitert (missing_cache_strategy=fail).
+     * – Eine classpath:-URI lädt Caffeine selbst, aus dem Verzeichnis wie aus dem Jar.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${app.hibernate.cache-config:classpath:hibernate-jcache.conf}") URI cacheConfig) {
+
+        return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(cacheConfig, HibernateCacheConfig.class.getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+}
@@ -1,15 +1,23 @@
 package com.spotifywrapped.spotify_wrapped_clone.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
@@ -17,6 +25,8 @@ import java.util.Date;
 @Service
 public class JwtService {
 
+    private static final String CLAIM_USERNAME = "username";
+    private static final String CLAIM_EMAIL = "email";
     private static final String CLAIM_PURPOSE = "purpose";
     private static final String PURPOSE_SPOTIFY_STATE = "spotify_state";
 
@@ -24,22 +34,39 @@ public class JwtService {
     private final Duration accessTokenExpiry;
     private final Duration spotifyStateExpiry;
 
+    // Thread-safe und wiederverwendbar – muss nicht pro Aufruf gebaut werden
+    private final JwtParser jwtParser;
+
+    // Bereits verifizierte Tokens (Schlüssel: SHA-256 des Tokens), gültig bis zu ihrem exp-Claim
+    private final Cache<ByteBuffer, Claims> verifiedTokens;
+
     public JwtService(
             @Value("${app.jwt.secret}") String secret,
             @Value("${app.jwt.expiration}") Duration accessTokenExpiry,
-            @Value("${app.jwt.spotify-state-expiration:10m}") Duration spotifyStateExpiry
+            @Value("${app.jwt.spotify-state-expiration:10m}") Duration spotifyStateExpiry,
+            @Value("${app.jwt.verified-cache-size:10000}") long verifiedCacheSize
     ) {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.accessTokenExpiry = accessTokenExpiry;
         this.spotifyStateExpiry = spotifyStateExpiry;
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokens = verifiedCacheSize > 0
+                ? Caffeine.newBuilder()
+                        .maximumSize(verifiedCacheSize)
+                        .expireAfter(new ClaimsExpiry())
+                        .recordStats()
+                        .build()
+                : null;
     }
 
     public String generateAccessToken(User user) {
         Instant now = Instant.now();
         return Jwts.builder()
                 .subject(user.getId().toString())
-                .claim("username", user.getUsername())
-                .claim("email", user.getEmail())
+                .claim(CLAIM_USERNAME, user.getUsername())
+                .claim(CLAIM_EMAIL, user.getEmail())
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(now.plus(accessTokenExpiry)))
                 .signWith(secretKey)
@@ -70,6 +97,27 @@ public class JwtService {
         }
     }
 
+    /**
+     * Baut den Principal direkt aus den verifizierten Claims – ohne Datenbankzugriff.
+     * – State-Tokens des Spotify-Logins (purpose-Claim) werden nicht als Access Token akzeptiert.
+     */
+    public AuthenticatedUser parseAccessToken(String token) {
+        Claims claims = parseClaims(token);
+        if (claims == null || claims.get(CLAIM_PURPOSE) != null) {
+            return null;
+        }
+
+        try {
+            return new AuthenticatedUser(
+                    Long.parseLong(claims.getSubject()),
+                    claims.get(CLAIM_USERNAME, String.class),
+                    claims.get(CLAIM_EMAIL, String.class)
+            );
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
     public Long parseSpotifyStateUserId(String token) {
         Claims claims = parseClaims(token);
         if (claims == null) {
@@ -87,19 +135,69 @@ public class JwtService {
         }
     }
 
+    public CacheStats getVerifiedCacheStats() {
+        return verifiedTokens != null ? verifiedTokens.stats() : CacheStats.empty();
+    }
+
     private Claims parseClaims(String token) {
         if (token == null || token.isBlank()) {
             return null;
         }
 
+        if (verifiedTokens == null) {
+            return verify(token);
+        }
+
+        // Wiederholte Requests mit demselben Token sparen HMAC und JSON-Parsing
+        ByteBuffer tokenHash = hash(token);
+        Claims cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = verify(token);
+        if (claims != null && claims.getExpiration() != null) {
+            verifiedTokens.put(tokenHash, claims);
+        }
+        return claims;
+    }
+
+    private Claims verify(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return jwtParser.parseSignedClaims(token).getPayload();
         } catch (JwtException | IllegalArgumentException ex) {
             return null;
         }
     }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /**
+     * Gecachte Claims laufen zum exp-Zeitpunkt des Tokens ab.
+     */
+    private static final class ClaimsExpiry implements Expiry<ByteBuffer, Claims> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer tokenHash, Claims claims, long currentTime) {
+            long millis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return Duration.ofMillis(Math.max(0, millis)).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer tokenHash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer tokenHash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
\ No newline at end of file
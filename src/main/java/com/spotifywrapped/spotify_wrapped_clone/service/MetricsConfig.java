@@ -0,0 +1,248 @@
+package com.spotifywrapped.spotify_wrapped_clone.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ReplicaLagMonitor;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ReplicaRoutingDataSource;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.AlbumImageService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiClient;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCircuitBreakers;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyListeningIngestionService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyRateLimiter;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyResponseCache;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenReEncryptionJob;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenRefreshScheduler;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenService;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Macht die Zähler, die die Services ohnehin führen, als Micrometer-Metriken sichtbar (/actuator/prometheus).
+ * – Latenzen (HTTP-Routen, Spotify-Aufrufe, Token-Refresh, Krypto) messen die Services selbst per Timer;
+ *   Hikari- und Hibernate-Metriken bindet Spring Boot automatisch.
+ * – Hier nur Gauges und Counter über bestehende Getter, damit die Services nichts von Micrometer wissen müssen.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Regionen aus hibernate-jcache.conf: Entities User, SpotifyToken und der Query-Cache von findByUserId
+    private static final List<String> SECOND_LEVEL_CACHE_REGIONS = List.of("users", "spotify-tokens", "spotify-token-by-user");
+
+    @Bean
+    public MeterBinder spotifyResilienceMetrics(SpotifyCircuitBreakers spotifyCircuitBreakers) {
+        return registry -> {
+            TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(spotifyCircuitBreakers.getCircuitBreakerRegistry())
+                    .bindTo(registry);
+            TaggedBulkheadMetrics.ofBulkheadRegistry(spotifyCircuitBreakers.getBulkheadRegistry())
+                    .bindTo(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder spotifyRateLimitMetrics(SpotifyRateLimiter rateLimiter) {
+        return registry -> {
+            Gauge.builder("spotify.rate_limit.waiting", rateLimiter, SpotifyRateLimiter::getWaitingInteractiveCount)
+                    .tag("priority", "INTERACTIVE")
+                    .register(registry);
+            Gauge.builder("spotify.rate_limit.waiting", rateLimiter, SpotifyRateLimiter::getWaitingBackgroundCount)
+                    .tag("priority", "BACKGROUND")
+                    .register(registry);
+            counter(registry, "spotify.rate_limit.throttled", rateLimiter, SpotifyRateLimiter::getThrottleEventCount);
+            counter(registry, "spotify.rate_limit.rejected", rateLimiter, SpotifyRateLimiter::getRejectedCallCount);
+        };
+    }
+
+    @Bean
+    public MeterBinder spotifyConnectionPoolMetrics(SpotifyApiClient apiClient) {
+        return registry -> {
+            Gauge.builder("spotify.http.connections", apiClient, client -> client.getPoolStats().leased())
+                    .tag("state", "leased")
+                    .register(registry);
+            Gauge.builder("spotify.http.connections", apiClient, client -> client.getPoolStats().available())
+                    .tag("state", "available")
+                    .register(registry);
+            Gauge.builder("spotify.http.connections.pending", apiClient, client -> client.getPoolStats().pending())
+                    .register(registry);
+            Gauge.builder("spotify.http.connections.max", apiClient, client -> client.getPoolStats().max())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder spotifyCacheMetrics(
+            SpotifyResponseCache responseCache,
+            SpotifyTokenService tokenService,
+            SpotifyCatalogService catalogService,
+            JwtService jwtService,
+            AlbumImageService albumImageService
+    ) {
+        return registry -> {
+            cacheStats(registry, "spotify-responses", responseCache::getCacheStats);
+            cacheStats(registry, "spotify-tokens", tokenService::getCacheStats);
+            cacheStats(registry, "catalog-tracks", catalogService::getTrackCacheStats);
+            cacheStats(registry, "catalog-artists", catalogService::getArtistCacheStats);
+            cacheStats(registry, "jwt-verified", jwtService::getVerifiedCacheStats);
+
+            counter(registry, "spotify.responses.stale", responseCache, SpotifyResponseCache::getStaleResponseCount);
+
+            Gauge.builder("images.cache.size", albumImageService, AlbumImageService::getCachedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("images.cache.count", albumImageService, AlbumImageService::getCachedImageCount)
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Second-Level-Cache je Region wie die übrigen Caches (cache.gets, cache.puts), mit Präfix "hibernate:",
+     * damit sich "spotify-tokens" nicht mit dem Token-Cache des SpotifyTokenService vermischt.
+     * hibernate-micrometer liefert nur Entity-Regionen, nicht den Query-Cache; Trefferquote als cache.hit_ratio.
+     */
+    @Bean
+    public MeterBinder hibernateSecondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String region : SECOND_LEVEL_CACHE_REGIONS) {
+                String cache = "hibernate:" + region;
+                Supplier<CacheRegionStatistics> stats = () -> statistics.getCacheRegionStatistics(region);
+                FunctionCounter.builder("cache.gets", stats, s -> hitCount(s.get()))
+                        .tag("cache", cache)
+                        .tag("result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("cache.gets", stats, s -> missCount(s.get()))
+                        .tag("cache", cache)
+                        .tag("result", "miss")
+                        .register(registry);
+                FunctionCounter.builder("cache.puts", stats, s -> s.get() == null ? 0 : s.get().getPutCount())
+                        .tag("cache", cache)
+                        .register(registry);
+                Gauge.builder("cache.hit_ratio", stats, s -> hitRatio(s.get()))
+                        .tag("cache", cache)
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Nur mit app.datasource.replica.enabled; Hikari-Metriken beider Pools (pool=primary|replica) kommen von Spring Boot.
+     */
+    @Bean
+    public MeterBinder readReplicaMetrics(
+            ObjectProvider<ReplicaLagMonitor> lagMonitor,
+            ObjectProvider<ReplicaRoutingDataSource> routingDataSource
+    ) {
+        return registry -> {
+            lagMonitor.ifAvailable(monitor -> {
+                Gauge.builder("db.replica.lag", monitor, ReplicaLagMonitor::getLagSeconds)
+                        .baseUnit("seconds")
+                        .register(registry);
+                Gauge.builder("db.replica.usable", monitor, m -> m.isReplicaUsable() ? 1 : 0)
+                        .register(registry);
+            });
+            routingDataSource.ifAvailable(routing -> {
+                counter(registry, "db.replica.reads", "replica", routing, ReplicaRoutingDataSource::getReplicaReadCount);
+                counter(registry, "db.replica.reads", "fallback", routing, ReplicaRoutingDataSource::getFallbackReadCount);
+            });
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(SensitiveDataService sensitiveDataService) {
+        return registry -> {
+            Gauge.builder("crypto.hashing.queue", sensitiveDataService, SensitiveDataService::getHashingQueueSize)
+                    .description("Password hashing tasks waiting for a hashing thread")
+                    .register(registry);
+            Gauge.builder("crypto.hashing.active", sensitiveDataService, SensitiveDataService::getActiveHashingCount)
+                    .register(registry);
+            counter(registry, "crypto.hashing.rejected", sensitiveDataService, SensitiveDataService::getRejectedHashingCount);
+        };
+    }
+
+    /**
+     * Scheduler, Ingestion und Re-Encryption gibt es immer; abgeschaltet bleiben ihre Zähler bei 0.
+     */
+    @Bean
+    public MeterBinder spotifyBackgroundJobMetrics(
+            SpotifyTokenRefreshScheduler scheduler,
+            SpotifyListeningIngestionService ingestion,
+            SpotifyTokenReEncryptionJob job
+    ) {
+        return registry -> {
+            counter(registry, "spotify.token_refresh.proactive", "refreshed", scheduler, SpotifyTokenRefreshScheduler::getRefreshedCount);
+            counter(registry, "spotify.token_refresh.proactive", "failed", scheduler, SpotifyTokenRefreshScheduler::getFailedCount);
+            counter(registry, "spotify.token_refresh.proactive", "skipped", scheduler, SpotifyTokenRefreshScheduler::getSkippedCount);
+
+            counter(registry, "spotify.ingestion.polls", "success", ingestion, SpotifyListeningIngestionService::getPolledUserCount);
+            counter(registry, "spotify.ingestion.polls", "failure", ingestion, SpotifyListeningIngestionService::getFailedPollCount);
+            counter(registry, "spotify.ingestion.events", ingestion, SpotifyListeningIngestionService::getIngestedEventCount);
+
+            counter(registry, "crypto.reencryption.rows", "reencrypted", job, SpotifyTokenReEncryptionJob::getReEncryptedCount);
+            counter(registry, "crypto.reencryption.rows", "skipped", job, SpotifyTokenReEncryptionJob::getSkippedCount);
+            counter(registry, "crypto.reencryption.rows", "failed", job, SpotifyTokenReEncryptionJob::getFailedCount);
+        };
+    }
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    /**
+     * Gleiche Namen wie Micrometers CaffeineCacheMetrics (cache.gets, cache.evictions), getaggt nach cache.
+     */
+    private static void cacheStats(MeterRegistry registry, String cache, Supplier<CacheStats> stats) {
+        FunctionCounter.builder("cache.gets", stats, s -> s.get().hitCount())
+                .tag("cache", cache)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", stats, s -> s.get().missCount())
+                .tag("cache", cache)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", stats, s -> s.get().evictionCount())
+                .tag("cache", cache)
+                .register(registry);
+        FunctionCounter.builder("cache.load.duration", stats, s -> s.get().totalLoadTime())
+                .tag("cache", cache)
+                .baseUnit("nanoseconds")
+                .register(registry);
+    }
+
+    private static double hitCount(CacheRegionStatistics stats) {
+        return stats == null ? 0 : stats.getHitCount();
+    }
+
+    private static double missCount(CacheRegionStatistics stats) {
+        return stats == null ? 0 : stats.getMissCount();
+    }
+
+    /**
+     * Anteil Treffer seit dem Start; ohne Zugriffe NaN statt 0, damit ein leerer Cache nicht wie ein nutzloser aussieht.
+     */
+    private static double hitRatio(CacheRegionStatistics stats) {
+        double requests = hitCount(stats) + missCount(stats);
+        return requests == 0 ? Double.NaN : hitCount(stats) / requests;
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> count) {
+        FunctionCounter.builder(name, source, count).register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, String outcome, T source, ToDoubleFunction<T> count) {
+        FunctionCounter.builder(name, source, count).tag("outcome", outcome).register(registry);
+    }
+}
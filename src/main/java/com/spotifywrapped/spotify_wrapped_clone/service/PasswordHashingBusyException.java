@@ -0,0 +1,21 @@
+package com.spotifywrapped.spotify_wrapped_clone.service;
+
+import java.time.Duration;
+
+/**
+ * Der Passwort-Hashing-Executor ist ausgelastet (alle Threads belegt, Warteschlange voll).
+ * {@link #getRetryAfter()} ist die empfohlene Pause für einen Retry-After-Header.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public PasswordHashingBusyException(Duration retryAfter) {
+        super("Password hashing is overloaded");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,31 @@
+package com.spotifywrapped.spotify_wrapped_clone.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ob {@link ReadReplicaConfig} aktiv ist, entscheidet @ConditionalOnProperty – mit Spring AOT (Profil fast-startup)
+ * aber schon beim Build, nicht beim Start. Der Replica-Schalter ändert, welche DataSource-Beans es gibt,
+ * und lässt sich deshalb nicht wie die Hintergrund-Jobs zur Laufzeit prüfen.
+ * – Passt app.datasource.replica.enabled beim Start nicht zum Build, bricht der Start ab,
+ *   statt stillschweigend mit (oder ohne) Replica zu laufen.
+ * – Neu bauen mit dem passenden Wert: docker build --build-arg DB_REPLICA_ENABLED=true .
+ * Ohne AOT wird die Bedingung beim Start ausgewertet, beide Werte stimmen dann immer überein.
+ */
+@Component
+public class ReadReplicaBuildCheck {
+
+    public ReadReplicaBuildCheck(
+            @Value("${app.datasource.replica.enabled:false}") boolean replicaEnabled,
+            ObjectProvider<ReadReplicaConfig> readReplicaConfig) {
+
+        boolean replicaBuiltIn = readReplicaConfig.getIfAvailable() != null;
+        if (replicaEnabled != replicaBuiltIn) {
+            throw new IllegalStateException("app.datasource.replica.enabled=" + replicaEnabled
+                    + ", but the application was built (Spring AOT) with the read replica "
+                    + (replicaBuiltIn ? "enabled" : "disabled")
+                    + "; rebuild with DB_REPLICA_ENABLED=" + replicaEnabled);
+        }
+    }
+}
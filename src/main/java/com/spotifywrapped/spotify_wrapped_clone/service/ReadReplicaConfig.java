@@ -0,0 +1,76 @@
+package com.spotifywrapped.spotify_wrapped_clone.service;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ReplicaLagMonitor;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Zwei Pools statt einem, sobald app.datasource.replica.enabled gesetzt ist:
+ * – primary aus spring.datasource.* (Schreiben, Flyway), replica aus app.datasource.replica.* (eigener Hikari-Pool).
+ * – Die DataSource für JPA ist ein {@link ReplicaRoutingDataSource} hinter einem LazyConnectionDataSourceProxy;
+ *   @Transactional(readOnly = true) landet auf dem Replica, solange der Lag unter max-lag liegt.
+ * – readOnly nur für Lesezugriffe, die bis zu max-lag veraltete Daten vertragen; Login und Lookups direkt nach
+ *   einem Schreibzugriff (UserDBaccess) bleiben auf dem Primary.
+ * Ohne die Property bleibt es bei der einen DataSource aus der Spring-Boot-Autokonfiguration.
+ * Mit Spring AOT (Profil fast-startup) fällt die Entscheidung beim Build, siehe {@link ReadReplicaBuildCheck}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Pool direkt aus app.datasource.replica.* gebunden (jdbc-url, username, password, maximum-pool-size, …).
+     */
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${app.datasource.replica.max-lag:5s}") Duration maxLag) {
+
+        return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, maxLag);
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ReplicaLagMonitor replicaLagMonitor) {
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
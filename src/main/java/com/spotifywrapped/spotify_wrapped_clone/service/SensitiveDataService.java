@@ -1,38 +1,210 @@
 package com.spotifywrapped.spotify_wrapped_clone.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.encrypt.TextEncryptor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Passwort-Hashing und Verschlüsselung der Spotify-Tokens.
+ * – BCrypt kostet pro Aufruf ~100ms CPU und läuft deshalb auf einem eigenen Executor mit so vielen Threads
+ *   wie CPUs: Login-Spitzen belegen nicht mehr alle Request-Threads.
+ * – Die Warteschlange ist begrenzt; ist sie voll, kommt sofort {@link PasswordHashingBusyException} (→ 503).
+ * – AES ist billig und läuft weiter direkt auf dem aufrufenden Thread. Neue Tokens werden als versionierte
+ *   AES-GCM-Envelopes gespeichert ({@link VersionedTokenEncryptor}); das alte CBC/hex-Format wird nur noch gelesen.
+ */
 @Component
 public class SensitiveDataService {
 
     private final PasswordEncoder passwordEncoder;
     private final TextEncryptor textEncryptor;
+    private final VersionedTokenEncryptor tokenEncryptor;
+    private final ThreadPoolExecutor hashingExecutor;
+    private final Duration retryAfter;
+
+    private final LongAdder rejectedCount = new LongAdder();
 
-    public SensitiveDataService(PasswordEncoder passwordEncoder, TextEncryptor textEncryptor) {
+    // BCrypt und AES kosten spürbar CPU; Timer "crypto.operations" zeigt, wie viel davon pro Request anfällt
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Timer encryptTimer;
+    private final Timer decryptTimer;
+    private final Timer legacyDecryptTimer;
+    private final Timer queueWaitTimer;
+
+    public SensitiveDataService(
+            PasswordEncoder passwordEncoder,
+            TextEncryptor textEncryptor,
+            VersionedTokenEncryptor tokenEncryptor,
+            MeterRegistry meterRegistry,
+            @Value("${app.crypto.hashing.threads:0}") int threads,
+            @Value("${app.crypto.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.crypto.hashing.retry-after:1s}") Duration retryAfter
+    ) {
         this.passwordEncoder = passwordEncoder;
         this.textEncryptor = textEncryptor;
+        this.tokenEncryptor = tokenEncryptor;
+        this.retryAfter = retryAfter;
+
+        // 0 = ein Thread pro CPU
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.hashingExecutor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hashing-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        this.hashTimer = cryptoTimer(meterRegistry, "bcrypt", "hash");
+        this.verifyTimer = cryptoTimer(meterRegistry, "bcrypt", "verify");
+        this.encryptTimer = cryptoTimer(meterRegistry, "aes-gcm", "encrypt");
+        this.decryptTimer = cryptoTimer(meterRegistry, "aes-gcm", "decrypt");
+        this.legacyDecryptTimer = cryptoTimer(meterRegistry, "aes-cbc", "decrypt");
+        this.queueWaitTimer = Timer.builder("crypto.hashing.queue.wait")
+                .description("Time password hashing tasks spend waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingExecutor.shutdownNow();
     }
 
     // === PASSWORDS ===
 
     public String hashPassword(String rawPassword) {
-        return rawPassword == null ? null : passwordEncoder.encode(rawPassword);
+        return rawPassword == null ? null : onHashingExecutor(() -> hashTimer.record(() -> passwordEncoder.encode(rawPassword)));
     }
 
     public boolean passwordMatches(String rawPassword, String hashedPassword) {
-        return rawPassword != null && hashedPassword != null && passwordEncoder.matches(rawPassword, hashedPassword);
+        return rawPassword != null && hashedPassword != null
+                && onHashingExecutor(() -> verifyTimer.record(() -> passwordEncoder.matches(rawPassword, hashedPassword)));
+    }
+
+    /**
+     * Hash stammt von einem anderen Algorithmus oder geringeren Kosten als aktuell konfiguriert (billig, kein Hashing).
+     */
+    public boolean needsRehash(String hashedPassword) {
+        return hashedPassword != null && passwordEncoder.upgradeEncoding(hashedPassword);
+    }
+
+
+    // === SPOTIFY TOKENS ===
+
+    /**
+     * AES-GCM-Envelope mit der aktiven Schlüsselversion im ersten Byte.
+     * Der Klartext kommt und geht als String (HTTP-Header, JSON) und lässt sich daher nicht nullen;
+     * überschrieben werden nur die Zwischenpuffer dieser Klasse.
+     */
+    public byte[] encryptToken(String value) {
+        if (value == null) {
+            return null;
+        }
+        return encryptTimer.record(() -> {
+            byte[] plaintext = value.getBytes(StandardCharsets.UTF_8);
+            try {
+                return tokenEncryptor.encrypt(plaintext);
+            } finally {
+                Arrays.fill(plaintext, (byte) 0);
+            }
+        });
     }
 
+    /**
+     * Liest beide Speicherformate: Envelope (binär), sonst Altbestand (AES-CBC, hex).
+     */
+    public String decryptToken(byte[] envelope, String legacyCiphertext) {
+        if (envelope != null) {
+            return decryptTimer.record(() -> {
+                byte[] plaintext = tokenEncryptor.decrypt(envelope);
+                try {
+                    return new String(plaintext, StandardCharsets.UTF_8);
+                } finally {
+                    Arrays.fill(plaintext, (byte) 0);
+                }
+            });
+        }
+        return legacyCiphertext == null ? null : legacyDecryptTimer.record(() -> textEncryptor.decrypt(legacyCiphertext));
+    }
+
+    public int getActiveTokenKeyVersion() {
+        return tokenEncryptor.getActiveVersion();
+    }
+
+
+    // === METRICS ===
+
+    public int getHashingQueueSize() {
+        return hashingExecutor.getQueue().size();
+    }
+
+    public int getActiveHashingCount() {
+        return hashingExecutor.getActiveCount();
+    }
+
+    public long getRejectedHashingCount() {
+        return rejectedCount.sum();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
 
-    // === SPOTIFY REFRESH TOKEN  ===
+    /**
+     * Führt die Operation auf dem Hashing-Executor aus und wartet auf das Ergebnis.
+     * Der Request-Thread wartet nur, er rechnet nicht; ohne freien Platz in der Warteschlange wird sofort abgelehnt.
+     */
+    private <T> T onHashingExecutor(Callable<T> operation) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = hashingExecutor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return operation.call();
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw new PasswordHashingBusyException(retryAfter);
+        }
 
-    public String encrypt(String value) {
-        return value == null ? null : textEncryptor.encrypt(value);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException(retryAfter);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
-    public String decrypt(String encryptedValue) {
-        return encryptedValue == null ? null : textEncryptor.decrypt(encryptedValue);
+    private static Timer cryptoTimer(MeterRegistry meterRegistry, String algorithm, String operation) {
+        return Timer.builder("crypto.operations")
+                .description("Password hashing and token encryption")
+                .tag("algorithm", algorithm)
+                .tag("operation", operation)
+                .register(meterRegistry);
     }
 }
@@ -0,0 +1,61 @@
+package com.spotifywrapped.spotify_wrapped_clone.service;
+
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Envelope für gespeicherte Spotify-Tokens: [Schlüsselversion, 1 Byte][IV][AES-GCM Ciphertext + Tag].
+ * – Verschlüsselt wird immer mit der aktiven Version, entschlüsselt mit der Version aus dem ersten Byte.
+ * – Alte Versionen bleiben konfiguriert, bis der Re-Encryption-Job alle Zeilen umgeschlüsselt hat.
+ */
+public class VersionedTokenEncryptor {
+
+    private final Map<Integer, BytesEncryptor> encryptors;
+    private final int activeVersion;
+
+    public VersionedTokenEncryptor(Map<Integer, BytesEncryptor> encryptors, int activeVersion) {
+        for (Integer version : encryptors.keySet()) {
+            if (version < 1 || version > 255) {
+                throw new IllegalArgumentException("Token key versions must be between 1 and 255: " + version);
+            }
+        }
+        if (!encryptors.containsKey(activeVersion)) {
+            throw new IllegalArgumentException("No token key configured for active version " + activeVersion);
+        }
+        this.encryptors = Map.copyOf(encryptors);
+        this.activeVersion = activeVersion;
+    }
+
+    public byte[] encrypt(byte[] plaintext) {
+        byte[] ciphertext = encryptors.get(activeVersion).encrypt(plaintext);
+        byte[] envelope = new byte[ciphertext.length + 1];
+        envelope[0] = (byte) activeVersion;
+        System.arraycopy(ciphertext, 0, envelope, 1, ciphertext.length);
+        return envelope;
+    }
+
+    public byte[] decrypt(byte[] envelope) {
+        int version = keyVersionOf(envelope);
+        BytesEncryptor encryptor = encryptors.get(version);
+        if (encryptor == null) {
+            throw new IllegalStateException("Token key version " + version + " is not configured");
+        }
+        return encryptor.decrypt(Arrays.copyOfRange(envelope, 1, envelope.length));
+    }
+
+    public int getActiveVersion() {
+        return activeVersion;
+    }
+
+    public SortedSet<Integer> getVersions() {
+        return new TreeSet<>(encryptors.keySet());
+    }
+
+    public static int keyVersionOf(byte[] envelope) {
+        return envelope[0] & 0xFF;
+    }
+}
@@ -0,0 +1,319 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogAlbum;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogImage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Albumcover in passender Größe, über die eigene API statt direkt von Spotify.
+ * – Gewählt wird das kleinste Spotify-Bild, das mindestens die angefragte Kantenlänge hat.
+ * – Bilder liegen auf der lokalen Platte unter dem SHA-256 ihrer Spotify-URL (ab/cdef…);
+ *   Spotify-Bild-URLs sind selbst inhaltsadressiert, eine Datei ändert sich also nie.
+ * – Der Plattencache ist auf cache-max-size begrenzt; verdrängt wird das am längsten nicht gelesene Bild.
+ * – Proxy-URLs sind per HMAC signiert: der Endpunkt ist für img-Tags öffentlich, lädt aber nur Alben,
+ *   deren URL die eigene API ausgegeben hat – beliebige IDs verbrauchen kein Spotify-Kontingent.
+ */
+@Service
+public class AlbumImageService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlbumImageService.class);
+
+    private static final String SIGNATURE_ALGORITHM = "HmacSHA256";
+    // 128 Bit der HMAC reichen gegen Raten und halten die URL kurz
+    private static final int SIGNATURE_BYTES = 16;
+
+    private final SpotifyCatalogService spotifyCatalogService;
+    private final SpotifyApiClient spotifyApiClient;
+    private final Path cacheDir;
+    private final long maxCacheBytes;
+    private final int defaultSize;
+    private final SecretKeySpec signingKey;
+
+    // Dateischlüssel → Größe in Bytes, in Zugriffsreihenfolge (ältester Zugriff zuerst)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    // Laufende Downloads, damit gleichzeitige Anfragen dasselbe Bild nur einmal laden
+    private final Map<String, CompletableFuture<byte[]>> downloads = new ConcurrentHashMap<>();
+
+    public AlbumImageService(
+            SpotifyCatalogService spotifyCatalogService,
+            SpotifyApiClient spotifyApiClient,
+            @Value("${app.images.cache-dir:${java.io.tmpdir}/spotify-stats-images}") Path cacheDir,
+            @Value("${app.images.cache-max-size:512MB}") DataSize maxCacheSize,
+            @Value("${app.images.default-size:300}") int defaultSize,
+            @Value("${app.images.signing-key}") String signingKey
+    ) {
+        this.spotifyCatalogService = spotifyCatalogService;
+        this.spotifyApiClient = spotifyApiClient;
+        this.cacheDir = cacheDir;
+        this.maxCacheBytes = maxCacheSize.toBytes();
+        this.defaultSize = defaultSize;
+        this.signingKey = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), SIGNATURE_ALGORITHM);
+        loadExistingEntries();
+    }
+
+
+    /** ---------------------------------------------
+     *   PUBLIC METHODS
+     *  --------------------------------------------- */
+
+    /**
+     * Relative, signierte Proxy-URL für ein Album in der Standard-Kachelgröße, oder null ohne Album.
+     */
+    public String proxyUrl(String albumId) {
+        return albumId != null ? "/api/images/" + albumId + "?size=" + defaultSize + "&sig=" + sign(albumId) : null;
+    }
+
+    /**
+     * Prüft die Signatur aus {@link #proxyUrl}; die Größe ist frei wählbar und daher nicht signiert.
+     */
+    public boolean isValidSignature(String albumId, String signature) {
+        if (signature == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                sign(albumId).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Liefert das Cover des Albums für die Kantenlänge {@code size} (Pixel).
+     * – Gibt null zurück, wenn das Album unbekannt ist oder keine Bilder hat.
+     */
+    public AlbumImage getAlbumImage(String albumId, int size) {
+        CatalogAlbum album = spotifyCatalogService.getAlbums(List.of(albumId)).get(albumId);
+        if (album == null) {
+            return null;
+        }
+
+        String url = selectImageUrl(album, size);
+        if (url == null) {
+            return null;
+        }
+
+        String key = sha256Hex(url);
+        byte[] cached = readCached(key);
+        if (cached != null) {
+            return new AlbumImage(key, cached);
+        }
+        return new AlbumImage(key, download(key, url));
+    }
+
+    public synchronized long getCachedBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getCachedImageCount() {
+        return entries.size();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    /**
+     * Kleinstes Bild mit width >= size; ist keines groß genug, das größte.
+     * Alben ohne Größenangaben (alte Katalogzeilen) liefern nur ihr Standardbild.
+     */
+    private static String selectImageUrl(CatalogAlbum album, int size) {
+        List<CatalogImage> images = album.images() != null ? album.images() : List.of();
+        if (images.isEmpty()) {
+            return album.imageUrl();
+        }
+
+        CatalogImage best = null;
+        CatalogImage largest = null;
+        for (CatalogImage image : images) {
+            int width = image.width() != null ? image.width() : Integer.MAX_VALUE;
+            if (largest == null || width > widthOf(largest)) {
+                largest = image;
+            }
+            if (width >= size && (best == null || width < widthOf(best))) {
+                best = image;
+            }
+        }
+        return (best != null ? best : largest).url();
+    }
+
+    private static int widthOf(CatalogImage image) {
+        return image.width() != null ? image.width() : Integer.MAX_VALUE;
+    }
+
+    private byte[] readCached(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            return Files.readAllBytes(pathFor(key));
+        } catch (IOException ex) {
+            // Datei wurde zwischenzeitlich verdrängt oder von außen gelöscht → neu laden
+            forget(key);
+            return null;
+        }
+    }
+
+    private byte[] download(String key, String url) {
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = downloads.putIfAbsent(key, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                throw new IllegalStateException("Image download failed", ex.getCause());
+            }
+        }
+
+        try {
+            ResponseEntity<byte[]> response = spotifyApiClient.download(url);
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                throw new IllegalStateException("Image download failed with status: " + response.getStatusCode());
+            }
+            byte[] bytes = response.getBody();
+            store(key, bytes);
+            mine.complete(bytes);
+            return bytes;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex instanceof IllegalStateException ? ex : new IllegalStateException("Image download failed", ex);
+        } finally {
+            downloads.remove(key);
+        }
+    }
+
+    /**
+     * Schreibt erst in eine temporäre Datei und verschiebt dann atomar, damit Leser nie halbe Bilder sehen.
+     * Ein Schreibfehler ist kein Fehler der Anfrage; das Bild wird dann nur nicht gecacht.
+     */
+    private void store(String key, byte[] bytes) {
+        Path target = pathFor(key);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            log.warn("Could not cache image {}: {}", key, ex.getMessage());
+            return;
+        }
+        register(key, bytes.length);
+    }
+
+    private synchronized void register(String key, long size) {
+        Long previous = entries.put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxCacheBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(pathFor(entry.getKey()));
+            } catch (IOException ex) {
+                log.warn("Could not evict cached image {}: {}", entry.getKey(), ex.getMessage());
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private synchronized void forget(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    /**
+     * Übernimmt nach einem Neustart die vorhandenen Dateien; Reihenfolge nach letzter Änderung.
+     */
+    private void loadExistingEntries() {
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> files = Files.walk(cacheDir, 2)) {
+                List<Path> images = files
+                        .filter(Files::isRegularFile)
+                        .filter(path -> !path.getFileName().toString().endsWith(".tmp"))
+                        .sorted(Comparator.comparing(AlbumImageService::lastModified))
+                        .toList();
+                for (Path image : images) {
+                    register(image.getFileName().toString(), Files.size(image));
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Image cache directory is not usable: " + cacheDir, ex);
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).lastModifiedTime();
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private Path pathFor(String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private String sign(String albumId) {
+        try {
+            Mac mac = Mac.getInstance(SIGNATURE_ALGORITHM);
+            mac.init(signingKey);
+            byte[] signature = mac.doFinal(("album-image:" + albumId).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(signature, SIGNATURE_BYTES));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not sign image URL", ex);
+        }
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /**
+     * Bilddaten samt Schlüssel; der Schlüssel dient als ETag.
+     */
+    public record AlbumImage(String key, byte[] bytes) { }
+}
@@ -0,0 +1,28 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Zeitraster für die Verlaufsansicht; gröbere Stufen werden aus den Tages-Rollups abgeleitet.
+ */
+public enum ListeningGranularity {
+
+    DAY,
+    WEEK,
+    MONTH,
+    YEAR;
+
+    /**
+     * Erster Tag des Abschnitts, zu dem {@code day} gehört (Wochen beginnen am Montag).
+     */
+    public LocalDate periodStart(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+            case YEAR -> day.withDayOfYear(1);
+        };
+    }
+}
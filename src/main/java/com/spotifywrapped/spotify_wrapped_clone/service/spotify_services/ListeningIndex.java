@@ -0,0 +1,508 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.ListeningEvent;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.StoredEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-Memory-Index der Hörhistorie für schnelle Auswertungen ohne Datenbank.
+ * – Track- und Artist-IDs von Spotify werden auf dichte int-IDs abgebildet (Dictionary-Encoding).
+ * – Pro Nutzer liegen die Wiedergaben als primitive Arrays (Zeitpunkt, Track, Dauer), sortiert nach Zeit.
+ * – Top-K und Summen über einen Zeitraum laufen ohne Boxing; Objekte entstehen nur für die K Ergebnisse.
+ * – Beim Start wird der Index aus listening_events aufgebaut, danach inkrementell fortgeschrieben:
+ *   sofort von der eigenen Ingestion, per {@link #catchUp} auch mit den Events anderer Instanzen.
+ */
+@Component
+public class ListeningIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ListeningIndex.class);
+
+    private static final int NO_ARTIST = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ListeningEventDBaccess listeningEventDBaccess;
+    private final boolean enabled;
+    private final int rebuildPageSize;
+
+    private final Dictionary tracks = new Dictionary();
+    private final Dictionary artists = new Dictionary();
+    // Artist-ID pro Track-ID (Hauptartist), NO_ARTIST wenn unbekannt
+    private final Object trackArtistsLock = new Object();
+    private volatile int[] trackArtists = emptyTrackArtists();
+
+    private volatile Map<Long, UserPlays> users = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Während eines Rebuilds eingehende Events, die nach dem Umschalten nachgespielt werden
+    private final Object rebuildLock = new Object();
+    private boolean rebuilding;
+    private final List<PendingAppend> pendingAppends = new ArrayList<>();
+
+    // Abgleich mit listening_events: gelesen wird ab settledEventId, lastSeenEventId ist der Stand des letzten Laufs
+    private final Object catchUpLock = new Object();
+    private long settledEventId;
+    private long lastSeenEventId;
+
+    // Zähl-Puffer pro Thread, damit Top-K-Abfragen keine Arrays pro Aufruf anlegen
+    private final ThreadLocal<Counts> scratch = ThreadLocal.withInitial(Counts::new);
+
+    public ListeningIndex(
+            ListeningEventDBaccess listeningEventDBaccess,
+            @Value("${app.listening-index.enabled:true}") boolean enabled,
+            @Value("${app.listening-index.rebuild-page-size:10000}") int rebuildPageSize
+    ) {
+        this.listeningEventDBaccess = listeningEventDBaccess;
+        this.enabled = enabled;
+        this.rebuildPageSize = rebuildPageSize;
+    }
+
+
+    /** ---------------------------------------------
+     *   PUBLIC METHODS
+     *  --------------------------------------------- */
+
+    /**
+     * Baut den Index im Hintergrund auf, damit der Start nicht auf die Historie warten muss.
+     * Bis dahin beantwortet {@link WrappedService} Anfragen aus den Tages-Rollups.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+
+        Thread.ofPlatform().name("listening-index-rebuild").daemon(true).start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException ex) {
+                log.warn("Listening index rebuild failed: {}", ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Liest alle gespeicherten Events neu ein und schaltet danach atomar auf den neuen Stand um.
+     * – Schlägt das Lesen fehl, bleibt der bisherige Stand aktiv; er hat die Events seit Beginn schon über append() erhalten.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            rebuilding = true;
+        }
+
+        long started = System.nanoTime();
+        Map<Long, UserPlays> rebuilt = new ConcurrentHashMap<>();
+        long[] plays = new long[1];
+        long watermark;
+
+        try {
+            // Vor dem Scan gelesen: alles danach Gespeicherte holt catchUp() nach
+            watermark = listeningEventDBaccess.findMaxEventId();
+            listeningEventDBaccess.forEachEvent(rebuildPageSize, (userId, trackId, artistId, playedAtMillis, durationMs) -> {
+                int track = encodeTrack(trackId, artistId);
+                rebuilt.computeIfAbsent(userId, id -> new UserPlays()).append(playedAtMillis, track, durationMs);
+                plays[0]++;
+            });
+        } catch (RuntimeException ex) {
+            synchronized (rebuildLock) {
+                pendingAppends.clear();
+                rebuilding = false;
+            }
+            throw ex;
+        }
+
+        synchronized (rebuildLock) {
+            // Events, die während des Rebuilds angehängt wurden, in den neuen Stand übernehmen
+            for (PendingAppend pending : pendingAppends) {
+                appendTo(rebuilt, pending.userId(), pending.events());
+            }
+            pendingAppends.clear();
+            users = rebuilt;
+            rebuilding = false;
+        }
+        synchronized (catchUpLock) {
+            settledEventId = watermark;
+            lastSeenEventId = watermark;
+        }
+
+        ready = true;
+        log.info("Listening index rebuilt: {} plays for {} users in {} ms",
+                plays[0], rebuilt.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Übernimmt Events, die andere Instanzen gespeichert haben; {@link #append} sieht nur die eigenen.
+     * – Keyset über listening_events.id, seitenweise wie der Rebuild.
+     * – Gelesen wird ab dem Stand des vorletzten Laufs: Eine Transaktion, die eine kleinere ID vergeben, aber erst
+     *   nach einer größeren committet hat (Lücke im AUTO_INCREMENT), wird so im nächsten Lauf noch gefunden.
+     * – Doppelt gelesene Events verwirft UserPlays, (user_id, played_at) ist eindeutig.
+     */
+    @Scheduled(fixedDelayString = "${app.listening-index.catch-up-interval:10s}")
+    public void catchUp() {
+        if (!enabled || !ready) {
+            return;
+        }
+
+        synchronized (catchUpLock) {
+            long seen = settledEventId;
+            List<StoredEvent> page;
+            do {
+                page = listeningEventDBaccess.findEventsAfterId(seen, rebuildPageSize);
+                Map<Long, List<ListeningEvent>> byUser = new LinkedHashMap<>();
+                for (StoredEvent stored : page) {
+                    byUser.computeIfAbsent(stored.userId(), id -> new ArrayList<>()).add(stored.event());
+                }
+                byUser.forEach(this::append);
+                if (!page.isEmpty()) {
+                    seen = page.getLast().id();
+                }
+            } while (page.size() == rebuildPageSize);
+
+            settledEventId = lastSeenEventId;
+            lastSeenEventId = seen;
+        }
+    }
+
+    /**
+     * Hängt neu gespeicherte Events eines Nutzers an, in beliebiger Reihenfolge.
+     * – Bereits bekannte Wiedergaben (gleicher Zeitpunkt) werden ignoriert.
+     */
+    public void append(Long userId, List<ListeningEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Map<Long, UserPlays> target;
+        synchronized (rebuildLock) {
+            target = users;
+            if (rebuilding) {
+                pendingAppends.add(new PendingAppend(userId, List.copyOf(events)));
+            }
+        }
+        appendTo(target, userId, events);
+    }
+
+    /**
+     * Ob Top-Listen aus dem Index kommen dürfen: erst nach dem ersten vollständigen Rebuild.
+     * – Mit mehreren Instanzen fehlen Events, die eine andere Instanz gespeichert hat, bis zum nächsten
+     *   {@link #catchUp} (app.listening-index.catch-up-interval); Summen aus den Rollups sind dagegen sofort aktuell.
+     * – Nur bei genau einer ingestierenden Instanz ist der Index ohne diesen Versatz vollständig.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Markiert den Index ohne Rebuild als vollständig, z.B. wenn er vollständig über {@link #append} befüllt wurde.
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    public List<IndexedRank> topTracks(Long userId, Instant from, Instant to, int limit) {
+        return top(userId, from, to, limit, false);
+    }
+
+    public List<IndexedRank> topArtists(Long userId, Instant from, Instant to, int limit) {
+        return top(userId, from, to, limit, true);
+    }
+
+    /**
+     * Anzahl Wiedergaben und Summe der Dauer im Zeitraum [from, to).
+     */
+    public IndexedTotal total(Long userId, Instant from, Instant to) {
+        UserPlays plays = users.get(userId);
+        if (plays == null) {
+            return new IndexedTotal(0, 0);
+        }
+
+        synchronized (plays) {
+            int start = plays.lowerBound(from.toEpochMilli());
+            int end = plays.lowerBound(to.toEpochMilli());
+            long ms = 0;
+            for (int i = start; i < end; i++) {
+                ms += plays.durations[i];
+            }
+            return new IndexedTotal(end - start, ms);
+        }
+    }
+
+    public long getPlayCount() {
+        long count = 0;
+        for (UserPlays plays : users.values()) {
+            count += plays.size;
+        }
+        return count;
+    }
+
+    public int getTrackCount() {
+        return tracks.size();
+    }
+
+    public int getArtistCount() {
+        return artists.size();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private static int[] emptyTrackArtists() {
+        int[] empty = new int[INITIAL_CAPACITY];
+        Arrays.fill(empty, NO_ARTIST);
+        return empty;
+    }
+
+    private void appendTo(Map<Long, UserPlays> target, Long userId, List<ListeningEvent> events) {
+        UserPlays plays = target.computeIfAbsent(userId, id -> new UserPlays());
+        // Spotify liefert recently-played neueste zuerst; UserPlays nimmt nur aufsteigende Zeitpunkte an
+        List<ListeningEvent> ascending = events.stream()
+                .sorted(Comparator.comparing(ListeningEvent::playedAt))
+                .toList();
+        for (ListeningEvent event : ascending) {
+            int track = encodeTrack(event.trackId(), event.artistId());
+            plays.append(event.playedAt().toEpochMilli(), track, event.durationMs());
+        }
+    }
+
+    private int encodeTrack(String trackId, String artistId) {
+        int track = tracks.encode(trackId);
+        int artist = artistId != null ? artists.encode(artistId) : NO_ARTIST;
+
+        synchronized (trackArtistsLock) {
+            int[] current = trackArtists;
+            if (track >= current.length) {
+                current = Arrays.copyOf(current, Math.max(track + 1, current.length * 2));
+                Arrays.fill(current, trackArtists.length, current.length, NO_ARTIST);
+            }
+            if (current[track] == NO_ARTIST) {
+                current[track] = artist;
+            }
+            trackArtists = current;
+        }
+        return track;
+    }
+
+    private List<IndexedRank> top(Long userId, Instant from, Instant to, int limit, boolean byArtist) {
+        UserPlays plays = users.get(userId);
+        if (plays == null || limit <= 0) {
+            return List.of();
+        }
+
+        Dictionary dictionary = byArtist ? artists : tracks;
+        int[] artistOfTrack = trackArtists;
+        Counts counts = scratch.get();
+        counts.ensureCapacity(dictionary.size());
+
+        try {
+            synchronized (plays) {
+                int start = plays.lowerBound(from.toEpochMilli());
+                int end = plays.lowerBound(to.toEpochMilli());
+                for (int i = start; i < end; i++) {
+                    int id = byArtist ? artistOfTrack[plays.trackIds[i]] : plays.trackIds[i];
+                    if (id != NO_ARTIST) {
+                        counts.add(id, plays.durations[i]);
+                    }
+                }
+            }
+
+            return counts.topK(limit, dictionary);
+        } finally {
+            counts.reset();
+        }
+    }
+
+    /**
+     * Wiedergaben eines Nutzers als parallele, nach Zeit sortierte Arrays (16 Byte pro Play).
+     */
+    private static final class UserPlays {
+        private long[] playedAt = new long[INITIAL_CAPACITY];
+        private int[] trackIds = new int[INITIAL_CAPACITY];
+        private int[] durations = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private synchronized void append(long playedAtMillis, int trackId, int durationMs) {
+            // Meist neuer als alles Bekannte; ältere Plays (z.B. von einer anderen Instanz) werden einsortiert
+            int position = size > 0 && playedAtMillis <= playedAt[size - 1] ? lowerBound(playedAtMillis) : size;
+            if (position < size && playedAt[position] == playedAtMillis) {
+                return;
+            }
+
+            if (size == playedAt.length) {
+                int capacity = size + (size >> 1);
+                playedAt = Arrays.copyOf(playedAt, capacity);
+                trackIds = Arrays.copyOf(trackIds, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+            }
+
+            if (position < size) {
+                System.arraycopy(playedAt, position, playedAt, position + 1, size - position);
+                System.arraycopy(trackIds, position, trackIds, position + 1, size - position);
+                System.arraycopy(durations, position, durations, position + 1, size - position);
+            }
+            playedAt[position] = playedAtMillis;
+            trackIds[position] = trackId;
+            durations[position] = durationMs;
+            size++;
+        }
+
+        /**
+         * Erster Index mit playedAt >= millis (binäre Suche).
+         */
+        private int lowerBound(long millis) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (playedAt[mid] < millis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Bidirektionale Abbildung Spotify-ID ↔ dichte int-ID. Wächst nur, IDs bleiben stabil.
+     */
+    private static final class Dictionary {
+        private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[INITIAL_CAPACITY];
+        private volatile int size;
+
+        private int encode(String value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+
+            synchronized (this) {
+                id = ids.get(value);
+                if (id != null) {
+                    return id;
+                }
+
+                int next = size;
+                String[] current = values;
+                if (next == current.length) {
+                    current = Arrays.copyOf(current, current.length * 2);
+                }
+                current[next] = value;
+                values = current;
+                size = next + 1;
+                ids.put(value, next);
+                return next;
+            }
+        }
+
+        private String decode(int id) {
+            return values[id];
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Wiederverwendbare Zähler pro Thread; nur berührte Einträge werden nach der Abfrage zurückgesetzt.
+     */
+    private static final class Counts {
+        private int[] plays = new int[INITIAL_CAPACITY];
+        private long[] ms = new long[INITIAL_CAPACITY];
+        private int[] touched = new int[INITIAL_CAPACITY];
+        private int touchedSize;
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > plays.length) {
+                int grown = Math.max(capacity, plays.length * 2);
+                plays = new int[grown];
+                ms = new long[grown];
+            }
+        }
+
+        private void add(int id, int durationMs) {
+            if (id >= plays.length) {
+                // Dictionary ist seit ensureCapacity gewachsen
+                plays = Arrays.copyOf(plays, Math.max(id + 1, plays.length * 2));
+                ms = Arrays.copyOf(ms, plays.length);
+            }
+            if (plays[id] == 0) {
+                if (touchedSize == touched.length) {
+                    touched = Arrays.copyOf(touched, touched.length * 2);
+                }
+                touched[touchedSize++] = id;
+            }
+            plays[id]++;
+            ms[id] += durationMs;
+        }
+
+        /**
+         * Top-K nach Anzahl Wiedergaben (dann Dauer) über einen kleinen, sortierten Puffer der Größe K.
+         */
+        private List<IndexedRank> topK(int k, Dictionary dictionary) {
+            int[] best = new int[Math.min(k, touchedSize)];
+            int bestSize = 0;
+
+            for (int t = 0; t < touchedSize; t++) {
+                int id = touched[t];
+                if (bestSize == best.length && !ranksBefore(id, best[bestSize - 1])) {
+                    continue;
+                }
+
+                int position = bestSize == best.length ? bestSize - 1 : bestSize++;
+                while (position > 0 && ranksBefore(id, best[position - 1])) {
+                    best[position] = best[position - 1];
+                    position--;
+                }
+                best[position] = id;
+            }
+
+            List<IndexedRank> result = new ArrayList<>(bestSize);
+            for (int i = 0; i < bestSize; i++) {
+                int id = best[i];
+                result.add(new IndexedRank(dictionary.decode(id), plays[id], ms[id]));
+            }
+            return result;
+        }
+
+        private boolean ranksBefore(int a, int b) {
+            if (plays[a] != plays[b]) {
+                return plays[a] > plays[b];
+            }
+            return ms[a] > ms[b];
+        }
+
+        private void reset() {
+            for (int t = 0; t < touchedSize; t++) {
+                plays[touched[t]] = 0;
+                ms[touched[t]] = 0;
+            }
+            touchedSize = 0;
+        }
+    }
+
+    private record PendingAppend(Long userId, List<ListeningEvent> events) { }
+
+    public record IndexedRank(String spotifyId, int playCount, long msPlayed) { }
+
+    public record IndexedTotal(int playCount, long msPlayed) { }
+}
@@ -0,0 +1,261 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenLeaseDBaccess;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Service
+public class SpotifyAccessTokenProvider {
+
+    private final SpotifyAuthService spotifyAuthService;
+    private final SpotifyTokenService spotifyTokenService;
+    private final SpotifyTokenLeaseDBaccess tokenLeases;
+    private final MeterRegistry meterRegistry;
+    private final Duration leaseTime;
+    private final Duration leaseWait;
+    private final Duration leasePollInterval;
+
+    // Kennung dieser Instanz als Lease-Owner
+    private final String instanceId = UUID.randomUUID().toString();
+
+    // Laufende Refreshes pro Nutzer – gleichzeitige Aufrufer hängen sich an denselben Future
+    private final ConcurrentMap<Long, CompletableFuture<String>> inFlightRefreshes = new ConcurrentHashMap<>();
+
+    // Refreshes, die eine andere Instanz erledigt hat (Lease verloren, deren Token übernommen)
+    private final Counter leaseWaits;
+
+    public SpotifyAccessTokenProvider(
+            SpotifyAuthService spotifyAuthService,
+            SpotifyTokenService spotifyTokenService,
+            SpotifyTokenLeaseDBaccess tokenLeases,
+            MeterRegistry meterRegistry,
+            @Value("${app.spotify.token-refresh.lease-time:10s}") Duration leaseTime,
+            @Value("${app.spotify.token-refresh.lease-wait:20s}") Duration leaseWait,
+            @Value("${app.spotify.token-refresh.lease-poll-interval:100ms}") Duration leasePollInterval
+    ) {
+        // Sonst geben Wartende auf, bevor die Lease einer abgestürzten Instanz abläuft, und übernehmen nie
+        if (leaseWait.compareTo(leaseTime) <= 0) {
+            throw new IllegalArgumentException("app.spotify.token-refresh.lease-wait (" + leaseWait
+                    + ") must be longer than lease-time (" + leaseTime + ")");
+        }
+        this.spotifyAuthService = spotifyAuthService;
+        this.spotifyTokenService = spotifyTokenService;
+        this.tokenLeases = tokenLeases;
+        this.meterRegistry = meterRegistry;
+        this.leaseTime = leaseTime;
+        this.leaseWait = leaseWait;
+        this.leasePollInterval = leasePollInterval;
+        this.leaseWaits = Counter.builder("spotify.token.refresh.lease.waits")
+                .description("Token refreshes taken over from another instance holding the refresh lease")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Liefert einen gültigen Access Token:
+     * – Falls der gespeicherte Token noch gültig ist → wird er genutzt.
+     * – Falls er abgelaufen ist → wird genau ein Refresh pro Nutzer ausgeführt,
+     *   parallele Aufrufer warten auf dessen Ergebnis; über Instanzen hinweg per Lease in der DB.
+     * – Gibt null zurück, wenn der Nutzer Spotify nicht verbunden hat.
+     */
+    public String getValidAccessToken(Long userId) {
+        SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.getDecryptedTokens(userId);
+        if (!hasRefreshToken(tokens)) {
+            return null;
+        }
+
+        if (isAccessTokenValidUntil(tokens, Instant.now())) {
+            return tokens.accessToken();
+        }
+
+        return refreshSingleFlight(userId, Instant.now());
+    }
+
+    /**
+     * true, wenn {@link #getValidAccessToken} für diesen Nutzer jetzt erst einen Refresh bei Spotify auslösen würde.
+     */
+    public boolean isRefreshDue(Long userId) {
+        SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.getDecryptedTokens(userId);
+        return hasRefreshToken(tokens) && !isAccessTokenValidUntil(tokens, Instant.now());
+    }
+
+    /**
+     * Erneuert den Access Token vorzeitig, falls er vor {@code threshold} abläuft.
+     * – Gibt false zurück, wenn kein Refresh nötig war oder Spotify nicht verbunden ist.
+     */
+    public boolean refreshIfExpiringBefore(Long userId, Instant threshold) {
+        SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.getDecryptedTokens(userId);
+        if (!hasRefreshToken(tokens) || isAccessTokenValidUntil(tokens, threshold)) {
+            return false;
+        }
+
+        return refreshSingleFlight(userId, threshold) != null;
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private String refreshSingleFlight(Long userId, Instant threshold) {
+        CompletableFuture<String> ownRefresh = new CompletableFuture<>();
+        CompletableFuture<String> runningRefresh = inFlightRefreshes.putIfAbsent(userId, ownRefresh);
+        if (runningRefresh != null) {
+            return await(runningRefresh);
+        }
+
+        try {
+            ownRefresh.complete(refresh(userId, threshold));
+        } catch (RuntimeException ex) {
+            ownRefresh.completeExceptionally(ex);
+        } finally {
+            inFlightRefreshes.remove(userId, ownRefresh);
+        }
+
+        return await(ownRefresh);
+    }
+
+    private String refresh(Long userId, Instant threshold) {
+        // Erneut lesen: ein gerade abgeschlossener Refresh hat den Token evtl. schon erneuert
+        SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.getDecryptedTokens(userId);
+        if (!hasRefreshToken(tokens)) {
+            return null;
+        }
+
+        if (isAccessTokenValidUntil(tokens, threshold)) {
+            return tokens.accessToken();
+        }
+
+        if (!tokenLeases.tryAcquire(userId, instanceId, leaseTime)) {
+            return awaitOtherInstance(userId, threshold);
+        }
+        return refreshHoldingLease(userId, threshold);
+    }
+
+    /**
+     * Refresh bei Spotify; die Lease ist erworben und wird am Ende freigegeben.
+     */
+    private String refreshHoldingLease(Long userId, Instant threshold) {
+        try {
+            // An den Caches vorbei lesen: eine andere Instanz kann gerade fertig geworden sein
+            // und dabei auch den Refresh Token rotiert haben
+            SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.reloadTokens(userId);
+            if (!hasRefreshToken(tokens)) {
+                return null;
+            }
+            if (isAccessTokenValidUntil(tokens, threshold)) {
+                return tokens.accessToken();
+            }
+
+            SpotifyAuthService.SpotifyTokenResponse tokenResponse;
+            try {
+                tokenResponse = timedRefresh(tokens.refreshToken());
+            } catch (SpotifyApiException ex) {
+                // Zugriff widerrufen o.ä.: der Scheduler soll es nicht jede Minute erneut versuchen
+                if (ex.isRejected()) {
+                    spotifyTokenService.markRefreshRejected(userId);
+                }
+                throw ex;
+            }
+
+            Instant expiresAt = spotifyTokenService.calculateAccessTokenExpiry(tokenResponse.expiresIn());
+
+            // Tokens sicher in der DB aktualisieren
+            spotifyTokenService.updateTokens(
+                    userId,
+                    tokenResponse.refreshToken(),
+                    tokenResponse.accessToken(),
+                    expiresAt
+            );
+
+            return tokenResponse.accessToken();
+        } finally {
+            tokenLeases.release(userId, instanceId);
+        }
+    }
+
+    /**
+     * Eine andere Instanz hält die Lease: deren Ergebnis aus der DB übernehmen statt selbst Spotify aufzurufen.
+     * – Läuft ihre Lease ab (Instanz abgestürzt), übernimmt diese Instanz den Refresh; lease-wait ist dafür
+     *   länger als lease-time.
+     * – Nach lease-wait ohne Ergebnis → SpotifyUnavailableException (vorübergehend, alter Stand darf angezeigt werden).
+     */
+    private String awaitOtherInstance(Long userId, Instant threshold) {
+        long deadline = System.nanoTime() + leaseWait.toNanos();
+        while (System.nanoTime() < deadline) {
+            sleep(leasePollInterval);
+
+            SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.reloadTokens(userId);
+            if (!hasRefreshToken(tokens)) {
+                return null;
+            }
+            if (isAccessTokenValidUntil(tokens, threshold)) {
+                leaseWaits.increment();
+                return tokens.accessToken();
+            }
+            if (tokenLeases.tryAcquire(userId, instanceId, leaseTime)) {
+                return refreshHoldingLease(userId, threshold);
+            }
+        }
+        throw new SpotifyUnavailableException("token-refresh", null);
+    }
+
+    /**
+     * Timer "spotify.token.refresh": trigger = INTERACTIVE (Request wartet) oder BACKGROUND (Scheduler), outcome.
+     */
+    private SpotifyAuthService.SpotifyTokenResponse timedRefresh(String refreshToken) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            SpotifyAuthService.SpotifyTokenResponse response = spotifyAuthService.refreshAccessToken(refreshToken);
+            outcome = "success";
+            return response;
+        } finally {
+            sample.stop(Timer.builder("spotify.token.refresh")
+                    .description("Spotify access token refreshes")
+                    .tag("trigger", SpotifyCallPriority.current().name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private String await(CompletableFuture<String> refresh) {
+        try {
+            return refresh.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SpotifyUnavailableException("token-refresh", ex);
+        }
+    }
+
+    private boolean hasRefreshToken(SpotifyTokenService.DecryptedSpotifyTokens tokens) {
+        return tokens != null && tokens.refreshToken() != null && !tokens.refreshToken().isBlank();
+    }
+
+    private boolean isAccessTokenValidUntil(SpotifyTokenService.DecryptedSpotifyTokens tokens, Instant threshold) {
+        return tokens.accessToken() != null &&
+                tokens.accessTokenExpiresAt() != null &&
+                tokens.accessTokenExpiresAt().isAfter(threshold);
+    }
+}
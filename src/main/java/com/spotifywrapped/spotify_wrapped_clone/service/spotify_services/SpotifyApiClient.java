@@ -0,0 +1,322 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Gemeinsamer HTTP-Client für alle Aufrufe an accounts.spotify.com und api.spotify.com.
+ * – Keep-Alive Connection-Pool, damit nicht jeder Request einen neuen TLS-Handshake bezahlt.
+ * – Connect-/Read-Timeouts, damit ein hängendes Spotify keine Servlet-Threads blockiert.
+ * – gzip/deflate-Antworten werden vom HttpClient transparent dekodiert.
+ * – Jeder Aufruf geht durch den {@link SpotifyRateLimiter}; 429 wird nach Retry-After wiederholt.
+ * – Circuit Breaker und Bulkhead je Aufrufklasse ({@link SpotifyCircuitBreakers}) lassen Aufrufe bei Ausfällen sofort scheitern.
+ * – HTTP- und I/O-Fehler kommen als {@link SpotifyApiException}, nie als RestClientException.
+ * – Jeder HTTP-Aufruf wird als Timer "spotify.api.requests" erfasst (endpoint = Aufrufklasse, status = 2xx/4xx/…).
+ * – Innerhalb von {@link SpotifyCallCancellation#run} lässt sich der laufende Request von außen abbrechen.
+ */
+@Component
+public class SpotifyApiClient {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    private final SpotifyRateLimiter spotifyRateLimiter;
+    private final SpotifyCircuitBreakers spotifyCircuitBreakers;
+    private final MeterRegistry meterRegistry;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+
+    public SpotifyApiClient(
+            SpotifyRateLimiter spotifyRateLimiter,
+            SpotifyCircuitBreakers spotifyCircuitBreakers,
+            MeterRegistry meterRegistry,
+            @Value("${app.spotify.rate-limit.max-retries:2}") int maxRetries,
+            @Value("${app.spotify.rate-limit.retry-backoff:1s}") Duration retryBackoff,
+            @Value("${app.spotify.http.max-connections:50}") int maxConnections,
+            @Value("${app.spotify.http.max-connections-per-route:25}") int maxConnectionsPerRoute,
+            @Value("${app.spotify.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${app.spotify.http.read-timeout:5s}") Duration readTimeout,
+            @Value("${app.spotify.http.pool-acquire-timeout:1s}") Duration poolAcquireTimeout,
+            @Value("${app.spotify.http.idle-eviction:30s}") Duration idleEviction
+    ) {
+        this.spotifyRateLimiter = spotifyRateLimiter;
+        this.spotifyCircuitBreakers = spotifyCircuitBreakers;
+        this.meterRegistry = meterRegistry;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.of(idleEviction))
+                        .build())
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolAcquireTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .evictExpiredConnections()
+                // 429/503 wiederholt der HttpClient sonst selbst; Retry, Ratelimit und Breaker müssen sie aber sehen
+                .disableAutomaticRetries()
+                .build();
+
+        this.restTemplate = new RestTemplate(new CancellableRequestFactory(httpClient));
+    }
+
+
+    /** ---------------------------------------------
+     *   PUBLIC METHODS
+     *  --------------------------------------------- */
+
+    /**
+     * GET auf die Spotify Web API mit dem Access Token des Nutzers.
+     */
+    public <T> ResponseEntity<T> get(String uri, String accessToken, Class<T> responseType) {
+        return get(uri, accessToken, null, responseType);
+    }
+
+    /**
+     * Bedingtes GET: mit gesetztem ETag antwortet Spotify bei unveränderten Daten mit 304 ohne Body.
+     */
+    public <T> ResponseEntity<T> get(String uri, String accessToken, String ifNoneMatch, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(accessToken);
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+
+        return execute(uri, HttpMethod.GET,
+                () -> restTemplate.exchange(uri, HttpMethod.GET, new HttpEntity<>(headers), responseType));
+    }
+
+    /**
+     * Ungeschütztes GET für Binärdaten, z.B. Albumcover von i.scdn.co.
+     * – Das CDN zählt nicht zum API-Ratelimit, daher ohne {@link SpotifyRateLimiter}.
+     */
+    public ResponseEntity<byte[]> download(String uri) {
+        try {
+            return timed("image", HttpMethod.GET, () -> restTemplate.getForEntity(uri, byte[].class));
+        } catch (RestClientException ex) {
+            throw new SpotifyApiException("Spotify image download failed: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Form-POST (application/x-www-form-urlencoded), z.B. an den Token-Endpoint.
+     */
+    public <T> ResponseEntity<T> postForm(
+            String uri,
+            MultiValueMap<String, String> body,
+            String authorizationHeader,
+            Class<T> responseType
+    ) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.set(HttpHeaders.AUTHORIZATION, authorizationHeader);
+
+        return execute(uri, HttpMethod.POST,
+                () -> restTemplate.postForEntity(uri, new HttpEntity<>(body, headers), responseType));
+    }
+
+    /**
+     * Momentaufnahme des Connection-Pools, um die Poolgröße pro Pod dimensionieren zu können.
+     */
+    public ConnectionPoolStats getPoolStats() {
+        PoolStats stats = connectionManager.getTotalStats();
+        return new ConnectionPoolStats(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax());
+    }
+
+    @PreDestroy
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    /**
+     * Führt den Aufruf unter Circuit Breaker, Ratelimit und Bulkhead der Aufrufklasse aus.
+     * – 429: Aufrufklasse für Retry-After pausieren (ohne Header: exponentiell ab retry-backoff) und erneut versuchen;
+     *   das Warten samt Jitter übernimmt der {@link SpotifyRateLimiter} beim nächsten acquire.
+     * – Nach max-retries oder wenn die Pause die Wartezeit der Priorität übersteigt: {@link SpotifyRateLimitedException}.
+     */
+    private <T> ResponseEntity<T> execute(String uri, HttpMethod method, Supplier<ResponseEntity<T>> call) {
+        String callClass = callClass(uri);
+        SpotifyCallPriority priority = SpotifyCallPriority.current();
+        CircuitBreaker circuitBreaker = spotifyCircuitBreakers.circuitBreaker(callClass);
+        Bulkhead bulkhead = spotifyCircuitBreakers.bulkhead(callClass);
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return guarded(callClass, priority, circuitBreaker, bulkhead, () -> timed(callClass, method, call));
+            } catch (HttpClientErrorException.TooManyRequests ex) {
+                Duration retryAfter = retryAfter(ex.getResponseHeaders(), attempt);
+                spotifyRateLimiter.pause(callClass, retryAfter);
+                if (attempt >= maxRetries) {
+                    throw new SpotifyRateLimitedException(callClass, retryAfter);
+                }
+            } catch (RestClientException ex) {
+                throw new SpotifyApiException("Spotify request failed: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Reihenfolge: erst der Breaker (offen → sofort abbrechen, ohne ein Token zu verbrauchen), dann Ratelimit und Bulkhead.
+     * Für die Langsamkeitsquote zählt nur der HTTP-Aufruf selbst, nicht die Wartezeit davor.
+     */
+    private <T> ResponseEntity<T> guarded(
+            String callClass,
+            SpotifyCallPriority priority,
+            CircuitBreaker circuitBreaker,
+            Bulkhead bulkhead,
+            Supplier<ResponseEntity<T>> call
+    ) {
+        try {
+            circuitBreaker.acquirePermission();
+        } catch (CallNotPermittedException ex) {
+            throw new SpotifyUnavailableException(callClass, ex);
+        }
+
+        try {
+            spotifyRateLimiter.acquire(callClass, priority);
+            bulkhead.acquirePermission();
+        } catch (BulkheadFullException ex) {
+            circuitBreaker.releasePermission();
+            throw new SpotifyUnavailableException(callClass, ex);
+        } catch (RuntimeException ex) {
+            circuitBreaker.releasePermission();
+            throw ex;
+        }
+
+        long start = System.nanoTime();
+        try {
+            ResponseEntity<T> response = call.get();
+            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return response;
+        } catch (RuntimeException ex) {
+            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, ex);
+            throw ex;
+        } finally {
+            bulkhead.onComplete();
+        }
+    }
+
+    /**
+     * Misst nur den HTTP-Aufruf selbst; Tags: endpoint, method, status (Statusklasse oder IO_ERROR ohne Antwort).
+     */
+    private <T> ResponseEntity<T> timed(String endpoint, HttpMethod method, Supplier<ResponseEntity<T>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = "IO_ERROR";
+        try {
+            ResponseEntity<T> response = call.get();
+            status = statusClass(response.getStatusCode().value());
+            return response;
+        } catch (RestClientResponseException ex) {
+            status = statusClass(ex.getStatusCode().value());
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder("spotify.api.requests")
+                    .description("Outbound Spotify HTTP calls")
+                    .tag("endpoint", endpoint)
+                    .tag("method", method.name())
+                    .tag("status", status)
+                    .register(meterRegistry));
+        }
+    }
+
+    private static String statusClass(int status) {
+        return (status / 100) + "xx";
+    }
+
+    private Duration retryAfter(HttpHeaders headers, int attempt) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value != null) {
+            try {
+                return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+            } catch (NumberFormatException ignored) {
+                // Spotify sendet Sekunden; ein HTTP-Datum behandeln wir wie einen fehlenden Header
+            }
+        }
+        return retryBackoff.multipliedBy(1L << Math.min(attempt, 6));
+    }
+
+    /**
+     * Aufrufklasse für Ratelimit-Pausen: der erste Pfadteil nach /v1 (bei /me die ersten beiden,
+     * z.B. "me/top" oder "me/player"); außerhalb der Web API (Token-Endpoint) der Host.
+     */
+    static String callClass(String uri) {
+        URI parsed = URI.create(uri);
+        String path = parsed.getPath() != null ? parsed.getPath() : "";
+        if (!path.startsWith("/v1/")) {
+            return parsed.getHost() != null ? parsed.getHost() : "";
+        }
+
+        String[] segments = path.substring("/v1/".length()).split("/");
+        if (segments.length > 1 && segments[0].equals("me")) {
+            return "me/" + segments[1];
+        }
+        return segments[0];
+    }
+
+    public record ConnectionPoolStats(int leased, int available, int pending, int max) { }
+
+    /**
+     * Meldet jeden erzeugten Request bei der {@link SpotifyCallCancellation} des Threads an, falls es eine gibt.
+     */
+    private static final class CancellableRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+        private CancellableRequestFactory(CloseableHttpClient httpClient) {
+            super(httpClient);
+        }
+
+        @Override
+        protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+            ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+            SpotifyCallCancellation cancellation = SpotifyCallCancellation.current();
+            if (cancellation != null && request instanceof Cancellable cancellable) {
+                cancellation.register(cancellable);
+            }
+            return request;
+        }
+    }
+}
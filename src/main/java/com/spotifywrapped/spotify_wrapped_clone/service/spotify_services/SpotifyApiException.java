@@ -0,0 +1,37 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Fehlgeschlagener Aufruf an Spotify (HTTP-Fehler oder I/O), als IllegalStateException,
+ * damit ihn die Controller wie jeden anderen Spotify-Fehler mit 502 beantworten.
+ */
+public class SpotifyApiException extends IllegalStateException {
+
+    public SpotifyApiException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public SpotifyApiException(String message) {
+        super(message);
+    }
+
+    /**
+     * Vorübergehender Fehler (5xx, Timeout, Verbindungsfehler, Ratelimit, offener Breaker),
+     * bei dem der letzte erfolgreiche Stand weiter angezeigt werden darf.
+     */
+    public boolean isTransient() {
+        return getCause() instanceof HttpServerErrorException || getCause() instanceof ResourceAccessException;
+    }
+
+    /**
+     * Spotify hat die Anfrage selbst abgelehnt (400/401), z.B. invalid_grant nach Widerruf des Zugriffs;
+     * mit denselben Daten schlägt jede Wiederholung wieder fehl.
+     */
+    public boolean isRejected() {
+        return getCause() instanceof HttpClientErrorException.BadRequest
+                || getCause() instanceof HttpClientErrorException.Unauthorized;
+    }
+}
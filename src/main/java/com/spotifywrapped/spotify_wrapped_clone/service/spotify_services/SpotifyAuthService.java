@@ -1,21 +1,22 @@
 package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 @Service
+@RegisterReflectionForBinding(SpotifyAuthService.SpotifyTokenResponse.class)
 public class SpotifyAuthService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final SpotifyApiClient spotifyApiClient;
 
     @Value("${spring.security.oauth2.client.registration.spotify.client-id}")
     private String clientId;
@@ -38,6 +39,10 @@ public class SpotifyAuthService {
     @Value("${app.frontend.spotify-success-redirect:/page.html?connected=spotify}")
     private String successRedirect;
 
+    public SpotifyAuthService(SpotifyApiClient spotifyApiClient) {
+        this.spotifyApiClient = spotifyApiClient;
+    }
+
 
     /** ---------------------------------------------
      *   PUBLIC METHODS
@@ -72,6 +77,16 @@ public class SpotifyAuthService {
         return requestToken(body);
     }
 
+    /**
+     * App-Token (Client Credentials) für nutzerunabhängige Katalogdaten wie /v1/tracks oder /v1/artists.
+     */
+    public SpotifyTokenResponse requestClientCredentialsToken() {
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("grant_type", "client_credentials");
+
+        return requestToken(body);
+    }
+
     public String getSuccessRedirect() {
         return successRedirect;
     }
@@ -82,14 +97,8 @@ public class SpotifyAuthService {
      *  --------------------------------------------- */
 
     private SpotifyTokenResponse requestToken(MultiValueMap<String, String> body) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-        headers.set(HttpHeaders.AUTHORIZATION, buildBasicAuthHeader());
-
-        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(body, headers);
-
         ResponseEntity<SpotifyTokenResponse> response =
-                restTemplate.postForEntity(tokenUri, request, SpotifyTokenResponse.class);
+                spotifyApiClient.postForm(tokenUri, body, buildBasicAuthHeader(), SpotifyTokenResponse.class);
 
         if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
             throw new IllegalStateException("Spotify token request failed with status: " + response.getStatusCode());
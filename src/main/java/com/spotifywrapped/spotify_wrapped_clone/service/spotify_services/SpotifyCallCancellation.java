@@ -0,0 +1,71 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import org.apache.hc.core5.concurrent.Cancellable;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * Bricht einen laufenden Spotify-Aufruf von außen ab, z.B. wenn die Deadline eines Wrapped-Abschnitts abgelaufen ist.
+ * – {@link #run} bindet das Handle an den ausführenden Thread; {@link SpotifyApiClient} meldet dort jeden HTTP-Request an.
+ * – {@link #cancel} schließt die Verbindung des laufenden Requests (der blockierte Read endet sofort) und unterbricht
+ *   den Thread, damit auch das Warten auf Ratelimit, Bulkhead oder Retry endet.
+ * – Wie {@link SpotifyCallPriority} pro Thread; ohne {@link #run} gibt es nichts abzubrechen.
+ */
+public final class SpotifyCallCancellation {
+
+    private static final ThreadLocal<SpotifyCallCancellation> CURRENT = new ThreadLocal<>();
+
+    private Thread thread;
+    private Cancellable request;
+    private boolean cancelled;
+
+    /**
+     * Handle des aktuellen Threads, null außerhalb von {@link #run}.
+     */
+    public static SpotifyCallCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Führt {@code work} abbrechbar aus; wurde schon vorher abgebrochen (Task stand noch in der Queue) → CancellationException.
+     */
+    public <T> T run(Supplier<T> work) {
+        synchronized (this) {
+            if (cancelled) {
+                throw new CancellationException("Spotify call cancelled before it started");
+            }
+            thread = Thread.currentThread();
+        }
+
+        CURRENT.set(this);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.remove();
+            synchronized (this) {
+                thread = null;
+                request = null;
+            }
+            // Ein Abbruch darf den Pool-Thread nicht für die nächste Aufgabe unterbrochen zurücklassen
+            Thread.interrupted();
+        }
+    }
+
+    public synchronized void cancel() {
+        cancelled = true;
+        if (request != null) {
+            request.cancel();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    synchronized void register(Cancellable request) {
+        if (cancelled) {
+            request.cancel();
+        }
+        this.request = request;
+    }
+}
@@ -0,0 +1,30 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+/**
+ * Vorrang eines Spotify-Aufrufs beim {@link SpotifyRateLimiter}.
+ * – Standard ist INTERACTIVE (Controller-Pfade); Hintergrundjobs markieren ihre Arbeit mit {@link #runAs}.
+ * – Gilt pro Thread; auf andere Executor-Threads wird die Priorität nicht übertragen.
+ */
+public enum SpotifyCallPriority {
+    INTERACTIVE,
+    BACKGROUND;
+
+    private static final ThreadLocal<SpotifyCallPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static SpotifyCallPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Führt {@code work} mit der angegebenen Priorität aus und stellt danach die vorherige wieder her.
+     */
+    public static void runAs(SpotifyCallPriority priority, Runnable work) {
+        SpotifyCallPriority previous = CURRENT.get();
+        CURRENT.set(priority);
+        try {
+            work.run();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogAlbum;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogArtist;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogImage;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogTrack;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Metadaten (Name, Artists, Bild) zu Spotify-IDs, geteilt über alle Nutzer.
+ * – Reihenfolge: In-Process-LRU → catalog_* Tabellen → Spotify (/tracks, /artists, /albums mit ids=…).
+ * – Fehlende IDs einer Anfrage werden gesammelt und in möglichst wenigen Spotify-Aufrufen geladen.
+ * – Gleichzeitige Anfragen nach derselben ID warten auf denselben Ladevorgang statt Spotify erneut zu fragen.
+ * – IDs, die Spotify als null beantwortet (unbekannt), werden für negative-ttl nicht erneut angefragt.
+ * – Katalogaufrufe nutzen einen App-Token (Client Credentials), keinen Nutzer-Token.
+ */
+@Service
+@RegisterReflectionForBinding({
+        SpotifyCatalogService.TracksResponse.class,
+        SpotifyCatalogService.ArtistsResponse.class,
+        SpotifyCatalogService.AlbumsResponse.class
+})
+public class SpotifyCatalogService {
+
+    private static final Logger log = LoggerFactory.getLogger(SpotifyCatalogService.class);
+
+    // Maxima der Spotify-Mehrfachabfragen
+    static final int MAX_TRACK_IDS_PER_CALL = 50;
+    static final int MAX_ARTIST_IDS_PER_CALL = 50;
+    static final int MAX_ALBUM_IDS_PER_CALL = 20;
+
+    // App-Token etwas vor Ablauf erneuern
+    private static final Duration APP_TOKEN_LEAD_TIME = Duration.ofMinutes(1);
+
+    private final SpotifyCatalogDBaccess spotifyCatalogDBaccess;
+    private final SpotifyAuthService spotifyAuthService;
+    private final SpotifyApiClient spotifyApiClient;
+    private final ExecutorService loadExecutor;
+    private final Duration loadTimeout;
+    private final AsyncLoadingCache<String, CatalogTrack> tracks;
+    private final AsyncLoadingCache<String, CatalogArtist> artists;
+    private final AsyncLoadingCache<String, CatalogAlbum> albums;
+    // Negativ-Cache: von Spotify als null beantwortete IDs
+    private final Cache<String, Boolean> unknownTracks;
+    private final Cache<String, Boolean> unknownArtists;
+    private final Cache<String, Boolean> unknownAlbums;
+
+    @Value("${app.spotify.api-base-url:https://api.spotify.com/v1}")
+    private String apiBaseUrl = "https://api.spotify.com/v1";
+
+    private AppToken appToken;
+
+    public SpotifyCatalogService(
+            SpotifyCatalogDBaccess spotifyCatalogDBaccess,
+            SpotifyAuthService spotifyAuthService,
+            SpotifyApiClient spotifyApiClient,
+            @Value("${app.spotify.catalog.max-size:100000}") long maxSize,
+            @Value("${app.spotify.catalog.parallelism:4}") int parallelism,
+            @Value("${app.spotify.catalog.load-timeout:5s}") Duration loadTimeout,
+            @Value("${app.spotify.catalog.negative-ttl:10m}") Duration negativeTtl
+    ) {
+        this.spotifyCatalogDBaccess = spotifyCatalogDBaccess;
+        this.spotifyAuthService = spotifyAuthService;
+        this.spotifyApiClient = spotifyApiClient;
+        this.loadTimeout = loadTimeout;
+        this.loadExecutor = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform()
+                .name("spotify-catalog-", 0)
+                .daemon(true)
+                .factory());
+        this.tracks = buildCache(maxSize, this::loadTracks);
+        this.artists = buildCache(maxSize, this::loadArtists);
+        this.albums = buildCache(maxSize, this::loadAlbums);
+        this.unknownTracks = buildNegativeCache(maxSize, negativeTtl);
+        this.unknownArtists = buildNegativeCache(maxSize, negativeTtl);
+        this.unknownAlbums = buildNegativeCache(maxSize, negativeTtl);
+    }
+
+
+    /** ---------------------------------------------
+     *   PUBLIC METHODS
+     *  --------------------------------------------- */
+
+    /**
+     * Liefert die Tracks zu den IDs; unbekannte IDs fehlen in der Map.
+     */
+    public Map<String, CatalogTrack> getTracks(Collection<String> ids) {
+        return await(tracks.getAll(distinct(ids, unknownTracks)));
+    }
+
+    public Map<String, CatalogArtist> getArtists(Collection<String> ids) {
+        return await(artists.getAll(distinct(ids, unknownArtists)));
+    }
+
+    public Map<String, CatalogAlbum> getAlbums(Collection<String> ids) {
+        return await(albums.getAll(distinct(ids, unknownAlbums)));
+    }
+
+    /**
+     * Übernimmt vollständige Track-Objekte aus anderen Spotify-Antworten (Top Tracks, Recently Played),
+     * damit spätere Lookups weder DB noch Spotify brauchen. Album-Daten werden dabei mitgenommen.
+     * – Fehler beim Speichern werden nur geloggt; der Katalog kann jederzeit nachgeladen werden.
+     */
+    public void primeTracks(List<SpotifyTrack> items) {
+        List<CatalogTrack> newTracks = new ArrayList<>();
+        Map<String, CatalogAlbum> newAlbums = new LinkedHashMap<>();
+
+        for (SpotifyTrack item : items) {
+            if (item == null || item.id() == null || item.name() == null) {
+                continue;
+            }
+            unknownTracks.invalidate(item.id());
+            if (tracks.getIfPresent(item.id()) == null) {
+                CatalogTrack track = toCatalogTrack(item);
+                tracks.put(track.id(), CompletableFuture.completedFuture(track));
+                newTracks.add(track);
+            }
+            CatalogAlbum album = toCatalogAlbum(item.album());
+            if (album != null) {
+                unknownAlbums.invalidate(album.id());
+            }
+            if (album != null && albums.getIfPresent(album.id()) == null) {
+                albums.put(album.id(), CompletableFuture.completedFuture(album));
+                newAlbums.put(album.id(), album);
+            }
+        }
+
+        try {
+            spotifyCatalogDBaccess.saveTracks(newTracks);
+            spotifyCatalogDBaccess.saveAlbums(List.copyOf(newAlbums.values()));
+        } catch (RuntimeException ex) {
+            log.warn("Could not store catalog tracks: {}", ex.getMessage());
+        }
+    }
+
+    public void primeArtists(List<SpotifyArtist> items) {
+        List<CatalogArtist> newArtists = new ArrayList<>();
+
+        for (SpotifyArtist item : items) {
+            if (item == null || item.id() == null || item.name() == null) {
+                continue;
+            }
+            unknownArtists.invalidate(item.id());
+            if (artists.getIfPresent(item.id()) == null) {
+                CatalogArtist artist = toCatalogArtist(item);
+                artists.put(artist.id(), CompletableFuture.completedFuture(artist));
+                newArtists.add(artist);
+            }
+        }
+
+        try {
+            spotifyCatalogDBaccess.saveArtists(newArtists);
+        } catch (RuntimeException ex) {
+            log.warn("Could not store catalog artists: {}", ex.getMessage());
+        }
+    }
+
+    public CacheStats getTrackCacheStats() {
+        return tracks.synchronous().stats();
+    }
+
+    public CacheStats getArtistCacheStats() {
+        return artists.synchronous().stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    /**
+     * Caffeine ruft loadAll einmal mit allen IDs auf, die weder gecacht noch gerade in einem anderen Ladevorgang sind.
+     */
+    private <V> AsyncLoadingCache<String, V> buildCache(long maxSize, Function<Set<String>, Map<String, V>> bulkLoader) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync(new CacheLoader<String, V>() {
+                    @Override
+                    public V load(String key) {
+                        return bulkLoader.apply(Set.of(key)).get(key);
+                    }
+
+                    @Override
+                    public Map<String, V> loadAll(Set<? extends String> keys) {
+                        return bulkLoader.apply(Set.copyOf(keys));
+                    }
+                });
+    }
+
+    /**
+     * Merkt sich die IDs eines erfolgreich beantworteten Aufrufs, zu denen Spotify nichts geliefert hat.
+     */
+    private static void rememberUnknown(Cache<String, Boolean> unknown, List<String> requested, Set<String> returned) {
+        for (String id : requested) {
+            if (!returned.contains(id)) {
+                unknown.put(id, Boolean.TRUE);
+            }
+        }
+    }
+
+    private static Cache<String, Boolean> buildNegativeCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    private Map<String, CatalogTrack> loadTracks(Set<String> ids) {
+        Map<String, CatalogTrack> result = new HashMap<>(spotifyCatalogDBaccess.findTracks(ids));
+        List<CatalogTrack> fetched = new ArrayList<>();
+        Map<String, CatalogAlbum> fetchedAlbums = new LinkedHashMap<>();
+
+        for (List<String> chunk : chunks(missing(ids, result), MAX_TRACK_IDS_PER_CALL)) {
+            TracksResponse response = fetchCatalog("/tracks?ids=", chunk, TracksResponse.class);
+            Set<String> returned = new HashSet<>();
+            for (SpotifyTrack item : response.tracks() != null ? response.tracks() : List.<SpotifyTrack>of()) {
+                // Unbekannte IDs liefert Spotify als null
+                if (item == null || item.id() == null) {
+                    continue;
+                }
+                returned.add(item.id());
+                fetched.add(toCatalogTrack(item));
+                CatalogAlbum album = toCatalogAlbum(item.album());
+                if (album != null) {
+                    fetchedAlbums.put(album.id(), album);
+                }
+            }
+            rememberUnknown(unknownTracks, chunk, returned);
+        }
+
+        spotifyCatalogDBaccess.saveTracks(fetched);
+        spotifyCatalogDBaccess.saveAlbums(List.copyOf(fetchedAlbums.values()));
+        fetched.forEach(track -> result.put(track.id(), track));
+        return result;
+    }
+
+    private Map<String, CatalogArtist> loadArtists(Set<String> ids) {
+        Map<String, CatalogArtist> result = new HashMap<>(spotifyCatalogDBaccess.findArtists(ids));
+        List<CatalogArtist> fetched = new ArrayList<>();
+
+        for (List<String> chunk : chunks(missing(ids, result), MAX_ARTIST_IDS_PER_CALL)) {
+            ArtistsResponse response = fetchCatalog("/artists?ids=", chunk, ArtistsResponse.class);
+            List<CatalogArtist> found = response.artists() == null ? List.of() : response.artists().stream()
+                    .filter(item -> item != null && item.id() != null)
+                    .map(SpotifyCatalogService::toCatalogArtist)
+                    .toList();
+            fetched.addAll(found);
+            rememberUnknown(unknownArtists, chunk, found.stream().map(CatalogArtist::id).collect(Collectors.toSet()));
+        }
+
+        spotifyCatalogDBaccess.saveArtists(fetched);
+        fetched.forEach(artist -> result.put(artist.id(), artist));
+        return result;
+    }
+
+    private Map<String, CatalogAlbum> loadAlbums(Set<String> ids) {
+        Map<String, CatalogAlbum> result = new HashMap<>(spotifyCatalogDBaccess.findAlbums(ids));
+        List<CatalogAlbum> fetched = new ArrayList<>();
+
+        for (List<String> chunk : chunks(missing(ids, result), MAX_ALBUM_IDS_PER_CALL)) {
+            AlbumsResponse response = fetchCatalog("/albums?ids=", chunk, AlbumsResponse.class);
+            List<CatalogAlbum> found = response.albums() == null ? List.of() : response.albums().stream()
+                    .map(SpotifyCatalogService::toCatalogAlbum)
+                    .filter(Objects::nonNull)
+                    .toList();
+            fetched.addAll(found);
+            rememberUnknown(unknownAlbums, chunk, found.stream().map(CatalogAlbum::id).collect(Collectors.toSet()));
+        }
+
+        spotifyCatalogDBaccess.saveAlbums(fetched);
+        fetched.forEach(album -> result.put(album.id(), album));
+        return result;
+    }
+
+    private <R> R fetchCatalog(String path, List<String> ids, Class<R> responseType) {
+        ResponseEntity<R> response = spotifyApiClient.get(
+                apiBaseUrl + path + String.join(",", ids), appAccessToken(), responseType);
+
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            throw new IllegalStateException("Spotify request failed with status: " + response.getStatusCode());
+        }
+        return response.getBody();
+    }
+
+    private synchronized String appAccessToken() {
+        Instant now = Instant.now();
+        if (appToken == null || !appToken.expiresAt().isAfter(now.plus(APP_TOKEN_LEAD_TIME))) {
+            SpotifyAuthService.SpotifyTokenResponse token = spotifyAuthService.requestClientCredentialsToken();
+            if (token == null || token.accessToken() == null) {
+                throw new IllegalStateException("Spotify did not return an app access token");
+            }
+            long expiresIn = token.expiresIn() != null ? token.expiresIn() : 3600;
+            appToken = new AppToken(token.accessToken(), now.plusSeconds(expiresIn));
+        }
+        return appToken.accessToken();
+    }
+
+    private <V> Map<String, V> await(CompletableFuture<Map<String, V>> future) {
+        try {
+            return future.get(loadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Spotify catalog lookup was interrupted", ex);
+        } catch (ExecutionException ex) {
+            // Spotify-Fehler (z.B. Ratelimit) unverändert weitergeben
+            if (ex.getCause() instanceof SpotifyApiException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Spotify catalog lookup failed", ex);
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Spotify catalog lookup failed", ex);
+        }
+    }
+
+    private static Set<String> distinct(Collection<String> ids, Cache<String, Boolean> unknown) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && unknown.getIfPresent(id) == null) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> missing(Set<String> ids, Map<String, ?> found) {
+        return ids.stream().filter(id -> !found.containsKey(id)).toList();
+    }
+
+    private static List<List<String>> chunks(List<String> ids, int size) {
+        List<List<String>> result = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += size) {
+            result.add(ids.subList(i, Math.min(ids.size(), i + size)));
+        }
+        return result;
+    }
+
+    private static CatalogTrack toCatalogTrack(SpotifyTrack item) {
+        List<SpotifyArtist> trackArtists = item.artists() != null ? item.artists() : List.of();
+        SpotifyAlbum album = item.album();
+        return new CatalogTrack(
+                item.id(),
+                item.name(),
+                trackArtists.stream().map(SpotifyArtist::id).filter(Objects::nonNull).toList(),
+                trackArtists.stream().map(SpotifyArtist::name).filter(Objects::nonNull).toList(),
+                album != null ? album.id() : null,
+                album != null ? firstImageUrl(album.images()) : null,
+                item.durationMs()
+        );
+    }
+
+    private static CatalogArtist toCatalogArtist(SpotifyArtist item) {
+        return new CatalogArtist(
+                item.id(),
+                item.name(),
+                item.genres() != null ? item.genres() : List.of(),
+                firstImageUrl(item.images())
+        );
+    }
+
+    private static CatalogAlbum toCatalogAlbum(SpotifyAlbum item) {
+        if (item == null || item.id() == null || item.name() == null) {
+            return null;
+        }
+        List<CatalogImage> images = item.images() != null
+                ? item.images().stream()
+                        .filter(image -> image != null && image.url() != null)
+                        .map(image -> new CatalogImage(image.url(), image.width(), image.height()))
+                        .toList()
+                : List.of();
+        return new CatalogAlbum(item.id(), item.name(), firstImageUrl(item.images()), images);
+    }
+
+    private static String firstImageUrl(List<SpotifyImage> images) {
+        return (images != null && !images.isEmpty()) ? images.getFirst().url() : null;
+    }
+
+    private record AppToken(String accessToken, Instant expiresAt) { }
+
+    /* ======== RESPONSE RECORDS ======== */
+
+    public record TracksResponse(List<SpotifyTrack> tracks) {}
+
+    public record ArtistsResponse(List<SpotifyArtist> artists) {}
+
+    public record AlbumsResponse(List<SpotifyAlbum> albums) {}
+
+    public record SpotifyTrack(
+            String id,
+            String name,
+            @JsonProperty("duration_ms") Integer durationMs,
+            List<SpotifyArtist> artists,
+            SpotifyAlbum album
+    ) {}
+
+    /**
+     * Volles Artist-Objekt; in Track-Objekten liefert Spotify nur id und name.
+     */
+    public record SpotifyArtist(
+            String id,
+            String name,
+            List<String> genres,
+            List<SpotifyImage> images
+    ) {}
+
+    public record SpotifyAlbum(String id, String name, List<SpotifyImage> images) {}
+
+    public record SpotifyImage(String url, Integer height, Integer width) {}
+}
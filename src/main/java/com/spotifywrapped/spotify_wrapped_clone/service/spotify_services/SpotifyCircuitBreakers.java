@@ -0,0 +1,89 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Circuit Breaker und Bulkhead pro Spotify-Aufrufklasse (siehe {@link SpotifyApiClient}).
+ * – Der Breaker öffnet, wenn im gleitenden Fenster die Fehler- oder Langsamkeitsquote die Schwelle überschreitet;
+ *   solange er offen ist, schlagen Aufrufe sofort fehl statt einen Servlet-Thread bis zum Timeout zu blockieren.
+ * – Als Fehler zählen nur 5xx und I/O-Fehler; 4xx und 429 sagen nichts über die Verfügbarkeit von Spotify.
+ * – Das Bulkhead begrenzt gleichzeitige Aufrufe je Klasse, damit ein hängender Endpoint nicht den ganzen Pool belegt.
+ */
+@Component
+public class SpotifyCircuitBreakers {
+
+    private static final Predicate<Throwable> IS_FAILURE =
+            ex -> ex instanceof HttpServerErrorException || ex instanceof ResourceAccessException;
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public SpotifyCircuitBreakers(
+            @Value("${app.spotify.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${app.spotify.circuit-breaker.slow-call-rate-threshold:50}") float slowCallRateThreshold,
+            @Value("${app.spotify.circuit-breaker.slow-call-duration:2s}") Duration slowCallDuration,
+            @Value("${app.spotify.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${app.spotify.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${app.spotify.circuit-breaker.open-duration:30s}") Duration openDuration,
+            @Value("${app.spotify.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+            @Value("${app.spotify.bulkhead.max-concurrent-calls:20}") int maxConcurrentCalls,
+            @Value("${app.spotify.bulkhead.max-wait:100ms}") Duration bulkheadMaxWait
+    ) {
+        this.circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .recordException(IS_FAILURE)
+                .ignoreException(IS_FAILURE.negate())
+                .build());
+        this.bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(bulkheadMaxWait)
+                .build());
+    }
+
+    public CircuitBreaker circuitBreaker(String callClass) {
+        return circuitBreakerRegistry.circuitBreaker(callClass);
+    }
+
+    public Bulkhead bulkhead(String callClass) {
+        return bulkheadRegistry.bulkhead(callClass);
+    }
+
+    /**
+     * Aktueller Zustand aller bisher benutzten Breaker, nach Aufrufklasse sortiert.
+     */
+    public Map<String, CircuitBreaker.State> getStates() {
+        Map<String, CircuitBreaker.State> states = new TreeMap<>();
+        circuitBreakerRegistry.getAllCircuitBreakers()
+                .forEach(breaker -> states.put(breaker.getName(), breaker.getState()));
+        return states;
+    }
+
+    public CircuitBreakerRegistry getCircuitBreakerRegistry() {
+        return circuitBreakerRegistry;
+    }
+
+    public BulkheadRegistry getBulkheadRegistry() {
+        return bulkheadRegistry;
+    }
+}
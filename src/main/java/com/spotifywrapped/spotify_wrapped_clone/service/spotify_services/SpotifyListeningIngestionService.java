@@ -0,0 +1,322 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.IngestionState;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.ListeningEvent;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService.SpotifyTrack;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sammelt die zuletzt gehörten Tracks aller verbundenen Nutzer in listening_events,
+ * da Spotify selbst nur die letzten 50 Wiedergaben liefert.
+ * – Pro Nutzer wird ein after-Cursor gespeichert, damit jede Wiedergabe nur einmal geholt wird.
+ * – Das Poll-Intervall passt sich an: ohne neue Wiedergaben verdoppelt, bei vollem halben Fenster halbiert.
+ * – Alle Aufrufe zusammen sind auf max-calls-per-minute begrenzt, gezählt über ein gleitendes Minutenfenster;
+ *   ein dafür nötiger Token-Refresh zählt als eigener Aufruf. Die Grenze gilt pro Instanz, bei N Instanzen also N-fach.
+ * – Jeder fällige Nutzer wird vor dem Poll in der Datenbank beansprucht, damit ihn bei mehreren Instanzen nur eine pollt.
+ * – Abschaltbar per app.spotify.ingestion.enabled=false; zur Laufzeit geprüft statt per @ConditionalOnProperty,
+ *   das mit Spring AOT (Profil fast-startup) schon beim Build feststünde.
+ */
+@Service
+@RegisterReflectionForBinding(SpotifyListeningIngestionService.RecentlyPlayedResponse.class)
+public class SpotifyListeningIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SpotifyListeningIngestionService.class);
+
+    // Maximum von /me/player/recently-played
+    private static final int PAGE_SIZE = 50;
+
+    private final ListeningEventDBaccess listeningEventDBaccess;
+    private final SpotifyAccessTokenProvider spotifyAccessTokenProvider;
+    private final SpotifyApiClient spotifyApiClient;
+    private final ListeningIndex listeningIndex;
+    private final SpotifyCatalogService spotifyCatalogService;
+    private final ExecutorService pollExecutor;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxCallsPerMinute;
+    private final Duration initialInterval;
+    private final Duration minInterval;
+    private final Duration maxInterval;
+
+    @Value("${app.spotify.api-base-url:https://api.spotify.com/v1}")
+    private String apiBaseUrl = "https://api.spotify.com/v1";
+
+    // So lange bleibt ein beanspruchter Nutzer gesperrt, falls die Instanz während des Polls ausfällt
+    @Value("${app.spotify.ingestion.claim-timeout:5m}")
+    private Duration claimTimeout = Duration.ofMinutes(5);
+
+    // System.nanoTime() jedes Aufrufs der letzten Minute – gleitendes Fenster, höchstens max-calls-per-minute Einträge
+    private final ArrayDeque<Long> callTimes = new ArrayDeque<>();
+
+    private final LongAdder polledUsers = new LongAdder();
+    private final LongAdder ingestedEvents = new LongAdder();
+    private final LongAdder failedPolls = new LongAdder();
+
+    public SpotifyListeningIngestionService(
+            ListeningEventDBaccess listeningEventDBaccess,
+            SpotifyAccessTokenProvider spotifyAccessTokenProvider,
+            SpotifyApiClient spotifyApiClient,
+            ListeningIndex listeningIndex,
+            SpotifyCatalogService spotifyCatalogService,
+            @Value("${app.spotify.ingestion.enabled:true}") boolean enabled,
+            @Value("${app.spotify.ingestion.batch-size:50}") int batchSize,
+            @Value("${app.spotify.ingestion.parallelism:4}") int parallelism,
+            @Value("${app.spotify.ingestion.max-calls-per-minute:300}") int maxCallsPerMinute,
+            @Value("${app.spotify.ingestion.initial-interval:30m}") Duration initialInterval,
+            @Value("${app.spotify.ingestion.min-interval:10m}") Duration minInterval,
+            @Value("${app.spotify.ingestion.max-interval:2h}") Duration maxInterval
+    ) {
+        this.listeningEventDBaccess = listeningEventDBaccess;
+        this.spotifyAccessTokenProvider = spotifyAccessTokenProvider;
+        this.spotifyApiClient = spotifyApiClient;
+        this.listeningIndex = listeningIndex;
+        this.spotifyCatalogService = spotifyCatalogService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxCallsPerMinute = maxCallsPerMinute;
+        this.initialInterval = initialInterval;
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.pollExecutor = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform()
+                .name("spotify-ingestion-", 0)
+                .daemon(true)
+                .factory());
+        if (!enabled) {
+            log.info("Listening history ingestion disabled (app.spotify.ingestion.enabled=false)");
+        }
+    }
+
+    /**
+     * Pollt alle fälligen Nutzer seitenweise, solange das Aufruf-Budget der letzten Minute reicht.
+     * Übrig gebliebene Nutzer bleiben fällig und kommen im nächsten Lauf zuerst dran;
+     * Nutzer, die eine andere Instanz schon beansprucht hat, werden übersprungen.
+     */
+    @Scheduled(
+            fixedDelayString = "${app.spotify.ingestion.tick:15s}",
+            initialDelayString = "${app.spotify.ingestion.initial-delay:1m}"
+    )
+    public void pollDueUsers() {
+        if (!enabled) {
+            return;
+        }
+        while (true) {
+            int limit = Math.min(batchSize, availableCalls());
+            if (limit == 0) {
+                return;
+            }
+
+            List<IngestionState> due = listeningEventDBaccess.findDueStates(Instant.now(), limit);
+            List<IngestionState> batch = new ArrayList<>(due.size());
+            boolean budgetExhausted = false;
+            for (IngestionState state : due) {
+                // Abgelaufener Access Token → vor recently-played noch ein Refresh-Aufruf
+                int calls = spotifyAccessTokenProvider.isRefreshDue(state.userId()) ? 2 : 1;
+                if (!tryAcquireCalls(calls)) {
+                    budgetExhausted = true;
+                    break;
+                }
+                if (!listeningEventDBaccess.claimDue(state, initialInterval, Instant.now().plus(claimTimeout))) {
+                    releaseCalls(calls);
+                    continue;
+                }
+                batch.add(state);
+            }
+
+            if (!batch.isEmpty()) {
+                pollBatch(batch);
+            }
+
+            // Verlorene Claims sind nicht mehr fällig, die nächste Seite liefert also andere Nutzer
+            if (budgetExhausted || due.size() < limit) {
+                return;
+            }
+        }
+    }
+
+    public long getPolledUserCount() {
+        return polledUsers.sum();
+    }
+
+    public long getIngestedEventCount() {
+        return ingestedEvents.sum();
+    }
+
+    public long getFailedPollCount() {
+        return failedPolls.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollExecutor.shutdownNow();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private void pollBatch(List<IngestionState> states) {
+        CompletableFuture<?>[] polls = states.stream()
+                .map(state -> CompletableFuture.runAsync(
+                        () -> SpotifyCallPriority.runAs(SpotifyCallPriority.BACKGROUND, () -> pollUser(state)),
+                        pollExecutor))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(polls).join();
+    }
+
+    private void pollUser(IngestionState state) {
+        Long userId = state.userId();
+        Duration interval = state.pollIntervalSeconds() != null
+                ? Duration.ofSeconds(state.pollIntervalSeconds())
+                : initialInterval;
+
+        try {
+            String accessToken = spotifyAccessTokenProvider.getValidAccessToken(userId);
+            if (accessToken == null) {
+                // Verbindung getrennt → selten nachsehen
+                listeningEventDBaccess.saveState(userId, state.afterCursor(), maxInterval, Instant.now().plus(maxInterval));
+                return;
+            }
+
+            String uri = apiBaseUrl + "/me/player/recently-played?limit=" + PAGE_SIZE
+                    + (state.afterCursor() != null ? "&after=" + state.afterCursor() : "");
+            ResponseEntity<RecentlyPlayedResponse> response =
+                    spotifyApiClient.get(uri, accessToken, RecentlyPlayedResponse.class);
+
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                throw new IllegalStateException("Spotify request failed with status: " + response.getStatusCode());
+            }
+
+            List<PlayHistory> items = response.getBody().items() != null ? response.getBody().items() : List.of();
+            List<ListeningEvent> events = new ArrayList<>(items.size());
+            List<SpotifyTrack> tracks = new ArrayList<>(items.size());
+            Long afterCursor = state.afterCursor();
+
+            for (PlayHistory item : items) {
+                Instant playedAt = Instant.parse(item.playedAt());
+                long playedAtMillis = playedAt.toEpochMilli();
+
+                // Bereits gespeichert; Spotify liefert nach "after" eigentlich nur neuere Einträge
+                if (state.afterCursor() != null && playedAtMillis <= state.afterCursor()) {
+                    continue;
+                }
+                afterCursor = afterCursor == null ? playedAtMillis : Math.max(afterCursor, playedAtMillis);
+
+                // Lokale Dateien haben keine Spotify-ID
+                if (item.track() != null && item.track().id() != null) {
+                    events.add(mapToEvent(item, playedAt));
+                    tracks.add(item.track());
+                }
+            }
+
+            Duration nextInterval = nextPollInterval(interval, items.size());
+            listeningEventDBaccess.appendEvents(userId, events, afterCursor, nextInterval, Instant.now().plus(nextInterval));
+            listeningIndex.append(userId, events);
+            // Gespeichert werden nur IDs; Namen und Bilder landen einmalig im Katalog
+            spotifyCatalogService.primeTracks(tracks);
+
+            polledUsers.increment();
+            ingestedEvents.add(events.size());
+        } catch (RuntimeException ex) {
+            failedPolls.increment();
+            log.warn("Recently-played ingestion failed for user {}: {}", userId, ex.getMessage());
+            try {
+                // Beim nächsten regulären Intervall erneut versuchen statt in jedem Lauf
+                listeningEventDBaccess.saveState(userId, state.afterCursor(), interval, Instant.now().plus(interval));
+            } catch (RuntimeException stateEx) {
+                log.warn("Could not store ingestion state for user {}: {}", userId, stateEx.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Keine neuen Wiedergaben → Intervall verdoppeln (bis max-interval);
+     * mindestens halbes Fenster gefüllt → halbieren (bis min-interval), damit nichts aus den 50 Einträgen fällt.
+     */
+    private Duration nextPollInterval(Duration current, int plays) {
+        if (plays == 0) {
+            Duration doubled = current.multipliedBy(2);
+            return doubled.compareTo(maxInterval) > 0 ? maxInterval : doubled;
+        }
+        if (plays >= PAGE_SIZE / 2) {
+            Duration halved = current.dividedBy(2);
+            return halved.compareTo(minInterval) < 0 ? minInterval : halved;
+        }
+        return current;
+    }
+
+    private ListeningEvent mapToEvent(PlayHistory item, Instant playedAt) {
+        SpotifyTrack track = item.track();
+        String artistId = (track.artists() != null && !track.artists().isEmpty())
+                ? track.artists().getFirst().id()
+                : null;
+        int durationMs = track.durationMs() != null ? track.durationMs() : 0;
+        return new ListeningEvent(track.id(), artistId, playedAt, durationMs);
+    }
+
+    private synchronized int availableCalls() {
+        evictCallsOlderThanOneMinute(System.nanoTime());
+        return Math.max(0, maxCallsPerMinute - callTimes.size());
+    }
+
+    /**
+     * Alles oder nichts: {@code calls} Aufrufe nur, wenn sie in den letzten 60 Sekunden noch Platz haben.
+     */
+    private synchronized boolean tryAcquireCalls(int calls) {
+        long now = System.nanoTime();
+        evictCallsOlderThanOneMinute(now);
+        if (callTimes.size() + calls > maxCallsPerMinute) {
+            return false;
+        }
+        for (int i = 0; i < calls; i++) {
+            callTimes.addLast(now);
+        }
+        return true;
+    }
+
+    /**
+     * Gibt reservierte, aber ungenutzte Aufrufe zurück, z.B. wenn eine andere Instanz den Nutzer beansprucht hat.
+     */
+    private synchronized void releaseCalls(int calls) {
+        for (int i = 0; i < calls && !callTimes.isEmpty(); i++) {
+            callTimes.removeLast();
+        }
+    }
+
+    private void evictCallsOlderThanOneMinute(long now) {
+        long windowStart = now - TimeUnit.MINUTES.toNanos(1);
+        while (!callTimes.isEmpty() && callTimes.peekFirst() - windowStart <= 0) {
+            callTimes.removeFirst();
+        }
+    }
+
+    /* ======== RESPONSE RECORDS ======== */
+
+    public record RecentlyPlayedResponse(List<PlayHistory> items) {}
+
+    public record PlayHistory(
+            SpotifyTrack track,
+            @JsonProperty("played_at") String playedAt
+    ) {}
+}
@@ -2,67 +2,56 @@ package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyProfileDto;
-import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.time.Instant;
+import java.time.Duration;
 import java.util.List;
 
 @Service
+@RegisterReflectionForBinding(SpotifyProfileService.SpotifyUserProfileResponse.class)
 public class SpotifyProfileService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final SpotifyAuthService spotifyAuthService;
-    private final SpotifyTokenService spotifyTokenService;
+    private final SpotifyResponseCache spotifyResponseCache;
+    private final SpotifyAccessTokenProvider spotifyAccessTokenProvider;
 
     @Value("${spring.security.oauth2.client.provider.spotify.user-info-uri}")
     private String userInfoUri;
 
+    @Value("${app.spotify.response-cache.profile-ttl:10m}")
+    private Duration profileTtl;
+
     public SpotifyProfileService(
-            SpotifyAuthService spotifyAuthService,
-            SpotifyTokenService spotifyTokenService
+            SpotifyResponseCache spotifyResponseCache,
+            SpotifyAccessTokenProvider spotifyAccessTokenProvider
     ) {
-        this.spotifyAuthService = spotifyAuthService;
-        this.spotifyTokenService = spotifyTokenService;
+        this.spotifyResponseCache = spotifyResponseCache;
+        this.spotifyAccessTokenProvider = spotifyAccessTokenProvider;
     }
 
     /**
      * Lädt das Spotify-Profil eines Nutzers anhand seines gespeicherten Tokens.
      * – Holt automatisch einen frischen Access-Token falls nötig.
+     * – Antworten werden pro Nutzer gecacht und per ETag revalidiert.
      */
-    public SpotifyProfileDto fetchProfile(User user) {
-        if (user == null) {
-            return null;
-        }
-
-        SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.getDecryptedTokens(user.getId());
-        if (tokens == null || tokens.refreshToken() == null || tokens.refreshToken().isBlank()) {
+    public SpotifyResponseCache.SpotifyCachedResponse<SpotifyProfileDto> fetchProfile(Long userId) {
+        if (userId == null) {
             return null;
         }
 
-        // Stellt sicher, dass wir einen gültigen Access Token haben
-        String accessToken = getValidAccessToken(user.getId(), tokens);
-
         // Anfrage an Spotify /me Endpoint
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(accessToken);
-
-        ResponseEntity<SpotifyUserProfileResponse> response = restTemplate.exchange(
+        return spotifyResponseCache.fetch(
+                userId,
                 userInfoUri,
-                HttpMethod.GET,
-                new HttpEntity<>(headers),
-                SpotifyUserProfileResponse.class
+                profileTtl,
+                SpotifyUserProfileResponse.class,
+                this::mapToDto,
+                () -> spotifyAccessTokenProvider.getValidAccessToken(userId)
         );
+    }
 
-        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-            throw new IllegalStateException("Failed to load Spotify profile with status: " + response.getStatusCode());
-        }
-
-        SpotifyUserProfileResponse profile = response.getBody();
-
+    private SpotifyProfileDto mapToDto(SpotifyUserProfileResponse profile) {
         // Erstes Profilbild verwenden (Spotify gibt meist nur eins zurück)
         String imageUrl = (profile.images() != null && !profile.images().isEmpty())
                 ? profile.images().getFirst().url()
@@ -76,38 +65,6 @@ public class SpotifyProfileService {
         );
     }
 
-    /**
-     * Liefert einen gültigen Access Token:
-     * – Falls der gespeicherte Token noch gültig ist → wird er genutzt.
-     * – Falls er abgelaufen ist → wird ein neuer per Refresh Token geholt.
-     * – Speichert neue Token verschlüsselt in der Datenbank.
-     */
-    private String getValidAccessToken(Long userId, SpotifyTokenService.DecryptedSpotifyTokens tokens) {
-        Instant now = Instant.now();
-
-        if (tokens.accessToken() != null &&
-                tokens.accessTokenExpiresAt() != null &&
-                tokens.accessTokenExpiresAt().isAfter(now)) {
-            return tokens.accessToken();
-        }
-
-        // Token ist abgelaufen → neuen holen
-        SpotifyAuthService.SpotifyTokenResponse tokenResponse =
-                spotifyAuthService.refreshAccessToken(tokens.refreshToken());
-
-        Instant expiresAt = spotifyTokenService.calculateAccessTokenExpiry(tokenResponse.expiresIn());
-
-        // Tokens sicher in der DB aktualisieren
-        spotifyTokenService.updateTokens(
-                userId,
-                tokenResponse.refreshToken(),
-                tokenResponse.accessToken(),
-                expiresAt
-        );
-
-        return tokenResponse.accessToken();
-    }
-
     /**
      * Response DTOs für das Spotify User-Profil.
      */
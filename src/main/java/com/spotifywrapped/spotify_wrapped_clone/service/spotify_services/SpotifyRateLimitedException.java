@@ -0,0 +1,26 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import java.time.Duration;
+
+/**
+ * Aufruf wurde wegen des Spotify-Ratelimits nicht (mehr) ausgeführt.
+ * {@link #getRetryAfter()} ist die verbleibende Pause der Aufrufklasse, passend für einen Retry-After-Header.
+ */
+public class SpotifyRateLimitedException extends SpotifyApiException {
+
+    private final Duration retryAfter;
+
+    public SpotifyRateLimitedException(String callClass, Duration retryAfter) {
+        super("Spotify rate limit reached for " + callClass);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public boolean isTransient() {
+        return true;
+    }
+}
@@ -0,0 +1,210 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Globales Token-Bucket-Limit für alle ausgehenden Spotify-Aufrufe dieser Instanz.
+ * – INTERACTIVE-Aufrufe haben Vorrang: BACKGROUND wartet, solange interaktive Aufrufe warten,
+ *   und lässt immer interactive-reserve Tokens für Nutzeranfragen übrig.
+ * – Nach einem 429 wird die betroffene Aufrufklasse (z.B. "me/top") für Retry-After pausiert;
+ *   Wartende starten danach mit zufälligem Versatz, damit nicht alle gleichzeitig erneut anfragen.
+ * – Wer länger als seine max-wait warten müsste, bekommt sofort eine {@link SpotifyRateLimitedException}.
+ */
+@Component
+public class SpotifyRateLimiter {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final double interactiveReserve;
+    private final Duration interactiveMaxWait;
+    private final Duration backgroundMaxWait;
+    private final Duration retryJitter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition tokensChanged = lock.newCondition();
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private int waitingInteractive;
+    private int waitingBackground;
+
+    // Aufrufklasse → System.nanoTime(), bis zu dem nach einem 429 pausiert wird
+    private final Map<String, Long> pausedUntil = new ConcurrentHashMap<>();
+
+    private final LongAdder throttleEvents = new LongAdder();
+    private final LongAdder rejectedCalls = new LongAdder();
+
+    public SpotifyRateLimiter(
+            @Value("${app.spotify.rate-limit.requests-per-second:20}") double requestsPerSecond,
+            @Value("${app.spotify.rate-limit.burst:40}") int burst,
+            @Value("${app.spotify.rate-limit.interactive-reserve:10}") int interactiveReserve,
+            @Value("${app.spotify.rate-limit.interactive-max-wait:2s}") Duration interactiveMaxWait,
+            @Value("${app.spotify.rate-limit.background-max-wait:1m}") Duration backgroundMaxWait,
+            @Value("${app.spotify.rate-limit.retry-jitter:500ms}") Duration retryJitter
+    ) {
+        this.tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.interactiveReserve = Math.min(interactiveReserve, this.burst - 1);
+        this.interactiveMaxWait = interactiveMaxWait;
+        this.backgroundMaxWait = backgroundMaxWait;
+        this.retryJitter = retryJitter;
+        this.tokens = this.burst;
+    }
+
+
+    /** ---------------------------------------------
+     *   PUBLIC METHODS
+     *  --------------------------------------------- */
+
+    /**
+     * Blockiert, bis ein Aufruf der Klasse mit dieser Priorität erlaubt ist.
+     *
+     * @throws SpotifyRateLimitedException wenn das länger als die max-wait der Priorität dauern würde
+     */
+    public void acquire(String callClass, SpotifyCallPriority priority) {
+        long deadline = System.nanoTime() + maxWait(priority).toNanos();
+        awaitPause(callClass, deadline);
+        awaitToken(callClass, priority, deadline);
+    }
+
+    /**
+     * Pausiert die Aufrufklasse nach einem 429 für {@code retryAfter} (eine längere bestehende Pause bleibt).
+     */
+    public void pause(String callClass, Duration retryAfter) {
+        throttleEvents.increment();
+        long until = System.nanoTime() + retryAfter.toNanos();
+        pausedUntil.merge(callClass, until, Math::max);
+    }
+
+    public int getWaitingInteractiveCount() {
+        lock.lock();
+        try {
+            return waitingInteractive;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaitingBackgroundCount() {
+        lock.lock();
+        try {
+            return waitingBackground;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getThrottleEventCount() {
+        return throttleEvents.sum();
+    }
+
+    public long getRejectedCallCount() {
+        return rejectedCalls.sum();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private void awaitPause(String callClass, long deadline) {
+        Long until = pausedUntil.get(callClass);
+        if (until == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long remaining = until - now;
+        if (remaining <= 0) {
+            pausedUntil.remove(callClass, until);
+            return;
+        }
+
+        long sleep = remaining + ThreadLocalRandom.current().nextLong(retryJitter.toNanos() + 1);
+        if (now + sleep > deadline) {
+            reject(callClass, Duration.ofNanos(remaining));
+        }
+        sleepNanos(sleep);
+    }
+
+    private void awaitToken(String callClass, SpotifyCallPriority priority, long deadline) {
+        boolean interactive = priority == SpotifyCallPriority.INTERACTIVE;
+
+        lock.lock();
+        try {
+            if (interactive) {
+                waitingInteractive++;
+            } else {
+                waitingBackground++;
+            }
+
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+
+                    double required = interactive ? 1 : 1 + interactiveReserve;
+                    boolean allowed = tokens >= required && (interactive || waitingInteractive == 0);
+                    if (allowed) {
+                        tokens -= 1;
+                        return;
+                    }
+
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        reject(callClass, Duration.ofNanos((long) Math.ceil((required - tokens) / tokensPerNano)));
+                    }
+
+                    // Auf genug Tokens warten; ein interaktiver Aufruf, der fertig wird, weckt vorher auf
+                    long untilEnoughTokens = (long) Math.ceil(Math.max(required - tokens, 0) / tokensPerNano);
+                    long wait = Math.max(TimeUnit.MILLISECONDS.toNanos(1), untilEnoughTokens);
+                    tokensChanged.awaitNanos(Math.min(wait, remaining));
+                }
+            } finally {
+                if (interactive) {
+                    waitingInteractive--;
+                    tokensChanged.signalAll();
+                } else {
+                    waitingBackground--;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SpotifyApiException("Interrupted while waiting for the Spotify rate limit", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+
+    private Duration maxWait(SpotifyCallPriority priority) {
+        return priority == SpotifyCallPriority.INTERACTIVE ? interactiveMaxWait : backgroundMaxWait;
+    }
+
+    private void reject(String callClass, Duration retryAfter) {
+        rejectedCalls.increment();
+        throw new SpotifyRateLimitedException(callClass, retryAfter);
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SpotifyApiException("Interrupted while waiting for the Spotify rate limit", ex);
+        }
+    }
+}
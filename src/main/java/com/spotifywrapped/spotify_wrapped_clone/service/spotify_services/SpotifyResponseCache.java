@@ -0,0 +1,147 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Pro-Nutzer-Cache für Antworten der Spotify Web API.
+ * – Innerhalb der TTL wird die Antwort ohne Spotify-Aufruf (und ohne Token-Lookup) geliefert.
+ * – Danach wird mit If-None-Match revalidiert: ein 304 kostet weder Download noch JSON-Parsing.
+ * – Gespeichert wird das fertige DTO samt serialisiertem JSON, das direkt in die Response geschrieben werden kann.
+ * – Ist Spotify gestört, wird der letzte erfolgreiche Stand (bis max-age) mit stale = true geliefert.
+ */
+@Component
+public class SpotifyResponseCache {
+
+    private final SpotifyApiClient spotifyApiClient;
+    private final ObjectMapper objectMapper;
+    private final Cache<CacheKey, CachedResponse<?>> responses;
+    private final LongAdder staleResponses = new LongAdder();
+
+    public SpotifyResponseCache(
+            SpotifyApiClient spotifyApiClient,
+            ObjectMapper objectMapper,
+            @Value("${app.spotify.response-cache.max-size:10000}") long maxSize,
+            @Value("${app.spotify.response-cache.max-age:24h}") Duration maxAge
+    ) {
+        this.spotifyApiClient = spotifyApiClient;
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(maxAge)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Lädt {@code uri} für den Nutzer, bevorzugt aus dem Cache.
+     * – Gibt null zurück, wenn {@code accessTokenSupplier} keinen Token liefert (Spotify nicht verbunden).
+     */
+    @SuppressWarnings("unchecked")
+    public <R, D> SpotifyCachedResponse<D> fetch(
+            Long userId,
+            String uri,
+            Duration ttl,
+            Class<R> responseType,
+            Function<R, D> mapper,
+            Supplier<String> accessTokenSupplier
+    ) {
+        CacheKey key = new CacheKey(userId, uri);
+        CachedResponse<D> cached = (CachedResponse<D>) responses.getIfPresent(key);
+        Instant now = Instant.now();
+
+        if (cached != null && cached.fetchedAt().plus(ttl).isAfter(now)) {
+            return cached.response();
+        }
+
+        String etag = cached != null ? cached.etag() : null;
+        ResponseEntity<R> response;
+        try {
+            String accessToken = accessTokenSupplier.get();
+            if (accessToken == null) {
+                return null;
+            }
+            response = spotifyApiClient.get(uri, accessToken, etag, responseType);
+        } catch (SpotifyApiException ex) {
+            // Spotify gestört (Breaker offen, 5xx, Timeout, Ratelimit) → letzten guten Stand als veraltet liefern
+            if (cached != null && ex.isTransient()) {
+                staleResponses.increment();
+                return cached.response().asStale();
+            }
+            throw ex;
+        }
+
+        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && cached != null) {
+            responses.put(key, new CachedResponse<>(cached.etag(), now, cached.response()));
+            return cached.response();
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            throw new IllegalStateException("Spotify request failed with status: " + response.getStatusCode());
+        }
+
+        D body = mapper.apply(response.getBody());
+        SpotifyCachedResponse<D> result = new SpotifyCachedResponse<>(body, serialize(body));
+        responses.put(key, new CachedResponse<>(response.getHeaders().getETag(), now, result));
+        return result;
+    }
+
+    /**
+     * Entfernt alle Antworten eines Nutzers, z.B. wenn er ein anderes Spotify-Konto verbindet.
+     */
+    public void invalidateUser(Long userId) {
+        responses.asMap().keySet().removeIf(key -> key.userId().equals(userId));
+    }
+
+    public CacheStats getCacheStats() {
+        return responses.stats();
+    }
+
+    public long getStaleResponseCount() {
+        return staleResponses.sum();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize Spotify response", ex);
+        }
+    }
+
+    private record CacheKey(Long userId, String uri) { }
+
+    private record CachedResponse<D>(String etag, Instant fetchedAt, SpotifyCachedResponse<D> response) { }
+
+    /**
+     * Gemapptes DTO und dessen JSON-Darstellung; {@code stale} heißt, Spotify war beim Revalidieren nicht erreichbar.
+     */
+    public record SpotifyCachedResponse<D>(D body, byte[] json, boolean stale) {
+
+        public SpotifyCachedResponse(D body, byte[] json) {
+            this(body, json, false);
+        }
+
+        public SpotifyCachedResponse<D> asStale() {
+            return new SpotifyCachedResponse<>(body, json, true);
+        }
+    }
+}
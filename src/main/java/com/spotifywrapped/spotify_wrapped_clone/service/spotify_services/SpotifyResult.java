@@ -0,0 +1,8 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+/**
+ * Ergebnis eines Spotify-Lookups; {@code stale} heißt, es ist der letzte erfolgreiche Stand,
+ * weil Spotify gerade nicht erreichbar war.
+ */
+public record SpotifyResult<D>(D data, boolean stale) {
+}
@@ -0,0 +1,21 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+/**
+ * Zeiträume der Spotify Top-Items (/v1/me/top/{type}?time_range=...).
+ */
+public enum SpotifyTimeRange {
+
+    SHORT_TERM("short_term"),
+    MEDIUM_TERM("medium_term"),
+    LONG_TERM("long_term");
+
+    private final String parameter;
+
+    SpotifyTimeRange(String parameter) {
+        this.parameter = parameter;
+    }
+
+    public String parameter() {
+        return parameter;
+    }
+}
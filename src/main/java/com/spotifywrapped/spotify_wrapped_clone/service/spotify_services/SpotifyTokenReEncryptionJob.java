@@ -0,0 +1,156 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess.ReEncryptedToken;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess.StoredTokenCiphertext;
+import com.spotifywrapped.spotify_wrapped_clone.service.SensitiveDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Schlüsselt gespeicherte Spotify-Tokens im laufenden Betrieb auf die aktive Schlüsselversion um.
+ * – Je alter Version (0 = Altbestand CBC/hex) seitenweise per Keyset über die ID, eine Transaktion pro Seite.
+ * – Gedrosselt auf app.crypto.reencryption.rows-per-second, damit DB und CPU für Live-Traffic frei bleiben.
+ * – Zeilen, die ein Refresh zwischen Lesen und Schreiben geändert hat, werden übersprungen (bereits aktuell).
+ * Ablauf einer Rotation: neuen Schlüssel in app.crypto.token-keys ergänzen, token-key-version hochsetzen;
+ * der alte Schlüssel wird erst entfernt, wenn keine Zeile mehr mit seiner Version existiert.
+ * Abschaltbar per app.crypto.reencryption.enabled=false; zur Laufzeit geprüft statt per @ConditionalOnProperty,
+ * das mit Spring AOT (Profil fast-startup) schon beim Build feststünde.
+ */
+@Service
+public class SpotifyTokenReEncryptionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SpotifyTokenReEncryptionJob.class);
+
+    private final SpotifyTokenDBaccess spotifyTokenDBaccess;
+    private final SensitiveDataService sensitiveDataService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final double rowsPerSecond;
+
+    private final LongAdder reEncryptedRows = new LongAdder();
+    private final LongAdder skippedRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+
+    public SpotifyTokenReEncryptionJob(
+            SpotifyTokenDBaccess spotifyTokenDBaccess,
+            SensitiveDataService sensitiveDataService,
+            @Value("${app.crypto.reencryption.enabled:true}") boolean enabled,
+            @Value("${app.crypto.reencryption.batch-size:200}") int batchSize,
+            @Value("${app.crypto.reencryption.rows-per-second:500}") double rowsPerSecond
+    ) {
+        this.spotifyTokenDBaccess = spotifyTokenDBaccess;
+        this.sensitiveDataService = sensitiveDataService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.rowsPerSecond = rowsPerSecond;
+        if (!enabled) {
+            log.info("Token re-encryption disabled (app.crypto.reencryption.enabled=false)");
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.crypto.reencryption.interval:10m}",
+            initialDelayString = "${app.crypto.reencryption.initial-delay:1m}"
+    )
+    public void reEncryptOutdatedTokens() {
+        if (!enabled) {
+            return;
+        }
+        int activeVersion = sensitiveDataService.getActiveTokenKeyVersion();
+        for (int version = 0; version < activeVersion; version++) {
+            reEncryptVersion(version, activeVersion);
+        }
+    }
+
+    public long getReEncryptedCount() {
+        return reEncryptedRows.sum();
+    }
+
+    public long getSkippedCount() {
+        return skippedRows.sum();
+    }
+
+    public long getFailedCount() {
+        return failedRows.sum();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private void reEncryptVersion(int version, int activeVersion) {
+        Long lastId = 0L;
+
+        while (true) {
+            long startedAt = System.nanoTime();
+            List<StoredTokenCiphertext> rows = spotifyTokenDBaccess.findTokensWithKeyVersion(version, lastId, batchSize);
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            List<ReEncryptedToken> updates = new ArrayList<>(rows.size());
+            for (StoredTokenCiphertext row : rows) {
+                try {
+                    updates.add(reEncrypt(row, activeVersion));
+                } catch (RuntimeException ex) {
+                    // Bleibt auf der alten Version; die Keyset-Pagination läuft trotzdem weiter
+                    failedRows.increment();
+                    log.warn("Could not re-encrypt Spotify tokens {}: {}", row.id(), ex.getMessage());
+                }
+            }
+
+            int updated = spotifyTokenDBaccess.updateReEncryptedTokens(updates);
+            reEncryptedRows.add(updated);
+            skippedRows.add(updates.size() - updated);
+
+            if (rows.size() < batchSize) {
+                return;
+            }
+            lastId = rows.getLast().id();
+            throttle(rows.size(), startedAt);
+        }
+    }
+
+    private ReEncryptedToken reEncrypt(StoredTokenCiphertext row, int activeVersion) {
+        String refreshToken = sensitiveDataService.decryptToken(row.refreshToken(), row.legacyRefreshToken());
+        String accessToken = sensitiveDataService.decryptToken(row.accessToken(), row.legacyAccessToken());
+
+        return new ReEncryptedToken(
+                row.id(),
+                row.keyVersion(),
+                row.accessTokenExpiresAt(),
+                sensitiveDataService.encryptToken(refreshToken),
+                sensitiveDataService.encryptToken(accessToken),
+                activeVersion
+        );
+    }
+
+    /**
+     * Wartet so lange, dass die Seite im Schnitt nicht schneller als rows-per-second verarbeitet wurde.
+     */
+    private void throttle(int rows, long startedAt) {
+        if (rowsPerSecond <= 0) {
+            return;
+        }
+        long minimumNanos = (long) (rows * TimeUnit.SECONDS.toNanos(1) / rowsPerSecond);
+        long remaining = minimumNanos - (System.nanoTime() - startedAt);
+        if (remaining <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Erneuert Spotify Access Tokens im Hintergrund, bevor sie ablaufen,
+ * damit der erste Dashboard-Aufruf nach einer Stunde keinen Refresh mehr bezahlen muss.
+ * Abschaltbar per app.spotify.token-refresh.enabled=false; zur Laufzeit geprüft statt per @ConditionalOnProperty,
+ * das mit Spring AOT (Profil fast-startup) schon beim Build feststünde.
+ */
+@Service
+public class SpotifyTokenRefreshScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(SpotifyTokenRefreshScheduler.class);
+
+    private final SpotifyTokenDBaccess spotifyTokenDBaccess;
+    private final SpotifyAccessTokenProvider spotifyAccessTokenProvider;
+    private final ExecutorService refreshExecutor;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration leadTime;
+
+    private final LongAdder refreshedTokens = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+    private final LongAdder skippedTokens = new LongAdder();
+
+    public SpotifyTokenRefreshScheduler(
+            SpotifyTokenDBaccess spotifyTokenDBaccess,
+            SpotifyAccessTokenProvider spotifyAccessTokenProvider,
+            @Value("${app.spotify.token-refresh.enabled:true}") boolean enabled,
+            @Value("${app.spotify.token-refresh.batch-size:50}") int batchSize,
+            @Value("${app.spotify.token-refresh.parallelism:4}") int parallelism,
+            @Value("${app.spotify.token-refresh.lead-time:5m}") Duration leadTime
+    ) {
+        this.spotifyTokenDBaccess = spotifyTokenDBaccess;
+        this.spotifyAccessTokenProvider = spotifyAccessTokenProvider;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.leadTime = leadTime;
+        this.refreshExecutor = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform()
+                .name("spotify-token-refresh-", 0)
+                .daemon(true)
+                .factory());
+        if (!enabled) {
+            log.info("Proactive token refresh disabled (app.spotify.token-refresh.enabled=false)");
+        }
+    }
+
+    /**
+     * Läuft die Tokens, die innerhalb der Vorlaufzeit ablaufen, seitenweise ab
+     * und erneuert jede Seite mit begrenzter Parallelität.
+     */
+    @Scheduled(
+            fixedDelayString = "${app.spotify.token-refresh.interval:1m}",
+            initialDelayString = "${app.spotify.token-refresh.initial-delay:30s}"
+    )
+    public void refreshExpiringTokens() {
+        if (!enabled) {
+            return;
+        }
+        Instant threshold = Instant.now().plus(leadTime);
+        Long lastUserId = 0L;
+
+        while (true) {
+            List<Long> userIds = spotifyTokenDBaccess.findUserIdsWithAccessTokenExpiringBefore(threshold, lastUserId, batchSize);
+            if (userIds.isEmpty()) {
+                return;
+            }
+
+            refreshBatch(userIds, threshold);
+
+            if (userIds.size() < batchSize) {
+                return;
+            }
+            lastUserId = userIds.getLast();
+        }
+    }
+
+    public long getRefreshedCount() {
+        return refreshedTokens.sum();
+    }
+
+    public long getFailedCount() {
+        return failedRefreshes.sum();
+    }
+
+    public long getSkippedCount() {
+        return skippedTokens.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private void refreshBatch(List<Long> userIds, Instant threshold) {
+        CompletableFuture<?>[] refreshes = userIds.stream()
+                .map(userId -> CompletableFuture.runAsync(
+                        () -> SpotifyCallPriority.runAs(SpotifyCallPriority.BACKGROUND, () -> refreshUser(userId, threshold)),
+                        refreshExecutor))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(refreshes).join();
+    }
+
+    private void refreshUser(Long userId, Instant threshold) {
+        try {
+            if (spotifyAccessTokenProvider.refreshIfExpiringBefore(userId, threshold)) {
+                refreshedTokens.increment();
+            } else {
+                skippedTokens.increment();
+            }
+        } catch (RuntimeException ex) {
+            failedRefreshes.increment();
+            log.warn("Proactive Spotify token refresh failed for user {}: {}", userId, ex.getMessage());
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.SpotifyToken;
 import com.spotifywrapped.spotify_wrapped_clone.service.SensitiveDataService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 
 @Service
@@ -15,27 +21,56 @@ public class SpotifyTokenService {
     private final SpotifyTokenDBaccess spotifyTokenDBaccess;
     private final SensitiveDataService sensitiveDataService;
 
-    public SpotifyTokenService(SpotifyTokenDBaccess spotifyTokenDBaccess, SensitiveDataService sensitiveDataService) {
+    // Entschlüsselte Tokens pro Nutzer, gültig bis accessTokenExpiresAt.
+    // Klartext liegt als String im Heap und lässt sich nicht gezielt überschreiben – der Cache begrenzt nur die Dauer.
+    private final Cache<Long, DecryptedSpotifyTokens> tokenCache;
+
+    public SpotifyTokenService(
+            SpotifyTokenDBaccess spotifyTokenDBaccess,
+            SensitiveDataService sensitiveDataService,
+            @Value("${app.spotify.token-cache.max-size:10000}") long tokenCacheMaxSize
+    ) {
         this.spotifyTokenDBaccess = spotifyTokenDBaccess;
         this.sensitiveDataService = sensitiveDataService;
+        this.tokenCache = Caffeine.newBuilder()
+                .maximumSize(tokenCacheMaxSize)
+                .expireAfter(new AccessTokenExpiry())
+                .recordStats()
+                .build();
     }
 
+    /**
+     * Liefert die entschlüsselten Tokens eines Nutzers.
+     * – Solange der Access Token gültig ist, kommen sie aus dem Cache (kein DB-Zugriff, kein AES).
+     * – Sonst werden sie aus der DB geladen und entschlüsselt.
+     * – Findet das (evtl. nachhängende) Replica keine, liest der Primary nach: der Nutzer kann Spotify gerade
+     *   erst verbunden haben, der Callback lief vielleicht auf einer anderen Instanz.
+     */
     public DecryptedSpotifyTokens getDecryptedTokens(Long userId) {
-        SpotifyToken token = spotifyTokenDBaccess.findByUserId(userId);
-        if (token == null) {
-            return null;
-        }
+        DecryptedSpotifyTokens[] loaded = new DecryptedSpotifyTokens[1];
+        DecryptedSpotifyTokens cached = tokenCache.get(userId, id -> {
+            SpotifyToken token = spotifyTokenDBaccess.findByUserId(id);
+            loaded[0] = decrypt(token != null ? token : spotifyTokenDBaccess.findCurrentByUserId(id));
+            return isCacheable(loaded[0]) ? loaded[0] : null;
+        });
 
-        return new DecryptedSpotifyTokens(
-                sensitiveDataService.decrypt(token.getRefreshToken()),
-                sensitiveDataService.decrypt(token.getAccessToken()),
-                token.getAccessTokenExpiresAt()
-        );
+        // Nicht cachebare Tokens (z.B. abgelaufener Access Token) trotzdem zurückgeben
+        return cached != null ? cached : loaded[0];
+    }
+
+    /**
+     * Liest die Tokens an allen Caches vorbei vom Primary und aktualisiert damit den Token-Cache.
+     * Für den Refresh: eine andere Instanz kann sie inzwischen erneuert haben.
+     */
+    public DecryptedSpotifyTokens reloadTokens(Long userId) {
+        DecryptedSpotifyTokens tokens = decrypt(spotifyTokenDBaccess.findCurrentByUserId(userId));
+        cacheOrInvalidate(userId, tokens);
+        return tokens;
     }
 
     public boolean hasRefreshToken(Long userId) {
-        SpotifyToken token = spotifyTokenDBaccess.findByUserId(userId);
-        return token != null && token.getRefreshToken() != null && !token.getRefreshToken().isBlank();
+        DecryptedSpotifyTokens tokens = getDecryptedTokens(userId);
+        return tokens != null && tokens.refreshToken() != null && !tokens.refreshToken().isBlank();
     }
 
     public void updateTokens(Long userId, String refreshToken, String accessToken, Instant accessTokenExpiresAt) {
@@ -43,16 +78,38 @@ public class SpotifyTokenService {
             return;
         }
 
-        String encryptedRefresh = refreshToken == null || refreshToken.isBlank()
+        byte[] encryptedRefresh = refreshToken == null || refreshToken.isBlank()
                 ? null
-                : sensitiveDataService.encrypt(refreshToken);
+                : sensitiveDataService.encryptToken(refreshToken);
 
-        spotifyTokenDBaccess.createOrUpdateToken(
+        SpotifyToken saved = spotifyTokenDBaccess.createOrUpdateToken(
                 userId,
                 encryptedRefresh,
-                sensitiveDataService.encrypt(accessToken),
+                sensitiveDataService.encryptToken(accessToken),
+                sensitiveDataService.getActiveTokenKeyVersion(),
                 accessTokenExpiresAt
         );
+
+        // Gespeicherten Stand direkt cachen: ein Lesen danach könnte vom (nachlaufenden) Replica kommen
+        cacheOrInvalidate(userId, decrypt(saved));
+    }
+
+    /**
+     * Entfernt die gecachten Tokens eines Nutzers, z.B. nach dem Löschen des Accounts.
+     */
+    /**
+     * Refresh Token von Spotify abgelehnt: kein Hintergrund-Refresh mehr, bis der Nutzer neu verbindet.
+     */
+    public void markRefreshRejected(Long userId) {
+        spotifyTokenDBaccess.markRefreshRejected(userId);
+    }
+
+    public void invalidate(Long userId) {
+        tokenCache.invalidate(userId);
+    }
+
+    public CacheStats getCacheStats() {
+        return tokenCache.stats();
     }
 
     public Instant calculateAccessTokenExpiry(Integer expiresInSeconds) {
@@ -63,5 +120,65 @@ public class SpotifyTokenService {
         return Instant.now().plusSeconds(lifetime);
     }
 
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private void cacheOrInvalidate(Long userId, DecryptedSpotifyTokens tokens) {
+        if (isCacheable(tokens)) {
+            tokenCache.put(userId, tokens);
+        } else {
+            invalidate(userId);
+        }
+    }
+
+    private boolean isCacheable(DecryptedSpotifyTokens tokens) {
+        // Nur verbundene Nutzer mit noch gültigem Access Token cachen
+        return tokens != null &&
+                tokens.refreshToken() != null &&
+                tokens.accessToken() != null &&
+                tokens.accessTokenExpiresAt() != null &&
+                tokens.accessTokenExpiresAt().isAfter(Instant.now());
+    }
+
+    private DecryptedSpotifyTokens decrypt(SpotifyToken token) {
+        if (token == null) {
+            return null;
+        }
+
+        return new DecryptedSpotifyTokens(
+                sensitiveDataService.decryptToken(token.getRefreshTokenCiphertext(), token.getRefreshToken()),
+                sensitiveDataService.decryptToken(token.getAccessTokenCiphertext(), token.getAccessToken()),
+                token.getAccessTokenExpiresAt()
+        );
+    }
+
     public record DecryptedSpotifyTokens(String refreshToken, String accessToken, Instant accessTokenExpiresAt) { }
+
+    /**
+     * Cache-Einträge laufen genau dann ab, wenn der Access Token abläuft.
+     */
+    private static final class AccessTokenExpiry implements Expiry<Long, DecryptedSpotifyTokens> {
+
+        @Override
+        public long expireAfterCreate(Long userId, DecryptedSpotifyTokens tokens, long currentTime) {
+            return timeToLive(tokens).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Long userId, DecryptedSpotifyTokens tokens, long currentTime, long currentDuration) {
+            return timeToLive(tokens).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(Long userId, DecryptedSpotifyTokens tokens, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private static Duration timeToLive(DecryptedSpotifyTokens tokens) {
+            Duration ttl = Duration.between(Instant.now(), tokens.accessTokenExpiresAt());
+            return ttl.isNegative() ? Duration.ZERO : ttl;
+        }
+    }
 }
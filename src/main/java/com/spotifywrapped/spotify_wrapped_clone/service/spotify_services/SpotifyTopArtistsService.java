@@ -0,0 +1,80 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyTopArtistDto;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogArtist;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Top Artists eines Nutzers.
+ * – Pro Nutzer werden nur die Artist-IDs gecacht; Name, Genres und Bild kommen aus dem {@link SpotifyCatalogService}.
+ */
+@Service
+@RegisterReflectionForBinding(SpotifyTopArtistsService.SpotifyTopArtistsResponse.class)
+public class SpotifyTopArtistsService {
+
+    private final SpotifyResponseCache spotifyResponseCache;
+    private final SpotifyAccessTokenProvider spotifyAccessTokenProvider;
+    private final SpotifyCatalogService spotifyCatalogService;
+
+    @Value("${app.spotify.api-base-url:https://api.spotify.com/v1}")
+    private String apiBaseUrl;
+
+    @Value("${app.spotify.response-cache.top-artists-ttl:1h}")
+    private Duration topArtistsTtl;
+
+    public SpotifyTopArtistsService(
+            SpotifyResponseCache spotifyResponseCache,
+            SpotifyAccessTokenProvider spotifyAccessTokenProvider,
+            SpotifyCatalogService spotifyCatalogService
+    ) {
+        this.spotifyResponseCache = spotifyResponseCache;
+        this.spotifyAccessTokenProvider = spotifyAccessTokenProvider;
+        this.spotifyCatalogService = spotifyCatalogService;
+    }
+
+    /**
+     * Gibt null zurück, wenn der Nutzer Spotify nicht verbunden hat.
+     */
+    public SpotifyResult<List<SpotifyTopArtistDto>> fetchTopArtists(Long userId, SpotifyTimeRange timeRange) {
+        if (userId == null) return null;
+
+        SpotifyResponseCache.SpotifyCachedResponse<List<String>> artistIds = spotifyResponseCache.fetch(
+                userId,
+                apiBaseUrl + "/me/top/artists?limit=10&time_range=" + timeRange.parameter(),
+                topArtistsTtl,
+                SpotifyTopArtistsResponse.class,
+                this::mapToIds,
+                () -> spotifyAccessTokenProvider.getValidAccessToken(userId)
+        );
+        if (artistIds == null) {
+            return null;
+        }
+
+        Map<String, CatalogArtist> artists = spotifyCatalogService.getArtists(artistIds.body());
+        List<SpotifyTopArtistDto> dtos = artistIds.body().stream()
+                .map(artists::get)
+                .filter(Objects::nonNull)
+                .map(artist -> new SpotifyTopArtistDto(artist.name(), artist.genres(), artist.imageUrl()))
+                .toList();
+        return new SpotifyResult<>(dtos, artistIds.stale());
+    }
+
+    private List<String> mapToIds(SpotifyTopArtistsResponse response) {
+        spotifyCatalogService.primeArtists(response.items());
+        return response.items().stream()
+                .map(SpotifyCatalogService.SpotifyArtist::id)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /* ======== RESPONSE RECORDS ======== */
+
+    public record SpotifyTopArtistsResponse(List<SpotifyCatalogService.SpotifyArtist> items) {}
+}
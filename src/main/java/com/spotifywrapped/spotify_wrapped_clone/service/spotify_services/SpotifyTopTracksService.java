@@ -2,109 +2,95 @@ package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
 
 
 import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyTopTrackDto;
-import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogTrack;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.time.Instant;
+import java.time.Duration;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Top Tracks eines Nutzers.
+ * – Pro Nutzer werden nur die Track-IDs gecacht; Name, Artists und Bild kommen aus dem {@link SpotifyCatalogService}.
+ * – Das Bild zeigt auf den eigenen Cover-Proxy in Kachelgröße statt auf das 640px-Original.
+ */
 @Service
+@RegisterReflectionForBinding(SpotifyTopTracksService.SpotifyTopTracksResponse.class)
 public class SpotifyTopTracksService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final SpotifyAuthService spotifyAuthService;
-    private final SpotifyTokenService spotifyTokenService;
+    private final SpotifyResponseCache spotifyResponseCache;
+    private final SpotifyAccessTokenProvider spotifyAccessTokenProvider;
+    private final SpotifyCatalogService spotifyCatalogService;
+    private final AlbumImageService albumImageService;
+
+    @Value("${app.spotify.api-base-url:https://api.spotify.com/v1}")
+    private String apiBaseUrl;
 
-    @Value("https://api.spotify.com/v1/me/top/tracks?limit=10&time_range=medium_term")
-    private String topTracksUri;
+    @Value("${app.spotify.response-cache.top-tracks-ttl:1h}")
+    private Duration topTracksTtl;
 
     public SpotifyTopTracksService(
-            SpotifyAuthService spotifyAuthService,
-            SpotifyTokenService spotifyTokenService
+            SpotifyResponseCache spotifyResponseCache,
+            SpotifyAccessTokenProvider spotifyAccessTokenProvider,
+            SpotifyCatalogService spotifyCatalogService,
+            AlbumImageService albumImageService
     ) {
-        this.spotifyAuthService = spotifyAuthService;
-        this.spotifyTokenService = spotifyTokenService;
+        this.spotifyResponseCache = spotifyResponseCache;
+        this.spotifyAccessTokenProvider = spotifyAccessTokenProvider;
+        this.spotifyCatalogService = spotifyCatalogService;
+        this.albumImageService = albumImageService;
     }
 
-    public List<SpotifyTopTrackDto> fetchTopTracks(User user) {
-        if (user == null) return List.of();
-
-        SpotifyTokenService.DecryptedSpotifyTokens tokens =
-                spotifyTokenService.getDecryptedTokens(user.getId());
-
-        if (tokens == null || tokens.refreshToken() == null || tokens.refreshToken().isBlank()) {
-            return List.of();
-        }
-
-        String accessToken = getValidAccessToken(user.getId(), tokens);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(accessToken);
+    public SpotifyResult<List<SpotifyTopTrackDto>> fetchTopTracks(Long userId) {
+        return fetchTopTracks(userId, SpotifyTimeRange.MEDIUM_TERM);
+    }
 
-        ResponseEntity<SpotifyTopTracksResponse> response =
-                restTemplate.exchange(
-                        topTracksUri,
-                        HttpMethod.GET,
-                        new HttpEntity<>(headers),
-                        SpotifyTopTracksResponse.class
-                );
+    /**
+     * Gibt null zurück, wenn der Nutzer Spotify nicht verbunden hat.
+     */
+    public SpotifyResult<List<SpotifyTopTrackDto>> fetchTopTracks(Long userId, SpotifyTimeRange timeRange) {
+        if (userId == null) return null;
 
-        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-            throw new IllegalStateException("Failed to load top tracks: " + response.getStatusCode());
+        SpotifyResponseCache.SpotifyCachedResponse<List<String>> trackIds = spotifyResponseCache.fetch(
+                userId,
+                apiBaseUrl + "/me/top/tracks?limit=10&time_range=" + timeRange.parameter(),
+                topTracksTtl,
+                SpotifyTopTracksResponse.class,
+                this::mapToIds,
+                () -> spotifyAccessTokenProvider.getValidAccessToken(userId)
+        );
+        if (trackIds == null) {
+            return null;
         }
 
-        return response.getBody().items().stream()
-                .map(track -> new SpotifyTopTrackDto(
-                        track.name(),
-                        track.artists().stream().map(SpotifyArtist::name).toList(),
-                        track.album().images().getFirst().url()
-                ))
+        Map<String, CatalogTrack> tracks = spotifyCatalogService.getTracks(trackIds.body());
+        List<SpotifyTopTrackDto> dtos = trackIds.body().stream()
+                .map(tracks::get)
+                .filter(Objects::nonNull)
+                .map(track -> new SpotifyTopTrackDto(track.name(), track.artistNames(), imageUrl(track)))
                 .toList();
+        return new SpotifyResult<>(dtos, trackIds.stale());
     }
 
-    private String getValidAccessToken(Long userId, SpotifyTokenService.DecryptedSpotifyTokens tokens) {
-        Instant now = Instant.now();
-
-        if (tokens.accessToken() != null &&
-                tokens.accessTokenExpiresAt() != null &&
-                tokens.accessTokenExpiresAt().isAfter(now)) {
-            return tokens.accessToken();
-        }
-
-        SpotifyAuthService.SpotifyTokenResponse tokenResponse =
-                spotifyAuthService.refreshAccessToken(tokens.refreshToken());
-
-        Instant expiresAt =
-                spotifyTokenService.calculateAccessTokenExpiry(tokenResponse.expiresIn());
-
-        spotifyTokenService.updateTokens(
-                userId,
-                tokenResponse.refreshToken(),
-                tokenResponse.accessToken(),
-                expiresAt
-        );
+    /**
+     * Spotify liefert volle Track-Objekte mit; die landen im Katalog, im Nutzer-Cache bleibt nur die Reihenfolge.
+     */
+    private List<String> mapToIds(SpotifyTopTracksResponse response) {
+        spotifyCatalogService.primeTracks(response.items());
+        return response.items().stream()
+                .map(SpotifyCatalogService.SpotifyTrack::id)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 
-        return tokenResponse.accessToken();
+    private String imageUrl(CatalogTrack track) {
+        return track.albumId() != null ? albumImageService.proxyUrl(track.albumId()) : track.imageUrl();
     }
 
     /* ======== RESPONSE RECORDS ======== */
 
-    public record SpotifyTopTracksResponse(List<SpotifyTrack> items) {}
-
-    public record SpotifyTrack(
-            String name,
-            List<SpotifyArtist> artists,
-            SpotifyAlbum album
-    ) {}
-
-    public record SpotifyArtist(String name) {}
-
-    public record SpotifyAlbum(List<SpotifyImage> images) {}
-
-    public record SpotifyImage(String url, Integer height, Integer width) {}
+    public record SpotifyTopTracksResponse(List<SpotifyCatalogService.SpotifyTrack> items) {}
 }
-
-
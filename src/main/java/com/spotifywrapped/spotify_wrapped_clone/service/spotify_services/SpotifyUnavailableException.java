@@ -0,0 +1,16 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+/**
+ * Aufruf wurde gar nicht erst gestartet: Circuit Breaker der Aufrufklasse offen oder Bulkhead voll.
+ */
+public class SpotifyUnavailableException extends SpotifyApiException {
+
+    public SpotifyUnavailableException(String callClass, Throwable cause) {
+        super("Spotify is unavailable for " + callClass, cause);
+    }
+
+    @Override
+    public boolean isTransient() {
+        return true;
+    }
+}
@@ -0,0 +1,134 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyProfileDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyTopArtistDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyTopTrackDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyWrappedDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyWrappedSectionDto;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Lädt alle Abschnitte der Wrapped-Übersicht parallel:
+ * Profil sowie Top Tracks und Top Artists für alle drei Zeiträume.
+ * – Die Gesamtdauer entspricht ungefähr dem langsamsten Einzelaufruf.
+ * – Jeder Aufruf hat eine eigene Deadline; Fehler betreffen nur den jeweiligen Abschnitt.
+ */
+@Service
+public class SpotifyWrappedService {
+
+    private final SpotifyProfileService spotifyProfileService;
+    private final SpotifyTopTracksService spotifyTopTracksService;
+    private final SpotifyTopArtistsService spotifyTopArtistsService;
+    private final ExecutorService fanOutExecutor;
+    private final Duration callTimeout;
+
+    public SpotifyWrappedService(
+            SpotifyProfileService spotifyProfileService,
+            SpotifyTopTracksService spotifyTopTracksService,
+            SpotifyTopArtistsService spotifyTopArtistsService,
+            @Value("${app.spotify.wrapped.pool-size:16}") int poolSize,
+            @Value("${app.spotify.wrapped.queue-capacity:200}") int queueCapacity,
+            @Value("${app.spotify.wrapped.call-timeout:3s}") Duration callTimeout
+    ) {
+        this.spotifyProfileService = spotifyProfileService;
+        this.spotifyTopTracksService = spotifyTopTracksService;
+        this.spotifyTopArtistsService = spotifyTopArtistsService;
+        this.callTimeout = callTimeout;
+        this.fanOutExecutor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("spotify-wrapped-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    public SpotifyWrappedDto fetchWrapped(Long userId) {
+        CompletableFuture<SpotifyWrappedSectionDto<SpotifyProfileDto>> profile =
+                section(() -> {
+                    SpotifyResponseCache.SpotifyCachedResponse<SpotifyProfileDto> response =
+                            spotifyProfileService.fetchProfile(userId);
+                    return response != null ? new SpotifyResult<>(response.body(), response.stale()) : null;
+                });
+
+        Map<SpotifyTimeRange, CompletableFuture<SpotifyWrappedSectionDto<List<SpotifyTopTrackDto>>>> topTracks =
+                new LinkedHashMap<>();
+        Map<SpotifyTimeRange, CompletableFuture<SpotifyWrappedSectionDto<List<SpotifyTopArtistDto>>>> topArtists =
+                new LinkedHashMap<>();
+
+        for (SpotifyTimeRange timeRange : SpotifyTimeRange.values()) {
+            topTracks.put(timeRange, section(() -> spotifyTopTracksService.fetchTopTracks(userId, timeRange)));
+            topArtists.put(timeRange, section(() -> spotifyTopArtistsService.fetchTopArtists(userId, timeRange)));
+        }
+
+        return new SpotifyWrappedDto(profile.join(), joinAll(topTracks), joinAll(topArtists));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    /**
+     * Startet einen Aufruf auf dem Fan-out-Executor und wandelt Timeout/Fehler in einen Abschnitt mit Fehlermeldung.
+     * – Nach Ablauf der Deadline wird der HTTP-Request selbst abgebrochen ({@link SpotifyCallCancellation}),
+     *   damit der Pool-Thread nicht bis zum Read-Timeout belegt bleibt.
+     */
+    private <D> CompletableFuture<SpotifyWrappedSectionDto<D>> section(
+            Supplier<SpotifyResult<D>> call
+    ) {
+        SpotifyCallCancellation cancellation = new SpotifyCallCancellation();
+        CompletableFuture<SpotifyResult<D>> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> cancellation.run(call), fanOutExecutor);
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.completedFuture(new SpotifyWrappedSectionDto<>(null, "Server is busy", false));
+        }
+
+        return future
+                .orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        cancellation.cancel();
+                    }
+                })
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return result != null
+                                ? new SpotifyWrappedSectionDto<>(result.data(), null, result.stale())
+                                : new SpotifyWrappedSectionDto<D>(null, null, false);
+                    }
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    String message = cause instanceof TimeoutException
+                            ? "Spotify did not answer in time"
+                            : cause instanceof SpotifyRateLimitedException
+                            ? "Spotify rate limit reached"
+                            : "Spotify request failed";
+                    return new SpotifyWrappedSectionDto<>(null, message, false);
+                });
+    }
+
+    private <D> Map<String, SpotifyWrappedSectionDto<D>> joinAll(
+            Map<SpotifyTimeRange, CompletableFuture<SpotifyWrappedSectionDto<D>>> sections
+    ) {
+        Map<String, SpotifyWrappedSectionDto<D>> result = new LinkedHashMap<>();
+        sections.forEach((timeRange, section) -> result.put(timeRange.parameter(), section.join()));
+        return result;
+    }
+}
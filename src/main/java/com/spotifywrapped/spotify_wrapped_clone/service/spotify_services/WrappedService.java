@@ -0,0 +1,156 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.spotify_services;
+
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.ListeningPeriodDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.ListeningRankDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.ListeningStatsDto;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess.DailyTotal;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess.RankedItem;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogArtist;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogTrack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Jahresrückblick aus den eigenen, gesammelten Wiedergaben (nicht aus den Spotify Top-Items).
+ * – Top-Listen kommen aus dem {@link ListeningIndex}, sobald dieser aufgebaut ist, sonst aus den Tages-Rollups.
+ *   Mit mehreren Instanzen können sie bis zu einem Abgleich-Intervall hinter den Summen liegen (siehe ListeningIndex#isReady).
+ * – Summen und Verlauf kommen aus den Tages-Rollups; Wochen/Monate/Jahre werden aus den Tageswerten zusammengefasst.
+ * – Namen und Bilder kommen aus dem {@link SpotifyCatalogService}; ist der nicht erreichbar, bleiben sie leer.
+ */
+@Service
+public class WrappedService {
+
+    private static final Logger log = LoggerFactory.getLogger(WrappedService.class);
+
+    private final ListeningRollupDBaccess listeningRollupDBaccess;
+    private final ListeningIndex listeningIndex;
+    private final SpotifyCatalogService spotifyCatalogService;
+    private final AlbumImageService albumImageService;
+
+    public WrappedService(
+            ListeningRollupDBaccess listeningRollupDBaccess,
+            ListeningIndex listeningIndex,
+            SpotifyCatalogService spotifyCatalogService,
+            AlbumImageService albumImageService
+    ) {
+        this.listeningRollupDBaccess = listeningRollupDBaccess;
+        this.listeningIndex = listeningIndex;
+        this.spotifyCatalogService = spotifyCatalogService;
+        this.albumImageService = albumImageService;
+    }
+
+    /**
+     * Top-N Tracks/Artists, Gesamtminuten und Verlauf für den Zeitraum {@code from}..{@code to} (inklusive).
+     */
+    public ListeningStatsDto getListeningStats(
+            Long userId,
+            LocalDate from,
+            LocalDate to,
+            int limit,
+            ListeningGranularity granularity
+    ) {
+        List<DailyTotal> dailyTotals = listeningRollupDBaccess.findDailyTotals(userId, from, to);
+
+        long totalPlays = 0;
+        long totalMs = 0;
+        Map<LocalDate, long[]> periods = new LinkedHashMap<>();
+        for (DailyTotal daily : dailyTotals) {
+            totalPlays += daily.playCount();
+            totalMs += daily.msPlayed();
+
+            long[] period = periods.computeIfAbsent(granularity.periodStart(daily.day()), start -> new long[2]);
+            period[0] += daily.playCount();
+            period[1] += daily.msPlayed();
+        }
+
+        List<ListeningPeriodDto> periodDtos = new ArrayList<>(periods.size());
+        periods.forEach((start, values) -> periodDtos.add(new ListeningPeriodDto(start, values[0], toMinutes(values[1]))));
+
+        return new ListeningStatsDto(
+                from,
+                to,
+                totalPlays,
+                toMinutes(totalMs),
+                topTracks(userId, from, to, limit),
+                topArtists(userId, from, to, limit),
+                periodDtos
+        );
+    }
+
+    private List<ListeningRankDto> topTracks(Long userId, LocalDate from, LocalDate to, int limit) {
+        List<RankedItem> items = listeningIndex.isReady()
+                ? fromIndex(listeningIndex.topTracks(userId, startOf(from), startOf(to.plusDays(1)), limit))
+                : listeningRollupDBaccess.findTopTracks(userId, from, to, limit);
+
+        Map<String, CatalogTrack> tracks = lookup(items, spotifyCatalogService::getTracks);
+        return items.stream()
+                .map(item -> {
+                    CatalogTrack track = tracks.get(item.id());
+                    if (track == null) {
+                        return toDto(item, null, null);
+                    }
+                    String imageUrl = track.albumId() != null ? albumImageService.proxyUrl(track.albumId()) : track.imageUrl();
+                    return toDto(item, track.name(), imageUrl);
+                })
+                .toList();
+    }
+
+    private List<ListeningRankDto> topArtists(Long userId, LocalDate from, LocalDate to, int limit) {
+        List<RankedItem> items = listeningIndex.isReady()
+                ? fromIndex(listeningIndex.topArtists(userId, startOf(from), startOf(to.plusDays(1)), limit))
+                : listeningRollupDBaccess.findTopArtists(userId, from, to, limit);
+
+        Map<String, CatalogArtist> artists = lookup(items, spotifyCatalogService::getArtists);
+        return items.stream()
+                .map(item -> {
+                    CatalogArtist artist = artists.get(item.id());
+                    return toDto(item, artist != null ? artist.name() : null, artist != null ? artist.imageUrl() : null);
+                })
+                .toList();
+    }
+
+    /**
+     * Ein Katalog-Lookup für die ganze Liste; Statistiken sollen auch ohne Spotify funktionieren.
+     */
+    private <V> Map<String, V> lookup(List<RankedItem> items, Function<List<String>, Map<String, V>> catalogLookup) {
+        if (items.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return catalogLookup.apply(items.stream().map(RankedItem::id).toList());
+        } catch (IllegalStateException ex) {
+            log.warn("Catalog lookup for listening stats failed: {}", ex.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static List<RankedItem> fromIndex(List<ListeningIndex.IndexedRank> items) {
+        return items.stream()
+                .map(item -> new RankedItem(item.spotifyId(), item.playCount(), item.msPlayed()))
+                .toList();
+    }
+
+    private static ListeningRankDto toDto(RankedItem item, String name, String imageUrl) {
+        return new ListeningRankDto(item.id(), name, imageUrl, item.playCount(), toMinutes(item.msPlayed()));
+    }
+
+    private static long toMinutes(long millis) {
+        return TimeUnit.MILLISECONDS.toMinutes(millis);
+    }
+}
@@ -0,0 +1,19 @@
+package com.spotifywrapped.spotify_wrapped_clone.service.user_services;
+
+/**
+ * Username oder E-Mail ist (ohne Beachtung der Groß-/Kleinschreibung) bereits vergeben.
+ * {@link #getField()} ist "username" oder "email".
+ */
+public class UserAlreadyExistsException extends RuntimeException {
+
+    private final String field;
+
+    public UserAlreadyExistsException(String field) {
+        super("A user with this " + field + " already exists");
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+}
@@ -7,12 +7,20 @@ import com.spotifywrapped.spotify_wrapped_clone.api.dto.userdto.UserDtoOut;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.UserDBaccess;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
 import com.spotifywrapped.spotify_wrapped_clone.service.JwtService;
+import com.spotifywrapped.spotify_wrapped_clone.service.PasswordHashingBusyException;
 import com.spotifywrapped.spotify_wrapped_clone.service.SensitiveDataService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     // ============================================================
     //                  Dependencies
     // ============================================================
@@ -20,11 +28,18 @@ public class UserService {
     private final UserDBaccess userDBaccess;
     private final SensitiveDataService sensitiveDataService;
     private final JwtService jwtService;
-
-    public UserService(UserDBaccess userDBaccess, SensitiveDataService sensitiveDataService, JwtService jwtService) {
+    private final SpotifyTokenService spotifyTokenService;
+
+    public UserService(
+            UserDBaccess userDBaccess,
+            SensitiveDataService sensitiveDataService,
+            JwtService jwtService,
+            SpotifyTokenService spotifyTokenService
+    ) {
         this.userDBaccess = userDBaccess;
         this.sensitiveDataService = sensitiveDataService;
         this.jwtService = jwtService;
+        this.spotifyTokenService = spotifyTokenService;
     }
 
 
@@ -34,14 +49,24 @@ public class UserService {
 
     /**
      * Erstellt einen neuen User, erzeugt sichere Tokens und speichert ihn in der Datenbank.
+     * Vergebene Usernamen/E-Mails (ohne Beachtung der Groß-/Kleinschreibung) → {@link UserAlreadyExistsException}.
      */
     public UserDtoOut createUser(UserDtoIn userDtoIn) {
         User user = mapToEntity(userDtoIn);
 
+        // Duplikate vor dem teuren Hashing erkennen
+        ensureAvailable(user, null);
+
         // Passwort verschlüsseln
         user.setPassword(sensitiveDataService.hashPassword(user.getPassword()));
 
-        userDBaccess.createUser(user);
+        try {
+            userDBaccess.createUser(user);
+        } catch (DataIntegrityViolationException e) {
+            // Gleichzeitige Registrierung mit demselben Namen: Unique-Index hat entschieden
+            ensureAvailable(user, null);
+            throw e;
+        }
 
         String accessToken = jwtService.generateAccessToken(user);
         return mapToDto(user, accessToken);
@@ -53,6 +78,8 @@ public class UserService {
     public UserDtoOut updateUser(Long id, UserDtoIn userDtoIn) {
         User userUpdates = mapToEntity(userDtoIn);
 
+        ensureAvailable(userUpdates, id);
+
         if (userUpdates.getPassword() != null) {
             userUpdates.setPassword(sensitiveDataService.hashPassword(userUpdates.getPassword()));
         }
@@ -69,7 +96,12 @@ public class UserService {
      * Löscht einen User aus der Datenbank.
      */
     public boolean deleteUser(Long id) {
-        return userDBaccess.deleteUser(id);
+        boolean deleted = userDBaccess.deleteUser(id);
+        if (deleted) {
+            // Spotify-Tokens werden per Cascade gelöscht → auch aus dem Cache entfernen
+            spotifyTokenService.invalidate(id);
+        }
+        return deleted;
     }
 
     /**
@@ -83,23 +115,13 @@ public class UserService {
             return null;
         }
 
+        rehashIfOutdated(user, loginDto.password());
+
         String accessToken = jwtService.generateAccessToken(user);
 
         return new AuthResponseDto(user.getId(), user.getUsername(), user.getEmail(), accessToken);
     }
 
-    public boolean isAccessTokenValid(String accessToken) {
-        return jwtService.parseUserId(accessToken) != null;
-    }
-
-    public User findUserByAccessToken(String accessToken) {
-        Long userId = jwtService.parseUserId(accessToken);
-        if (userId == null) {
-            return null;
-        }
-        return userDBaccess.findUserById(userId);
-    }
-
     public User findUserById(Long id) {
         return userDBaccess.findUserById(id);
     }
@@ -109,6 +131,37 @@ public class UserService {
     //                  Helper methods
     // ============================================================
 
+    /**
+     * Prüft die gesetzten Felder gegen die normalisierten Unique-Spalten; der User selbst (id) zählt nicht.
+     */
+    private void ensureAvailable(User user, Long id) {
+        if (user.getUsername() != null && userDBaccess.isUsernameTaken(user.getUsername(), id)) {
+            throw new UserAlreadyExistsException("username");
+        }
+        if (user.getEmail() != null && userDBaccess.isEmailTaken(user.getEmail(), id)) {
+            throw new UserAlreadyExistsException("email");
+        }
+    }
+
+    /**
+     * Nach erfolgreichem Login liegt das Klartext-Passwort vor: Hashes mit alten Kosten/Algorithmus werden ersetzt.
+     * Ist der Hashing-Executor gerade voll, bleibt der alte Hash – der Login selbst soll daran nicht scheitern.
+     */
+    private void rehashIfOutdated(User user, String rawPassword) {
+        if (!sensitiveDataService.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            User passwordUpdate = new User();
+            passwordUpdate.setPassword(sensitiveDataService.hashPassword(rawPassword));
+            userDBaccess.updateUser(user.getId(), passwordUpdate);
+        } catch (PasswordHashingBusyException e) {
+            log.debug("Skipped password rehash for user {}: hashing executor busy", user.getId());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.debug("Skipped password rehash for user {}: changed concurrently", user.getId());
+        }
+    }
+
     /**
      * Mappt DTO → Entity (reine Übertragung der Daten ohne Validierung).
      */
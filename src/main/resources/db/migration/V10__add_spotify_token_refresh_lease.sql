@@ -0,0 +1,4 @@
+-- Lease für den Token-Refresh bei mehreren Instanzen: nur der Halter ruft Spotify auf, die anderen warten auf sein Ergebnis.
+-- Abgelaufene Leases (Instanz abgestürzt) dürfen übernommen werden.
+ALTER TABLE spotify_tokens ADD COLUMN refresh_lease_owner VARCHAR(64);
+ALTER TABLE spotify_tokens ADD COLUMN refresh_lease_until TIMESTAMP(3);
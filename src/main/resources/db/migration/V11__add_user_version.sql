@@ -0,0 +1,3 @@
+-- Versionsspalte für optimistisches Locking: der Second-Level-Cache ist pro Instanz, ein Update
+-- auf Basis veralteter Daten einer anderen Instanz scheitert so, statt neuere Änderungen zu überschreiben.
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
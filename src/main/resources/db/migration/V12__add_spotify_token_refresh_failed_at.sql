@@ -0,0 +1,3 @@
+-- Zeitpunkt, zu dem Spotify den Refresh Token abgelehnt hat (400/401, z.B. invalid_grant nach Widerruf).
+-- Der Hintergrund-Refresh lässt solche Zeilen aus, bis der Nutzer neu verbindet und ein neuer Token gespeichert wird.
+ALTER TABLE spotify_tokens ADD COLUMN refresh_failed_at TIMESTAMP(3);
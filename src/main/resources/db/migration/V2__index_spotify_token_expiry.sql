@@ -0,0 +1 @@
+CREATE INDEX idx_spotify_tokens_expires_at ON spotify_tokens (access_token_expires_at);
@@ -0,0 +1,24 @@
+CREATE TABLE listening_events
+(
+    id          BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id     BIGINT       NOT NULL,
+    track_id    VARCHAR(64)  NOT NULL,
+    artist_id   VARCHAR(64),
+    played_at   TIMESTAMP(3) NOT NULL,
+    duration_ms INT          NOT NULL,
+    CONSTRAINT uq_listening_events_user_played_at UNIQUE (user_id, played_at),
+    CONSTRAINT fk_listening_events_user
+        FOREIGN KEY (user_id) REFERENCES users (id)
+            ON DELETE CASCADE
+);
+CREATE TABLE listening_ingestion_state
+(
+    user_id               BIGINT PRIMARY KEY,
+    after_cursor          BIGINT,
+    poll_interval_seconds INT       NOT NULL,
+    next_poll_at          TIMESTAMP NOT NULL,
+    CONSTRAINT fk_listening_ingestion_state_user
+        FOREIGN KEY (user_id) REFERENCES users (id)
+            ON DELETE CASCADE
+);
+CREATE INDEX idx_listening_ingestion_state_next_poll ON listening_ingestion_state (next_poll_at);
@@ -0,0 +1,59 @@
+CREATE TABLE listening_daily_totals
+(
+    user_id    BIGINT NOT NULL,
+    play_date  DATE   NOT NULL,
+    play_count INT    NOT NULL,
+    ms_played  BIGINT NOT NULL,
+    PRIMARY KEY (user_id, play_date),
+    CONSTRAINT fk_listening_daily_totals_user
+        FOREIGN KEY (user_id) REFERENCES users (id)
+            ON DELETE CASCADE
+);
+CREATE TABLE listening_daily_tracks
+(
+    user_id    BIGINT      NOT NULL,
+    play_date  DATE        NOT NULL,
+    track_id   VARCHAR(64) NOT NULL,
+    play_count INT         NOT NULL,
+    ms_played  BIGINT      NOT NULL,
+    PRIMARY KEY (user_id, play_date, track_id),
+    CONSTRAINT fk_listening_daily_tracks_user
+        FOREIGN KEY (user_id) REFERENCES users (id)
+            ON DELETE CASCADE
+);
+CREATE TABLE listening_daily_artists
+(
+    user_id    BIGINT      NOT NULL,
+    play_date  DATE        NOT NULL,
+    artist_id  VARCHAR(64) NOT NULL,
+    play_count INT         NOT NULL,
+    ms_played  BIGINT      NOT NULL,
+    PRIMARY KEY (user_id, play_date, artist_id),
+    CONSTRAINT fk_listening_daily_artists_user
+        FOREIGN KEY (user_id) REFERENCES users (id)
+            ON DELETE CASCADE
+);
+
+-- Bereits gesammelte Events einmalig übernehmen
+-- Tage in UTC wie ListeningRollupDBaccess: CAST(played_at AS DATE) rechnet in der Session-Zeitzone.
+-- Nur MySQL führt die /*! */-Zeilen aus (H2 speichert ohne Zeitzone); danach wieder die alte Zeitzone.
+/*!40103 SET @previous_time_zone = @@session.time_zone */;
+/*!40103 SET time_zone = '+00:00' */;
+
+INSERT INTO listening_daily_totals (user_id, play_date, play_count, ms_played)
+SELECT user_id, CAST(played_at AS DATE), COUNT(*), SUM(duration_ms)
+FROM listening_events
+GROUP BY user_id, CAST(played_at AS DATE);
+
+INSERT INTO listening_daily_tracks (user_id, play_date, track_id, play_count, ms_played)
+SELECT user_id, CAST(played_at AS DATE), track_id, COUNT(*), SUM(duration_ms)
+FROM listening_events
+GROUP BY user_id, CAST(played_at AS DATE), track_id;
+
+INSERT INTO listening_daily_artists (user_id, play_date, artist_id, play_count, ms_played)
+SELECT user_id, CAST(played_at AS DATE), artist_id, COUNT(*), SUM(duration_ms)
+FROM listening_events
+WHERE artist_id IS NOT NULL
+GROUP BY user_id, CAST(played_at AS DATE), artist_id;
+
+/*!40103 SET time_zone = @previous_time_zone */;
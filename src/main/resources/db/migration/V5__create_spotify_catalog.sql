@@ -0,0 +1,26 @@
+CREATE TABLE catalog_tracks
+(
+    id           VARCHAR(64) PRIMARY KEY,
+    name         VARCHAR(512) NOT NULL,
+    artist_ids   VARCHAR(1024),
+    artist_names VARCHAR(2048),
+    album_id     VARCHAR(64),
+    image_url    VARCHAR(1024),
+    duration_ms  INT,
+    fetched_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+CREATE TABLE catalog_artists
+(
+    id         VARCHAR(64) PRIMARY KEY,
+    name       VARCHAR(512) NOT NULL,
+    genres     VARCHAR(1024),
+    image_url  VARCHAR(1024),
+    fetched_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+CREATE TABLE catalog_albums
+(
+    id         VARCHAR(64) PRIMARY KEY,
+    name       VARCHAR(512) NOT NULL,
+    image_url  VARCHAR(1024),
+    fetched_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
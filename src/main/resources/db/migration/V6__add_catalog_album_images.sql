@@ -0,0 +1,2 @@
+-- Alle Bildgrößen eines Albums als JSON [{url, width, height}], für den Bild-Proxy
+ALTER TABLE catalog_albums ADD COLUMN images VARCHAR(4096);
@@ -0,0 +1,14 @@
+-- Kleingeschriebene Login-Schlüssel: Login und Duplikatprüfung treffen je genau einen Unique-Index,
+-- statt "username = ? OR email = ?" (Index-Merge oder Scan) und unabhängig von der Collation.
+-- Schlägt fehl, falls es Nutzer gibt, die sich nur in Groß-/Kleinschreibung unterscheiden; diese vorher bereinigen.
+ALTER TABLE users ADD COLUMN username_normalized VARCHAR(100) NOT NULL DEFAULT '';
+ALTER TABLE users ADD COLUMN email_normalized VARCHAR(150) NOT NULL DEFAULT '';
+
+UPDATE users SET username_normalized = LOWER(username), email_normalized = LOWER(email);
+
+-- Default nur für bestehende Zeilen; neue Zeilen setzt die Anwendung
+ALTER TABLE users ALTER COLUMN username_normalized DROP DEFAULT;
+ALTER TABLE users ALTER COLUMN email_normalized DROP DEFAULT;
+
+CREATE UNIQUE INDEX ux_users_username_normalized ON users (username_normalized);
+CREATE UNIQUE INDEX ux_users_email_normalized ON users (email_normalized);
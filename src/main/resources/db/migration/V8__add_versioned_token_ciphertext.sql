@@ -0,0 +1,8 @@
+-- Spotify-Tokens als AES-GCM-Envelopes: [Schlüsselversion, 1 Byte][IV, 12 Byte][Ciphertext + Tag], binär gespeichert.
+-- refresh_token/access_token (CBC, hex) werden nur noch gelesen; der Re-Encryption-Job überführt und leert sie.
+ALTER TABLE spotify_tokens ADD COLUMN refresh_token_enc VARBINARY(1024);
+ALTER TABLE spotify_tokens ADD COLUMN access_token_enc VARBINARY(1024);
+
+-- Älteste Schlüsselversion in der Zeile, 0 = Altbestand; der Job läuft je Version per Keyset über die ID
+ALTER TABLE spotify_tokens ADD COLUMN key_version INT NOT NULL DEFAULT 0;
+CREATE INDEX idx_spotify_tokens_key_version ON spotify_tokens (key_version, id);
@@ -0,0 +1,8 @@
+-- Heartbeat für das Read-Replica: der Primary schreibt beat_at regelmäßig, das Replica liest den replizierten Wert.
+-- Der Abstand beider Werte ist der Replikations-Lag (ReplicaLagMonitor).
+CREATE TABLE replication_heartbeat
+(
+    id      INT          NOT NULL PRIMARY KEY,
+    beat_at TIMESTAMP(3) NOT NULL
+);
+INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, CURRENT_TIMESTAMP(3));
@@ -0,0 +1,172 @@
+package com.spotifywrapped.spotify_wrapped_clone.db_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.IngestionState;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.ListeningEvent;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.StoredEvent;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.UserDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ListeningEventDBaccess.class, ListeningRollupDBaccess.class, SpotifyTokenDBaccess.class, UserDBaccess.class})
+class ListeningEventDBaccessTest {
+
+    @Autowired
+    private ListeningEventDBaccess listeningEventDBaccess;
+
+    @Autowired
+    private SpotifyTokenDBaccess spotifyTokenDBaccess;
+
+    @Autowired
+    private UserDBaccess userDBaccess;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void appendEventsStoresEventsAndCursorTogether() {
+        User user = connectedUser("listener", "refresh");
+        Instant playedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        ListeningEvent first = new ListeningEvent("track-1", "artist-1", playedAt, 180_000);
+        ListeningEvent second = new ListeningEvent("track-2", "artist-2", playedAt.plusSeconds(200), 200_000);
+        long cursor = second.playedAt().toEpochMilli();
+
+        listeningEventDBaccess.appendEvents(user.getId(), List.of(first, second), cursor, Duration.ofMinutes(30), playedAt);
+
+        assertThat(listeningEventDBaccess.countEvents(user.getId())).isEqualTo(2);
+        assertThat(listeningEventDBaccess.findDueStates(playedAt, 10))
+                .containsExactly(new IngestionState(user.getId(), cursor, 1800, playedAt));
+    }
+
+    @Test
+    void findDueStatesReturnsNewAndDueUsersWithTheirCursor() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        User fresh = connectedUser("fresh", "refresh");
+        User due = connectedUser("due", "refresh");
+        User notDue = connectedUser("notdue", "refresh");
+        User disconnected = connectedUser("disconnected", null);
+
+        listeningEventDBaccess.saveState(due.getId(), 1234L, Duration.ofMinutes(20), now.minusSeconds(1));
+        listeningEventDBaccess.saveState(notDue.getId(), 99L, Duration.ofMinutes(20), now.plusSeconds(600));
+
+        List<IngestionState> states = listeningEventDBaccess.findDueStates(now, 10);
+
+        assertThat(states).containsExactly(
+                new IngestionState(fresh.getId(), null, null, null),
+                new IngestionState(due.getId(), 1234L, 1200, now.minusSeconds(1))
+        );
+        assertThat(states).extracting(IngestionState::userId).doesNotContain(disconnected.getId());
+    }
+
+    @Test
+    void claimDueLetsOnlyOneInstanceWinADueUser() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        User fresh = connectedUser("fresh", "refresh");
+        User due = connectedUser("due", "refresh");
+        listeningEventDBaccess.saveState(due.getId(), 1234L, Duration.ofMinutes(20), now.minusSeconds(1));
+
+        // Beide Instanzen lesen dieselben fälligen Nutzer
+        List<IngestionState> seenByFirst = listeningEventDBaccess.findDueStates(now, 10);
+        List<IngestionState> seenBySecond = listeningEventDBaccess.findDueStates(now, 10);
+        Instant claimedUntil = now.plusSeconds(300);
+
+        for (IngestionState state : seenByFirst) {
+            assertThat(listeningEventDBaccess.claimDue(state, Duration.ofMinutes(30), claimedUntil)).isTrue();
+        }
+        for (IngestionState state : seenBySecond) {
+            assertThat(listeningEventDBaccess.claimDue(state, Duration.ofMinutes(30), claimedUntil)).isFalse();
+        }
+
+        assertThat(listeningEventDBaccess.findDueStates(now, 10)).isEmpty();
+        assertThat(listeningEventDBaccess.findDueStates(claimedUntil, 10)).containsExactlyInAnyOrder(
+                new IngestionState(fresh.getId(), null, 1800, claimedUntil),
+                new IngestionState(due.getId(), 1234L, 1200, claimedUntil)
+        );
+    }
+
+    @Test
+    void forEachEventPagesThroughAllUsersInOrder() {
+        User first = connectedUser("first", "refresh");
+        User second = connectedUser("second", "refresh");
+        Instant start = Instant.parse("2026-02-01T08:00:00Z");
+
+        listeningEventDBaccess.appendEvents(first.getId(), List.of(
+                new ListeningEvent("t1", "a1", start, 1000),
+                new ListeningEvent("t2", "a1", start.plusSeconds(60), 1000),
+                new ListeningEvent("t3", "a1", start.plusSeconds(120), 1000)
+        ), null, Duration.ofMinutes(30), start);
+        listeningEventDBaccess.appendEvents(second.getId(), List.of(
+                new ListeningEvent("t4", null, start, 1000)
+        ), null, Duration.ofMinutes(30), start);
+
+        List<String> seen = new ArrayList<>();
+        listeningEventDBaccess.forEachEvent(2, (userId, trackId, artistId, playedAtMillis, durationMs) ->
+                seen.add(userId + ":" + trackId));
+
+        assertThat(seen).containsExactly(
+                first.getId() + ":t1", first.getId() + ":t2", first.getId() + ":t3", second.getId() + ":t4");
+    }
+
+    @Test
+    void findEventsAfterIdReadsOnlyEventsStoredAfterTheWatermark() {
+        User first = connectedUser("first", "refresh");
+        User second = connectedUser("second", "refresh");
+        Instant start = Instant.parse("2026-02-01T08:00:00Z");
+
+        listeningEventDBaccess.appendEvents(first.getId(), List.of(
+                new ListeningEvent("t1", "a1", start, 1000)
+        ), null, Duration.ofMinutes(30), start);
+        long watermark = listeningEventDBaccess.findMaxEventId();
+
+        listeningEventDBaccess.appendEvents(second.getId(), List.of(
+                new ListeningEvent("t2", "a2", start, 2000)
+        ), null, Duration.ofMinutes(30), start);
+        listeningEventDBaccess.appendEvents(first.getId(), List.of(
+                new ListeningEvent("t3", null, start.plusSeconds(60), 3000)
+        ), null, Duration.ofMinutes(30), start);
+
+        List<StoredEvent> events = listeningEventDBaccess.findEventsAfterId(watermark, 10);
+
+        assertThat(events).extracting(event -> event.userId() + ":" + event.event().trackId())
+                .containsExactly(second.getId() + ":t2", first.getId() + ":t3");
+        assertThat(events.getLast().id()).isEqualTo(listeningEventDBaccess.findMaxEventId());
+        assertThat(listeningEventDBaccess.findEventsAfterId(watermark, 1)).hasSize(1);
+    }
+
+    private User connectedUser(String username, String refreshToken) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("pw");
+        userDBaccess.createUser(user);
+        entityManager.flush();
+
+        spotifyTokenDBaccess.createOrUpdateToken(
+                user.getId(),
+                refreshToken != null ? refreshToken.getBytes(StandardCharsets.UTF_8) : null,
+                "access".getBytes(StandardCharsets.UTF_8),
+                1,
+                Instant.now().plusSeconds(3600)
+        );
+        entityManager.flush();
+        return user;
+    }
+}
@@ -0,0 +1,90 @@
+package com.spotifywrapped.spotify_wrapped_clone.db_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.ListeningEvent;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess.DailyTotal;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess.RankedItem;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.UserDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ListeningEventDBaccess.class, ListeningRollupDBaccess.class, UserDBaccess.class})
+class ListeningRollupDBaccessTest {
+
+    private static final Instant DAY_ONE = Instant.parse("2026-03-01T10:00:00Z");
+    private static final Instant DAY_TWO = Instant.parse("2026-03-02T23:30:00Z");
+
+    @Autowired
+    private ListeningEventDBaccess listeningEventDBaccess;
+
+    @Autowired
+    private ListeningRollupDBaccess listeningRollupDBaccess;
+
+    @Autowired
+    private UserDBaccess userDBaccess;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void appendedEventsAreAddedIncrementallyToDailyRollups() {
+        User user = createUser("listener");
+
+        append(user, List.of(
+                new ListeningEvent("track-a", "artist-x", DAY_ONE, 120_000),
+                new ListeningEvent("track-a", "artist-x", DAY_ONE.plusSeconds(300), 120_000),
+                new ListeningEvent("track-b", "artist-y", DAY_ONE.plusSeconds(600), 60_000)
+        ));
+        append(user, List.of(
+                new ListeningEvent("track-b", "artist-y", DAY_ONE.plusSeconds(900), 60_000),
+                new ListeningEvent("track-b", null, DAY_TWO, 60_000)
+        ));
+
+        List<DailyTotal> totals = listeningRollupDBaccess.findDailyTotals(
+                user.getId(), LocalDate.parse("2026-03-01"), LocalDate.parse("2026-03-31"));
+        List<RankedItem> topTracks = listeningRollupDBaccess.findTopTracks(
+                user.getId(), LocalDate.parse("2026-03-01"), LocalDate.parse("2026-03-31"), 10);
+        List<RankedItem> topArtists = listeningRollupDBaccess.findTopArtists(
+                user.getId(), LocalDate.parse("2026-03-01"), LocalDate.parse("2026-03-01"), 1);
+
+        assertThat(totals).containsExactly(
+                new DailyTotal(LocalDate.parse("2026-03-01"), 4, 360_000),
+                new DailyTotal(LocalDate.parse("2026-03-02"), 1, 60_000)
+        );
+        assertThat(topTracks).containsExactly(
+                new RankedItem("track-b", 3, 180_000),
+                new RankedItem("track-a", 2, 240_000)
+        );
+        assertThat(topArtists).containsExactly(new RankedItem("artist-x", 2, 240_000));
+    }
+
+    private void append(User user, List<ListeningEvent> events) {
+        long cursor = events.getLast().playedAt().toEpochMilli();
+        listeningEventDBaccess.appendEvents(user.getId(), events, cursor, Duration.ofMinutes(30), Instant.now());
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("pw");
+        userDBaccess.createUser(user);
+        entityManager.flush();
+        return user;
+    }
+}
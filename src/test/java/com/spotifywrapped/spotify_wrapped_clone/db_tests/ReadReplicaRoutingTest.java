@@ -0,0 +1,167 @@
+package com.spotifywrapped.spotify_wrapped_clone.db_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ReplicaLagMonitor;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ReplicaRoutingDataSource;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.UserDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.SpotifyToken;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import com.spotifywrapped.spotify_wrapped_clone.service.ReadReplicaConfig;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing mit zwei H2-Instanzen: Primary über spring.datasource, "Replica" als zweite In-Memory-DB.
+ * Replikation wird simuliert, indem der Test Zeilen und den Heartbeat direkt ins Replica schreibt.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.enabled=true",
+        "app.datasource.replica.jdbc-url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "app.datasource.replica.username=sa",
+        "app.datasource.replica.password=",
+        "app.datasource.replica.max-lag=5s",
+        // Der Test ruft checkLag selbst auf
+        "app.datasource.replica.lag-check-interval=1h"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ReadReplicaConfig.class, UserDBaccess.class, SpotifyTokenDBaccess.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final long REPLICA_ONLY_USER_ID = 1000L;
+
+    @Autowired
+    private UserDBaccess userDBaccess;
+
+    @Autowired
+    private SpotifyTokenDBaccess spotifyTokenDBaccess;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        DataSource replicaWriter = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        Flyway.configure().dataSource(replicaWriter).locations("classpath:db/migration").load().migrate();
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaWriter);
+
+        replica.update("INSERT INTO users (id, username, username_normalized, email, email_normalized, password) " +
+                        "VALUES (?, 'replica-only', 'replica-only', 'replica@example.com', 'replica@example.com', 'pw')",
+                REPLICA_ONLY_USER_ID);
+        replica.update("INSERT INTO spotify_tokens (user_id, access_token_enc, key_version) VALUES (?, X'01', 1)",
+                REPLICA_ONLY_USER_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        replica.update("DELETE FROM spotify_tokens");
+        replica.update("DELETE FROM users");
+        primary.update("DELETE FROM users");
+    }
+
+    @Test
+    void readOnlyLookupsUseTheReplicaAndWritesThePrimary() {
+        replicateHeartbeat(0);
+        lagMonitor.checkLag();
+
+        SpotifyToken fromReplica = spotifyTokenDBaccess.findByUserId(REPLICA_ONLY_USER_ID);
+        User created = userDBaccess.createUser(user("written"));
+
+        assertThat(lagMonitor.isReplicaUsable()).isTrue();
+        assertThat(fromReplica).isNotNull();
+        assertThat(countUsers(primary, created.getId())).isEqualTo(1);
+        assertThat(countUsers(replica, created.getId())).isZero();
+        assertThat(routingDataSource.getReplicaReadCount()).isPositive();
+    }
+
+    @Test
+    void loginAndUserLookupsReadTheirOwnWritesFromThePrimary() {
+        replicateHeartbeat(0);
+        lagMonitor.checkLag();
+        long replicaReadsBefore = routingDataSource.getReplicaReadCount();
+
+        // Registrierung, gleich danach Login und Lookup per ID: das Replica hat den User noch nicht
+        User created = userDBaccess.createUser(user("fresh"));
+        User byLogin = userDBaccess.findByUsernameOrEmail("Fresh@Example.com");
+        User byId = userDBaccess.findUserById(created.getId());
+
+        assertThat(lagMonitor.isReplicaUsable()).isTrue();
+        assertThat(byLogin).isNotNull();
+        assertThat(byId).isNotNull();
+        assertThat(userDBaccess.findByUsernameOrEmail("replica@example.com")).isNull();
+        assertThat(routingDataSource.getReplicaReadCount()).isEqualTo(replicaReadsBefore);
+    }
+
+    @Test
+    void laggingReplicaFallsBackToThePrimary() {
+        replicateHeartbeat(3600);
+        lagMonitor.checkLag();
+        long fallbacksBefore = routingDataSource.getFallbackReadCount();
+
+        SpotifyToken lookup = spotifyTokenDBaccess.findByUserId(REPLICA_ONLY_USER_ID);
+
+        assertThat(lagMonitor.isReplicaUsable()).isFalse();
+        assertThat(lagMonitor.getLagSeconds()).isGreaterThanOrEqualTo(3600);
+        assertThat(lookup).isNull();
+        assertThat(routingDataSource.getFallbackReadCount()).isEqualTo(fallbacksBefore + 1);
+
+        // Replica holt auf → wieder in Benutzung
+        replicateHeartbeat(0);
+        lagMonitor.checkLag();
+        assertThat(spotifyTokenDBaccess.findByUserId(REPLICA_ONLY_USER_ID)).isNotNull();
+    }
+
+
+    /**
+     * Überträgt den aktuellen Heartbeat des Primary ins Replica, um {@code lagSeconds} zurückdatiert.
+     */
+    private void replicateHeartbeat(int lagSeconds) {
+        Timestamp primaryBeat = primary.queryForObject(
+                "SELECT beat_at FROM replication_heartbeat WHERE id = 1", Timestamp.class);
+        replica.update("UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1",
+                new Timestamp(primaryBeat.getTime() - lagSeconds * 1000L));
+    }
+
+    private static int countUsers(JdbcTemplate jdbc, Long id) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, id);
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("pw");
+        return user;
+    }
+}
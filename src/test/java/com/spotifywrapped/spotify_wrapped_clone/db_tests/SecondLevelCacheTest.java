@@ -0,0 +1,194 @@
+package com.spotifywrapped.spotify_wrapped_clone.db_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess.ReEncryptedToken;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess.StoredTokenCiphertext;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.UserDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.SpotifyToken;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import com.spotifywrapped.spotify_wrapped_clone.service.HibernateCacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Zählt die SQL-Statements eines Dashboard-Aufrufs mit Second-Level-Cache.
+ * Ohne Test-Transaktion: jeder DBaccess-Aufruf committet selbst, wie im Betrieb, und hat einen eigenen Persistence Context.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true"
+})
+@ActiveProfiles("test")
+@Import({HibernateCacheConfig.class, UserDBaccess.class, SpotifyTokenDBaccess.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private UserDBaccess userDBaccess;
+
+    @Autowired
+    private SpotifyTokenDBaccess spotifyTokenDBaccess;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private final List<Long> createdUserIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        createdUserIds.forEach(userDBaccess::deleteUser);
+    }
+
+    @Test
+    void repeatedDashboardLoadsAreServedWithoutSql() {
+        Long userId = connectedUser("dashboard").getId();
+        entityManagerFactory.getCache().evictAll();
+
+        long coldStatements = statementsFor(() -> dashboardLoad(userId));
+        long warmStatements = statementsFor(() -> dashboardLoad(userId));
+
+        assertThat(coldStatements).isPositive();
+        assertThat(warmStatements).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics("users").getHitCount()).isPositive();
+        assertThat(statistics.getQueryRegionStatistics("spotify-token-by-user").getHitCount()).isPositive();
+    }
+
+    @Test
+    void createOrUpdateTokenInvalidatesCachedTokenLookup() {
+        Long userId = connectedUser("rotating").getId();
+        dashboardLoad(userId);
+
+        spotifyTokenDBaccess.createOrUpdateToken(userId, null, bytes("access-new"), 1, Instant.now().plusSeconds(3600));
+        SpotifyToken reloaded = spotifyTokenDBaccess.findByUserId(userId);
+
+        assertThat(reloaded.getAccessTokenCiphertext()).isEqualTo(bytes("access-new"));
+        assertThat(reloaded.getRefreshTokenCiphertext()).isEqualTo(bytes("refresh"));
+    }
+
+    @Test
+    void updateAndDeleteUserInvalidateCachedEntities() {
+        Long userId = connectedUser("renamed").getId();
+        dashboardLoad(userId);
+
+        User updates = new User();
+        updates.setEmail("renamed@example.org");
+        userDBaccess.updateUser(userId, updates);
+        User reloaded = userDBaccess.findUserById(userId);
+
+        userDBaccess.deleteUser(userId);
+        createdUserIds.remove(userId);
+
+        assertThat(reloaded.getEmail()).isEqualTo("renamed@example.org");
+        assertThat(userDBaccess.findUserById(userId)).isNull();
+        assertThat(spotifyTokenDBaccess.findByUserId(userId)).isNull();
+    }
+
+    @Test
+    void updateOnAStaleCachedUserKeepsChangesOfAnotherInstance() {
+        Long userId = connectedUser("stale").getId();
+        dashboardLoad(userId);
+
+        // Andere Instanz: schreibt in die Datenbank, der Cache dieser Instanz bekommt davon nichts mit
+        jdbcTemplate.update("UPDATE users SET email = ?, email_normalized = ?, version = version + 1 WHERE id = ?",
+                "elsewhere@example.com", "elsewhere@example.com", userId);
+
+        User updates = new User();
+        updates.setUsername("renamed-here");
+        User updated = userDBaccess.updateUser(userId, updates);
+
+        assertThat(updated.getEmail()).isEqualTo("elsewhere@example.com");
+        assertThat(updated.getVersion()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT email FROM users WHERE id = ?", String.class, userId))
+                .isEqualTo("elsewhere@example.com");
+        assertThat(userDBaccess.findUserById(userId).getUsername()).isEqualTo("renamed-here");
+    }
+
+    @Test
+    void reEncryptionEvictsOnlyTheUpdatedTokens() {
+        Long reEncryptedUserId = connectedUser("reencrypted").getId();
+        Long untouchedUserId = connectedUser("untouched").getId();
+        dashboardLoad(reEncryptedUserId);
+        dashboardLoad(untouchedUserId);
+        Long reEncryptedId = spotifyTokenDBaccess.findByUserId(reEncryptedUserId).getId();
+        Long untouchedId = spotifyTokenDBaccess.findByUserId(untouchedUserId).getId();
+
+        StoredTokenCiphertext row = spotifyTokenDBaccess.findTokensWithKeyVersion(1, 0L, 100).stream()
+                .filter(stored -> stored.id().equals(reEncryptedId))
+                .findFirst()
+                .orElseThrow();
+        int updated = spotifyTokenDBaccess.updateReEncryptedTokens(List.of(new ReEncryptedToken(
+                row.id(), 1, row.accessTokenExpiresAt(), bytes("v2-refresh"), bytes("v2-access"), 2)));
+
+        // Nur die geänderte Zeile fällt aus dem Cache; andere Tokens und die Lookups bleiben ohne SQL
+        assertThat(updated).isEqualTo(1);
+        assertThat(entityManagerFactory.getCache().contains(SpotifyToken.class, reEncryptedId)).isFalse();
+        assertThat(entityManagerFactory.getCache().contains(SpotifyToken.class, untouchedId)).isTrue();
+        assertThat(statementsFor(() -> spotifyTokenDBaccess.findByUserId(untouchedUserId))).isZero();
+
+        SpotifyToken reloaded = spotifyTokenDBaccess.findByUserId(reEncryptedUserId);
+        assertThat(reloaded.getRefreshTokenCiphertext()).isEqualTo(bytes("v2-refresh"));
+        assertThat(reloaded.getKeyVersion()).isEqualTo(2);
+    }
+
+
+    /**
+     * Was ein Dashboard-Aufruf bei leerem Token-Cache liest: Nutzer und (für Status, Profil, Top Tracks) seine Tokens.
+     */
+    private void dashboardLoad(Long userId) {
+        assertThat(userDBaccess.findUserById(userId)).isNotNull();
+        for (int i = 0; i < 3; i++) {
+            assertThat(spotifyTokenDBaccess.findByUserId(userId)).isNotNull();
+        }
+    }
+
+    private long statementsFor(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User connectedUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("pw");
+        userDBaccess.createUser(user);
+        createdUserIds.add(user.getId());
+
+        spotifyTokenDBaccess.createOrUpdateToken(
+                user.getId(), bytes("refresh"), bytes("access"), 1, Instant.now().plusSeconds(3600));
+        return user;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package com.spotifywrapped.spotify_wrapped_clone.db_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogArtist;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogTrack;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SpotifyCatalogDBaccess.class, JacksonAutoConfiguration.class})
+class SpotifyCatalogDBaccessTest {
+
+    @Autowired
+    private SpotifyCatalogDBaccess spotifyCatalogDBaccess;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void savedItemsAreFoundByIdAndUpdatedInPlace() {
+        spotifyCatalogDBaccess.saveTracks(List.of(
+                new CatalogTrack("t1", "Song", List.of("a1", "a2"), List.of("Band", "Guest"), "al1", "https://img/1", 200_000),
+                new CatalogTrack("t2", "Other", List.of(), List.of(), null, null, null)
+        ));
+        spotifyCatalogDBaccess.saveArtists(List.of(new CatalogArtist("a1", "Band", List.of("rock"), null)));
+        spotifyCatalogDBaccess.saveTracks(List.of(
+                new CatalogTrack("t2", "Other (Remaster)", List.of(), List.of(), null, null, 90_000)));
+
+        Map<String, CatalogTrack> tracks = spotifyCatalogDBaccess.findTracks(List.of("t1", "t2", "unknown"));
+
+        assertThat(tracks).hasSize(2);
+        assertThat(tracks.get("t1").artistNames()).containsExactly("Band", "Guest");
+        assertThat(tracks.get("t2").name()).isEqualTo("Other (Remaster)");
+        assertThat(tracks.get("t2").durationMs()).isEqualTo(90_000);
+        assertThat(spotifyCatalogDBaccess.findArtists(List.of("a1")).get("a1").genres()).containsExactly("rock");
+    }
+
+    @Test
+    void rowsOfABatchThatHitAConcurrentInsertAreStillStored() {
+        // Wie MySQL mit rewriteBatchedStatements: ein mehrzeiliges INSERT scheitert als Ganzes,
+        // nachdem eine andere Instanz "a2" eingefügt hat
+        JdbcTemplate racingJdbcTemplate = new JdbcTemplate(dataSource) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                if (sql.startsWith("INSERT")) {
+                    update("INSERT INTO catalog_artists (name, genres, image_url, id) VALUES ('Other', '[]', NULL, 'a2')");
+                    throw new DuplicateKeyException("Duplicate entry 'a2' for key 'PRIMARY'");
+                }
+                return super.batchUpdate(sql, batchArgs, batchSize, pss);
+            }
+        };
+        SpotifyCatalogDBaccess racingDBaccess = new SpotifyCatalogDBaccess(racingJdbcTemplate, objectMapper);
+
+        racingDBaccess.saveArtists(List.of(
+                new CatalogArtist("a1", "First", List.of(), null),
+                new CatalogArtist("a2", "Second", List.of(), null),
+                new CatalogArtist("a3", "Third", List.of(), null)
+        ));
+
+        Map<String, CatalogArtist> artists = spotifyCatalogDBaccess.findArtists(List.of("a1", "a2", "a3"));
+        assertThat(artists).containsOnlyKeys("a1", "a2", "a3");
+        assertThat(artists.get("a1").name()).isEqualTo("First");
+        assertThat(artists.get("a3").name()).isEqualTo("Third");
+    }
+}
@@ -1,6 +1,8 @@
 package com.spotifywrapped.spotify_wrapped_clone.db_tests;
 
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess.ReEncryptedToken;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess.StoredTokenCiphertext;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.UserDBaccess;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.SpotifyToken;
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
@@ -11,8 +13,10 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -34,8 +38,9 @@ class SpotifyTokenDBaccessTest {
     void createOrUpdateTokenReturnsNullWhenUserIsMissing() {
         SpotifyToken token = spotifyTokenDBaccess.createOrUpdateToken(
                 9999L,
-                "refresh",
-                "access",
+                bytes("refresh"),
+                bytes("access"),
+                1,
                 Instant.now().truncatedTo(ChronoUnit.MICROS)
         );
 
@@ -54,8 +59,9 @@ class SpotifyTokenDBaccessTest {
 
         SpotifyToken token = spotifyTokenDBaccess.createOrUpdateToken(
                 user.getId(),
-                "refresh-123",
-                "access-123",
+                bytes("refresh-123"),
+                bytes("access-123"),
+                1,
                 expiry
         );
         entityManager.flush();
@@ -65,8 +71,9 @@ class SpotifyTokenDBaccessTest {
 
         assertThat(reloaded).isNotNull();
         assertThat(reloaded.getUser().getId()).isEqualTo(user.getId());
-        assertThat(reloaded.getRefreshToken()).isEqualTo("refresh-123");
-        assertThat(reloaded.getAccessToken()).isEqualTo("access-123");
+        assertThat(reloaded.getRefreshTokenCiphertext()).isEqualTo(bytes("refresh-123"));
+        assertThat(reloaded.getAccessTokenCiphertext()).isEqualTo(bytes("access-123"));
+        assertThat(reloaded.getKeyVersion()).isEqualTo(1);
         assertThat(reloaded.getAccessTokenExpiresAt()).isEqualTo(expiry);
     }
 
@@ -82,8 +89,9 @@ class SpotifyTokenDBaccessTest {
 
         SpotifyToken initial = spotifyTokenDBaccess.createOrUpdateToken(
                 user.getId(),
-                "refresh-a",
-                "access-a",
+                bytes("refresh-a"),
+                bytes("access-a"),
+                1,
                 initialExpiry
         );
         entityManager.flush();
@@ -96,7 +104,8 @@ class SpotifyTokenDBaccessTest {
         SpotifyToken updated = spotifyTokenDBaccess.createOrUpdateToken(
                 user.getId(),
                 null,
-                "access-b",
+                bytes("access-b"),
+                2,
                 newExpiry
         );
         entityManager.flush();
@@ -105,9 +114,87 @@ class SpotifyTokenDBaccessTest {
         SpotifyToken reloaded = entityManager.find(SpotifyToken.class, updated.getId());
 
         assertThat(updated.getId()).isEqualTo(initial.getId());
-        assertThat(reloaded.getRefreshToken()).isEqualTo("refresh-a");
-        assertThat(reloaded.getAccessToken()).isEqualTo("access-b");
+        assertThat(reloaded.getRefreshTokenCiphertext()).isEqualTo(bytes("refresh-a"));
+        assertThat(reloaded.getAccessTokenCiphertext()).isEqualTo(bytes("access-b"));
         assertThat(reloaded.getAccessTokenExpiresAt()).isEqualTo(newExpiry);
+        // Refresh Token ist noch mit Version 1 verschlüsselt
+        assertThat(reloaded.getKeyVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void findUserIdsWithAccessTokenExpiringBeforePagesThroughExpiringTokens() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        User soon1 = userDBaccess.createUser(buildUser("soon1", "soon1@example.com", "pw"));
+        User later = userDBaccess.createUser(buildUser("later", "later@example.com", "pw"));
+        User soon2 = userDBaccess.createUser(buildUser("soon2", "soon2@example.com", "pw"));
+        User noRefresh = userDBaccess.createUser(buildUser("norefresh", "norefresh@example.com", "pw"));
+        entityManager.flush();
+
+        spotifyTokenDBaccess.createOrUpdateToken(soon1.getId(), bytes("refresh"), bytes("access"), 1, now.plusSeconds(60));
+        spotifyTokenDBaccess.createOrUpdateToken(later.getId(), bytes("refresh"), bytes("access"), 1, now.plusSeconds(3600));
+        spotifyTokenDBaccess.createOrUpdateToken(soon2.getId(), bytes("refresh"), bytes("access"), 1, now.minusSeconds(60));
+        spotifyTokenDBaccess.createOrUpdateToken(noRefresh.getId(), null, bytes("access"), 1, now.plusSeconds(60));
+        entityManager.flush();
+        entityManager.clear();
+
+        Instant cutoff = now.plusSeconds(300);
+        List<Long> firstPage = spotifyTokenDBaccess.findUserIdsWithAccessTokenExpiringBefore(cutoff, 0L, 1);
+        List<Long> secondPage = spotifyTokenDBaccess.findUserIdsWithAccessTokenExpiringBefore(cutoff, firstPage.getLast(), 1);
+        List<Long> thirdPage = spotifyTokenDBaccess.findUserIdsWithAccessTokenExpiringBefore(cutoff, secondPage.getLast(), 1);
+
+        assertThat(firstPage).containsExactly(soon1.getId());
+        assertThat(secondPage).containsExactly(soon2.getId());
+        assertThat(thirdPage).isEmpty();
+    }
+
+    @Test
+    void reEncryptionPagesByKeyVersionAndSkipsConcurrentlyUpdatedRows() {
+        Instant expiry = Instant.now().plusSeconds(3600).truncatedTo(ChronoUnit.MICROS);
+        User legacy = userDBaccess.createUser(buildUser("legacy", "legacy@example.com", "pw"));
+        User refreshed = userDBaccess.createUser(buildUser("refreshed", "refreshed@example.com", "pw"));
+        entityManager.flush();
+
+        SpotifyToken legacyToken = spotifyTokenDBaccess.createOrUpdateToken(legacy.getId(), null, null, 0, expiry);
+        legacyToken.setRefreshToken("cbc-refresh");
+        legacyToken.setAccessToken("cbc-access");
+        spotifyTokenDBaccess.createOrUpdateToken(refreshed.getId(), bytes("v1-refresh"), bytes("v1-access"), 1, expiry);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<StoredTokenCiphertext> legacyRows = spotifyTokenDBaccess.findTokensWithKeyVersion(0, 0L, 10);
+        List<StoredTokenCiphertext> v1Rows = spotifyTokenDBaccess.findTokensWithKeyVersion(1, 0L, 10);
+
+        // Zwischen Lesen und Schreiben erneuert ein Refresh den Access Token
+        spotifyTokenDBaccess.createOrUpdateToken(refreshed.getId(), null, bytes("v2-access"), 2, expiry.plusSeconds(60));
+        entityManager.flush();
+        entityManager.clear();
+
+        int updated = spotifyTokenDBaccess.updateReEncryptedTokens(List.of(
+                reEncrypted(legacyRows.getFirst(), "v2-refresh", "v2-access"),
+                reEncrypted(v1Rows.getFirst(), "stale-refresh", "stale-access")
+        ));
+        entityManager.clear();
+
+        SpotifyToken reloadedLegacy = spotifyTokenDBaccess.findByUserId(legacy.getId());
+        SpotifyToken reloadedRefreshed = spotifyTokenDBaccess.findByUserId(refreshed.getId());
+
+        assertThat(legacyRows).extracting(StoredTokenCiphertext::legacyRefreshToken).containsExactly("cbc-refresh");
+        assertThat(v1Rows).extracting(StoredTokenCiphertext::id).containsExactly(reloadedRefreshed.getId());
+        assertThat(updated).isEqualTo(1);
+        assertThat(reloadedLegacy.getRefreshToken()).isNull();
+        assertThat(reloadedLegacy.getRefreshTokenCiphertext()).isEqualTo(bytes("v2-refresh"));
+        assertThat(reloadedLegacy.getKeyVersion()).isEqualTo(2);
+        assertThat(reloadedRefreshed.getAccessTokenCiphertext()).isEqualTo(bytes("v2-access"));
+        assertThat(reloadedRefreshed.getKeyVersion()).isEqualTo(1);
+    }
+
+    private static ReEncryptedToken reEncrypted(StoredTokenCiphertext row, String refreshToken, String accessToken) {
+        return new ReEncryptedToken(
+                row.id(), row.keyVersion(), row.accessTokenExpiresAt(), bytes(refreshToken), bytes(accessToken), 2);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 
     private User buildUser(String username, String email, String password) {
@@ -0,0 +1,205 @@
+package com.spotifywrapped.spotify_wrapped_clone.db_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenLeaseDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.UserDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import com.spotifywrapped.spotify_wrapped_clone.service.CryptoConfig;
+import com.spotifywrapped.spotify_wrapped_clone.service.SensitiveDataService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAccessTokenProvider;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiException;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAuthService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenRefreshScheduler;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Mehrere "Instanzen" (je eigener Token-Cache, eigener Provider mit eigener Lease-Kennung) auf einer Datenbank.
+ * Spotify rotiert den Refresh Token und lehnt den alten danach ab – ein zweiter Refresh würde also auffallen.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({UserDBaccess.class, SpotifyTokenDBaccess.class, SpotifyTokenLeaseDBaccess.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SpotifyTokenRefreshLeaseTest {
+
+    private static final int INSTANCES = 4;
+    private static final int REQUESTS_PER_INSTANCE = 4;
+    // Verhältnis wie in application.properties (10s / 20s), verkürzt
+    private static final Duration LEASE_TIME = Duration.ofSeconds(1);
+    private static final Duration LEASE_WAIT = Duration.ofSeconds(2);
+
+    @Autowired
+    private UserDBaccess userDBaccess;
+
+    @Autowired
+    private SpotifyTokenDBaccess spotifyTokenDBaccess;
+
+    @Autowired
+    private SpotifyTokenLeaseDBaccess tokenLeases;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SensitiveDataService sensitiveDataService;
+    private SpotifyAuthService spotifyAuthService;
+    private final AtomicInteger spotifyRefreshes = new AtomicInteger();
+    private ExecutorService executor;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        sensitiveDataService = new SensitiveDataService(
+                new BCryptPasswordEncoder(4),
+                Encryptors.text("test-password", "1234567890abcdef"),
+                new CryptoConfig().tokenEncryptor("test-password", "1234567890abcdef", "", 1),
+                new SimpleMeterRegistry(),
+                1, 4, Duration.ofSeconds(1)
+        );
+
+        spotifyAuthService = mock(SpotifyAuthService.class);
+        when(spotifyAuthService.refreshAccessToken(anyString())).thenAnswer(invocation -> {
+            if (!"refresh-1".equals(invocation.getArgument(0))) {
+                throw new IllegalStateException("invalid_grant: refresh token was rotated");
+            }
+            spotifyRefreshes.incrementAndGet();
+            Thread.sleep(200);
+            return new SpotifyAuthService.SpotifyTokenResponse("access-2", "Bearer", "", 3600, "refresh-2");
+        });
+
+        User user = new User();
+        user.setUsername("lease-user");
+        user.setEmail("lease-user@example.com");
+        user.setPassword("pw");
+        userId = userDBaccess.createUser(user).getId();
+
+        // Abgelaufener Access Token → jeder Aufruf will refreshen
+        spotifyTokenDBaccess.createOrUpdateToken(
+                userId,
+                sensitiveDataService.encryptToken("refresh-1"),
+                sensitiveDataService.encryptToken("access-1"),
+                sensitiveDataService.getActiveTokenKeyVersion(),
+                Instant.now().minusSeconds(60)
+        );
+
+        executor = Executors.newFixedThreadPool(INSTANCES * REQUESTS_PER_INSTANCE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        sensitiveDataService.shutdown();
+        userDBaccess.deleteUser(userId);
+    }
+
+    @Test
+    void onlyOneInstanceRefreshesAndTheOthersReuseItsToken() throws Exception {
+        List<SpotifyAccessTokenProvider> instances = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(instance());
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (SpotifyAccessTokenProvider instance : instances) {
+            for (int i = 0; i < REQUESTS_PER_INSTANCE; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return instance.getValidAccessToken(userId);
+                }));
+            }
+        }
+        start.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).isEqualTo("access-2");
+        }
+        assertThat(spotifyRefreshes).hasValue(1);
+        assertThat(storedRefreshToken()).isEqualTo("refresh-2");
+        assertThat(leaseOwner()).isNull();
+    }
+
+    @Test
+    void leaseOfACrashedInstanceIsTakenOverAfterItExpires() {
+        // Abgestürzte Instanz: hat die Lease genommen, aber nie freigegeben
+        assertThat(tokenLeases.tryAcquire(userId, "crashed-instance", LEASE_TIME)).isTrue();
+
+        String accessToken = instance().getValidAccessToken(userId);
+
+        assertThat(accessToken).isEqualTo("access-2");
+        assertThat(spotifyRefreshes).hasValue(1);
+        assertThat(leaseOwner()).isNull();
+    }
+
+    @Test
+    void revokedRefreshTokenIsNotRetriedByTheNextSchedulerRun() {
+        doThrow(new SpotifyApiException("invalid_grant",
+                HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, null, null)))
+                .when(spotifyAuthService).refreshAccessToken(anyString());
+        SpotifyTokenRefreshScheduler scheduler = new SpotifyTokenRefreshScheduler(
+                spotifyTokenDBaccess, instance(), true, 10, 1, Duration.ofMinutes(5));
+
+        try {
+            scheduler.refreshExpiringTokens();
+            scheduler.refreshExpiringTokens();
+        } finally {
+            scheduler.shutdown();
+        }
+
+        verify(spotifyAuthService, times(1)).refreshAccessToken(anyString());
+        assertThat(scheduler.getFailedCount()).isEqualTo(1);
+
+        // Neu verbunden → wieder im Hintergrund-Refresh
+        spotifyTokenDBaccess.createOrUpdateToken(userId, sensitiveDataService.encryptToken("refresh-new"),
+                sensitiveDataService.encryptToken("access-new"), sensitiveDataService.getActiveTokenKeyVersion(),
+                Instant.now().minusSeconds(60));
+        assertThat(spotifyTokenDBaccess.findUserIdsWithAccessTokenExpiringBefore(Instant.now(), 0L, 10))
+                .containsExactly(userId);
+    }
+
+
+    /** ---------------------------------------------
+     *   PRIVATE HELPERS
+     *  --------------------------------------------- */
+
+    private SpotifyAccessTokenProvider instance() {
+        SpotifyTokenService tokenService = new SpotifyTokenService(spotifyTokenDBaccess, sensitiveDataService, 100);
+        return new SpotifyAccessTokenProvider(spotifyAuthService, tokenService, tokenLeases,
+                new SimpleMeterRegistry(), LEASE_TIME, LEASE_WAIT, Duration.ofMillis(20));
+    }
+
+    private String storedRefreshToken() {
+        SpotifyTokenService tokenService = new SpotifyTokenService(spotifyTokenDBaccess, sensitiveDataService, 100);
+        return tokenService.reloadTokens(userId).refreshToken();
+    }
+
+    private String leaseOwner() {
+        return jdbcTemplate.queryForObject(
+                "SELECT refresh_lease_owner FROM spotify_tokens WHERE user_id = ?", String.class, userId);
+    }
+}
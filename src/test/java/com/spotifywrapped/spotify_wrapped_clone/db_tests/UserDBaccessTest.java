@@ -89,6 +89,29 @@ class UserDBaccessTest {
         assertThat(missing).isNull();
     }
 
+    @Test
+    void findByUsernameOrEmailIgnoresCase() {
+        userDBaccess.createUser(buildUser("Frank", "Frank@Example.com", "pw"));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(userDBaccess.findByUsernameOrEmail("frank")).isNotNull();
+        assertThat(userDBaccess.findByUsernameOrEmail("FRANK@example.COM")).isNotNull();
+        assertThat(userDBaccess.findByUsernameOrEmail("frank@example.org")).isNull();
+    }
+
+    @Test
+    void duplicateChecksIgnoreCaseAndTheUserItself() {
+        User user = userDBaccess.createUser(buildUser("grace", "grace@example.com", "pw"));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(userDBaccess.isUsernameTaken("GRACE", null)).isTrue();
+        assertThat(userDBaccess.isEmailTaken("Grace@Example.com", null)).isTrue();
+        assertThat(userDBaccess.isUsernameTaken("grace", user.getId())).isFalse();
+        assertThat(userDBaccess.isEmailTaken("heidi@example.com", null)).isFalse();
+    }
+
     @Test
     void deleteUserRemovesExistingUser() {
         User user = userDBaccess.createUser(buildUser("erin", "erin@example.com", "pw"));
@@ -0,0 +1,104 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogAlbum;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogImage;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.AlbumImageService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiClient;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AlbumImageServiceTest {
+
+    private static final List<CatalogImage> IMAGES = List.of(
+            new CatalogImage("https://i.scdn.co/image/large", 640, 640),
+            new CatalogImage("https://i.scdn.co/image/medium", 300, 300),
+            new CatalogImage("https://i.scdn.co/image/small", 64, 64)
+    );
+
+    private static final String SIGNING_KEY = "test-image-signing-key";
+
+    @TempDir
+    Path cacheDir;
+
+    private SpotifyCatalogService spotifyCatalogService;
+    private SpotifyApiClient spotifyApiClient;
+
+    @BeforeEach
+    void setUp() {
+        spotifyCatalogService = mock(SpotifyCatalogService.class);
+        spotifyApiClient = mock(SpotifyApiClient.class);
+        when(spotifyCatalogService.getAlbums(anyCollection())).thenAnswer(invocation -> {
+            String id = invocation.<List<String>>getArgument(0).getFirst();
+            return Map.of(id, new CatalogAlbum(id, "Album " + id, IMAGES.getFirst().url(), IMAGES));
+        });
+        when(spotifyApiClient.download(anyString())).thenAnswer(invocation ->
+                ResponseEntity.ok(new byte[invocation.<String>getArgument(0).length() * 10]));
+    }
+
+    @Test
+    void smallestSufficientImageIsDownloadedOnceAndThenServedFromDisk() {
+        AlbumImageService service = new AlbumImageService(
+                spotifyCatalogService, spotifyApiClient, cacheDir, DataSize.ofMegabytes(1), 300, SIGNING_KEY);
+
+        AlbumImageService.AlbumImage first = service.getAlbumImage("album1", 200);
+        AlbumImageService.AlbumImage second = service.getAlbumImage("album1", 300);
+        AlbumImageService.AlbumImage large = service.getAlbumImage("album1", 1000);
+
+        assertEquals(first.key(), second.key());
+        assertNotEquals(first.key(), large.key());
+        verify(spotifyApiClient, times(1)).download("https://i.scdn.co/image/medium");
+        verify(spotifyApiClient, times(1)).download("https://i.scdn.co/image/large");
+        assertEquals(2, service.getCachedImageCount());
+
+        // Nach einem Neustart werden vorhandene Dateien übernommen
+        AlbumImageService restarted = new AlbumImageService(
+                spotifyCatalogService, spotifyApiClient, cacheDir, DataSize.ofMegabytes(1), 300, SIGNING_KEY);
+        assertEquals(2, restarted.getCachedImageCount());
+        assertEquals(service.getCachedBytes(), restarted.getCachedBytes());
+    }
+
+    @Test
+    void leastRecentlyReadImageIsEvictedWhenTheCacheIsFull() {
+        // "medium" = 300 Bytes, "small" und "large" = 290 Bytes; Platz für zwei Bilder
+        AlbumImageService service = new AlbumImageService(
+                spotifyCatalogService, spotifyApiClient, cacheDir, DataSize.ofBytes(600), 300, SIGNING_KEY);
+
+        service.getAlbumImage("album1", 300);
+        service.getAlbumImage("album1", 64);
+        service.getAlbumImage("album1", 300);
+        service.getAlbumImage("album1", 640);
+        service.getAlbumImage("album1", 300);
+
+        assertEquals(2, service.getCachedImageCount());
+        verify(spotifyApiClient, times(1)).download("https://i.scdn.co/image/medium");
+        verify(spotifyApiClient, times(1)).download("https://i.scdn.co/image/small");
+    }
+
+    @Test
+    void onlyIssuedProxyUrlsCarryAValidSignature() {
+        AlbumImageService service = new AlbumImageService(
+                spotifyCatalogService, spotifyApiClient, cacheDir, DataSize.ofMegabytes(1), 300, SIGNING_KEY);
+
+        String url = service.proxyUrl("album1");
+        String signature = url.substring(url.indexOf("&sig=") + 5);
+
+        assertTrue(url.startsWith("/api/images/album1?size=300&sig="));
+        assertTrue(service.isValidSignature("album1", signature));
+        assertFalse(service.isValidSignature("album2", signature));
+        assertFalse(service.isValidSignature("album1", null));
+        assertFalse(new AlbumImageService(spotifyCatalogService, spotifyApiClient, cacheDir,
+                DataSize.ofMegabytes(1), 300, "other-key").isValidSignature("album1", signature));
+    }
+}
@@ -0,0 +1,60 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.service.AuthenticatedUser;
+import com.spotifywrapped.spotify_wrapped_clone.service.JwtAuthenticationFilter;
+import com.spotifywrapped.spotify_wrapped_clone.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private JwtService jwtService;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = mock(JwtService.class);
+        filter = new JwtAuthenticationFilter(jwtService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validBearerTokenPutsPrincipalIntoSecurityContext() throws Exception {
+        AuthenticatedUser principal = new AuthenticatedUser(7L, "alice", "alice@example.com");
+        when(jwtService.parseAccessToken("valid")).thenReturn(principal);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer valid");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertSame(principal, authentication.getPrincipal());
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void missingOrInvalidTokenLeavesRequestAnonymous() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer invalid");
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNotNull(chain.getRequest());
+        verify(jwtService).parseAccessToken("invalid");
+    }
+}
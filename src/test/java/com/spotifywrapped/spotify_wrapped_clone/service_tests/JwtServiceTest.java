@@ -0,0 +1,67 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.User;
+import com.spotifywrapped.spotify_wrapped_clone.service.AuthenticatedUser;
+import com.spotifywrapped.spotify_wrapped_clone.service.JwtService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "test-jwt-secret-which-is-long-enough-for-hs256";
+
+    private JwtService jwtService;
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRET, Duration.ofHours(1), Duration.ofMinutes(10), 100);
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+    }
+
+    @Test
+    void repeatedTokenIsServedFromVerifiedCache() {
+        String token = jwtService.generateAccessToken(user);
+
+        assertEquals(7L, jwtService.parseUserId(token));
+        assertEquals(7L, jwtService.parseUserId(token));
+
+        assertEquals(1, jwtService.getVerifiedCacheStats().missCount());
+        assertEquals(1, jwtService.getVerifiedCacheStats().hitCount());
+    }
+
+    @Test
+    void tamperedTokenIsRejectedAndNotCached() {
+        String token = jwtService.generateAccessToken(user);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(jwtService.parseUserId(tampered));
+        assertNull(jwtService.parseUserId(tampered));
+        assertEquals(0, jwtService.getVerifiedCacheStats().hitCount());
+    }
+
+    @Test
+    void tokenSignedWithOtherSecretIsRejected() {
+        JwtService other = new JwtService(SECRET + "-other", Duration.ofHours(1), Duration.ofMinutes(10), 0);
+
+        assertNull(jwtService.parseUserId(other.generateAccessToken(user)));
+    }
+
+    @Test
+    void accessTokenResolvesPrincipalFromClaims() {
+        AuthenticatedUser principal = jwtService.parseAccessToken(jwtService.generateAccessToken(user));
+
+        assertEquals(new AuthenticatedUser(7L, "alice", "alice@example.com"), principal);
+    }
+
+    @Test
+    void spotifyStateTokenIsNotAcceptedAsAccessToken() {
+        assertNull(jwtService.parseAccessToken(jwtService.generateSpotifyStateToken(7L)));
+    }
+}
@@ -0,0 +1,143 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.ListeningEvent;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.StoredEvent;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.StoredEventHandler;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningIndex;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningIndex.IndexedRank;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningIndex.IndexedTotal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ListeningIndexTest {
+
+    private static final Instant START = Instant.parse("2026-05-01T00:00:00Z");
+
+    private ListeningEventDBaccess listeningEventDBaccess;
+    private ListeningIndex listeningIndex;
+
+    @BeforeEach
+    void setUp() {
+        listeningEventDBaccess = mock(ListeningEventDBaccess.class);
+        listeningIndex = new ListeningIndex(listeningEventDBaccess, true, 100);
+    }
+
+    @Test
+    void rebuildLoadsStoredEventsAndAnswersRangeQueries() {
+        doAnswer(invocation -> {
+            StoredEventHandler handler = invocation.getArgument(1);
+            handler.accept(1L, "track-a", "artist-x", START.toEpochMilli(), 100_000);
+            handler.accept(1L, "track-b", "artist-y", START.plusSeconds(60).toEpochMilli(), 50_000);
+            handler.accept(1L, "track-a", "artist-x", START.plusSeconds(120).toEpochMilli(), 100_000);
+            handler.accept(1L, "track-c", "artist-y", START.plusSeconds(180).toEpochMilli(), 40_000);
+            handler.accept(2L, "track-c", "artist-y", START.toEpochMilli(), 40_000);
+            return null;
+        }).when(listeningEventDBaccess).forEachEvent(anyInt(), any());
+
+        listeningIndex.rebuild();
+
+        assertTrue(listeningIndex.isReady());
+        assertEquals(List.of(new IndexedRank("track-a", 2, 200_000), new IndexedRank("track-b", 1, 50_000)),
+                listeningIndex.topTracks(1L, START, START.plusSeconds(3600), 2));
+        assertEquals(List.of(new IndexedRank("artist-x", 2, 200_000), new IndexedRank("artist-y", 2, 90_000)),
+                listeningIndex.topArtists(1L, START, START.plusSeconds(3600), 5));
+        assertEquals(new IndexedTotal(2, 150_000), listeningIndex.total(1L, START.plusSeconds(60), START.plusSeconds(180)));
+        assertEquals(List.of(new IndexedRank("track-c", 1, 40_000)),
+                listeningIndex.topTracks(2L, START, START.plusSeconds(1), 10));
+    }
+
+    @Test
+    void appendSkipsPlaysThatAreNotNewerThanTheLastOne() {
+        listeningIndex.append(1L, List.of(
+                new ListeningEvent("track-a", "artist-x", START, 100_000),
+                new ListeningEvent("track-b", null, START.plusSeconds(60), 50_000)
+        ));
+        listeningIndex.append(1L, List.of(
+                new ListeningEvent("track-b", null, START.plusSeconds(60), 50_000),
+                new ListeningEvent("track-a", "artist-x", START.plusSeconds(120), 100_000)
+        ));
+
+        assertEquals(3, listeningIndex.getPlayCount());
+        assertEquals(new IndexedTotal(3, 250_000), listeningIndex.total(1L, START, START.plusSeconds(3600)));
+        assertEquals(List.of(new IndexedRank("artist-x", 2, 200_000)),
+                listeningIndex.topArtists(1L, START, START.plusSeconds(3600), 5));
+    }
+
+    @Test
+    void appendAcceptsANewestFirstBatch() {
+        // Reihenfolge wie von /me/player/recently-played
+        listeningIndex.append(1L, List.of(
+                new ListeningEvent("track-c", "artist-y", START.plusSeconds(120), 40_000),
+                new ListeningEvent("track-b", "artist-y", START.plusSeconds(60), 50_000),
+                new ListeningEvent("track-a", "artist-x", START, 100_000)
+        ));
+
+        assertEquals(3, listeningIndex.getPlayCount());
+        assertEquals(new IndexedTotal(2, 90_000), listeningIndex.total(1L, START.plusSeconds(60), START.plusSeconds(3600)));
+        assertEquals(List.of(new IndexedRank("track-a", 1, 100_000)),
+                listeningIndex.topTracks(1L, START, START.plusSeconds(1), 5));
+    }
+
+    @Test
+    void failedRebuildKeepsThePreviousIndexIncludingAppendsDuringTheScan() {
+        listeningIndex.append(1L, List.of(new ListeningEvent("track-a", "artist-x", START, 100_000)));
+        doAnswer(invocation -> {
+            // Ingestion läuft parallel zum Scan weiter
+            listeningIndex.append(1L, List.of(new ListeningEvent("track-b", "artist-y", START.plusSeconds(60), 50_000)));
+            throw new DataAccessResourceFailureException("connection lost");
+        }).when(listeningEventDBaccess).forEachEvent(anyInt(), any());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> listeningIndex.rebuild());
+
+        assertEquals(2, listeningIndex.getPlayCount());
+        assertEquals(new IndexedTotal(2, 150_000), listeningIndex.total(1L, START, START.plusSeconds(3600)));
+
+        // Nach dem Fehler wird nichts mehr vorgemerkt: der nächste Rebuild enthält nur, was gespeichert ist
+        doAnswer(invocation -> null).when(listeningEventDBaccess).forEachEvent(anyInt(), any());
+        listeningIndex.rebuild();
+        assertEquals(0, listeningIndex.getPlayCount());
+    }
+
+    @Test
+    void catchUpAddsEventsStoredByAnotherInstance() {
+        when(listeningEventDBaccess.findMaxEventId()).thenReturn(5L);
+        doAnswer(invocation -> {
+            StoredEventHandler handler = invocation.getArgument(1);
+            handler.accept(1L, "track-a", "artist-x", START.plusSeconds(120).toEpochMilli(), 100_000);
+            return null;
+        }).when(listeningEventDBaccess).forEachEvent(anyInt(), any());
+        listeningIndex.rebuild();
+
+        // Von einer anderen Instanz gespeichert, darunter eine Wiedergabe vor der letzten bekannten
+        when(listeningEventDBaccess.findEventsAfterId(5L, 100)).thenReturn(List.of(
+                new StoredEvent(6L, 1L, new ListeningEvent("track-b", "artist-y", START.plusSeconds(60), 50_000)),
+                new StoredEvent(7L, 1L, new ListeningEvent("track-a", "artist-x", START.plusSeconds(180), 100_000)),
+                new StoredEvent(8L, 2L, new ListeningEvent("track-c", "artist-y", START, 40_000))
+        ));
+        listeningIndex.catchUp();
+
+        assertEquals(4, listeningIndex.getPlayCount());
+        assertEquals(List.of(new IndexedRank("track-a", 2, 200_000), new IndexedRank("track-b", 1, 50_000)),
+                listeningIndex.topTracks(1L, START, START.plusSeconds(3600), 5));
+        assertEquals(new IndexedTotal(1, 40_000), listeningIndex.total(2L, START, START.plusSeconds(1)));
+
+        // Der nächste Lauf liest denselben Bereich noch einmal (spät committete IDs), ohne doppelt zu zählen
+        listeningIndex.catchUp();
+        assertEquals(4, listeningIndex.getPlayCount());
+        listeningIndex.catchUp();
+        verify(listeningEventDBaccess).findEventsAfterId(8L, 100);
+    }
+}
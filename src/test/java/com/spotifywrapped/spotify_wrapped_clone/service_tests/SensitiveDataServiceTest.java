@@ -0,0 +1,129 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.service.CryptoConfig;
+import com.spotifywrapped.spotify_wrapped_clone.service.PasswordHashingBusyException;
+import com.spotifywrapped.spotify_wrapped_clone.service.SensitiveDataService;
+import com.spotifywrapped.spotify_wrapped_clone.service.VersionedTokenEncryptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SensitiveDataServiceTest {
+
+    private SensitiveDataService sensitiveDataService;
+
+    @AfterEach
+    void tearDown() {
+        sensitiveDataService.shutdown();
+    }
+
+    @Test
+    void fullHashingQueueIsRejectedWithRetryAfter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slowEncoder = mock(PasswordEncoder.class);
+        when(slowEncoder.encode(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        sensitiveDataService = service(slowEncoder, 1, 1);
+
+        // Ein Hash läuft, einer wartet → dritter wird abgelehnt
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> sensitiveDataService.hashPassword("a"));
+        awaitCondition(() -> sensitiveDataService.getActiveHashingCount() == 1);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> sensitiveDataService.hashPassword("b"));
+        awaitCondition(() -> sensitiveDataService.getHashingQueueSize() == 1);
+
+        PasswordHashingBusyException rejected = assertThrows(PasswordHashingBusyException.class,
+                () -> sensitiveDataService.hashPassword("c"));
+        assertEquals(Duration.ofSeconds(2), rejected.getRetryAfter());
+        assertEquals(1, sensitiveDataService.getRejectedHashingCount());
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void legacyAndCheaperHashesNeedRehash() {
+        sensitiveDataService = service(new CryptoConfig().passwordEncoder("bcrypt", 6), 1, 4);
+
+        String legacyHash = new BCryptPasswordEncoder(6).encode("secret");
+        String cheaperHash = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+        String currentHash = sensitiveDataService.hashPassword("secret");
+
+        assertTrue(sensitiveDataService.passwordMatches("secret", legacyHash));
+        assertTrue(sensitiveDataService.passwordMatches("secret", cheaperHash));
+        assertTrue(sensitiveDataService.needsRehash(legacyHash));
+        assertTrue(sensitiveDataService.needsRehash(cheaperHash));
+        assertTrue(currentHash.startsWith("{bcrypt}"));
+        assertFalse(sensitiveDataService.needsRehash(currentHash));
+    }
+
+
+    @Test
+    void tokensAreReadableAcrossKeyVersionsAndFromTheLegacyFormat() {
+        String legacyCiphertext = Encryptors.text("test-password", "1234567890abcdef").encrypt("legacy-token");
+        sensitiveDataService = service(new BCryptPasswordEncoder(4), 1, 4);
+        byte[] v1Envelope = sensitiveDataService.encryptToken("access-token");
+
+        // Rotation: Version 2 wird aktiv, Version 1 bleibt lesbar
+        SensitiveDataService rotated = new SensitiveDataService(
+                new BCryptPasswordEncoder(4),
+                Encryptors.text("test-password", "1234567890abcdef"),
+                tokenEncryptor(2),
+                new SimpleMeterRegistry(),
+                1, 4, Duration.ofSeconds(2)
+        );
+        try {
+            byte[] v2Envelope = rotated.encryptToken("access-token");
+
+            assertEquals(1, VersionedTokenEncryptor.keyVersionOf(v1Envelope));
+            assertEquals(2, VersionedTokenEncryptor.keyVersionOf(v2Envelope));
+            assertEquals("access-token", rotated.decryptToken(v1Envelope, null));
+            assertEquals("access-token", rotated.decryptToken(v2Envelope, null));
+            assertEquals("legacy-token", rotated.decryptToken(null, legacyCiphertext));
+            assertNull(rotated.decryptToken(null, null));
+        } finally {
+            rotated.shutdown();
+        }
+    }
+
+
+    private static VersionedTokenEncryptor tokenEncryptor(int activeVersion) {
+        String version2Key = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+        return new CryptoConfig().tokenEncryptor("test-password", "1234567890abcdef", "2:" + version2Key, activeVersion);
+    }
+
+    private static SensitiveDataService service(PasswordEncoder passwordEncoder, int threads, int queueCapacity) {
+        return new SensitiveDataService(
+                passwordEncoder,
+                Encryptors.text("test-password", "1234567890abcdef"),
+                tokenEncryptor(1),
+                new SimpleMeterRegistry(),
+                threads, queueCapacity, Duration.ofSeconds(2)
+        );
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenLeaseDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAccessTokenProvider;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAuthService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SpotifyAccessTokenProviderTest {
+
+    private static final int PARALLEL_REQUESTS = 16;
+
+    private SpotifyAuthService spotifyAuthService;
+    private SpotifyTokenService spotifyTokenService;
+    private SpotifyAccessTokenProvider provider;
+    private ExecutorService executor;
+
+    // Simulierte Datenbank: userId → aktuell gespeicherte Tokens
+    private final Map<Long, SpotifyTokenService.DecryptedSpotifyTokens> storedTokens = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        spotifyAuthService = mock(SpotifyAuthService.class);
+        spotifyTokenService = mock(SpotifyTokenService.class);
+        // Eine Instanz: die Lease ist immer frei (mehrere Instanzen: SpotifyTokenRefreshLeaseTest)
+        SpotifyTokenLeaseDBaccess tokenLeases = mock(SpotifyTokenLeaseDBaccess.class);
+        when(tokenLeases.tryAcquire(anyLong(), anyString(), any())).thenReturn(true);
+        provider = new SpotifyAccessTokenProvider(spotifyAuthService, spotifyTokenService, tokenLeases,
+                new SimpleMeterRegistry(), Duration.ofSeconds(10), Duration.ofSeconds(20), Duration.ofMillis(10));
+        executor = Executors.newFixedThreadPool(PARALLEL_REQUESTS);
+
+        when(spotifyTokenService.getDecryptedTokens(anyLong()))
+                .thenAnswer(invocation -> storedTokens.get(invocation.<Long>getArgument(0)));
+        when(spotifyTokenService.reloadTokens(anyLong()))
+                .thenAnswer(invocation -> storedTokens.get(invocation.<Long>getArgument(0)));
+        when(spotifyTokenService.calculateAccessTokenExpiry(any()))
+                .thenAnswer(invocation -> Instant.now().plusSeconds(3600));
+        doAnswer(invocation -> {
+            storedTokens.put(invocation.getArgument(0), new SpotifyTokenService.DecryptedSpotifyTokens(
+                    invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+            return null;
+        }).when(spotifyTokenService).updateTokens(anyLong(), any(), any(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void returnsStoredAccessTokenWhileStillValid() {
+        storedTokens.put(1L, new SpotifyTokenService.DecryptedSpotifyTokens(
+                "refresh", "access", Instant.now().plusSeconds(600)));
+
+        String accessToken = provider.getValidAccessToken(1L);
+
+        assertThat(accessToken).isEqualTo("access");
+        verifyNoInteractions(spotifyAuthService);
+    }
+
+    @Test
+    void returnsNullWhenSpotifyIsNotConnected() {
+        assertThat(provider.getValidAccessToken(2L)).isNull();
+        verifyNoInteractions(spotifyAuthService);
+    }
+
+    @Test
+    void parallelRequestsForExpiredTokenTriggerExactlyOneRefresh() throws Exception {
+        storedTokens.put(1L, expiredTokens());
+        AtomicInteger refreshCalls = new AtomicInteger();
+        when(spotifyAuthService.refreshAccessToken("refresh-old")).thenAnswer(invocation -> {
+            refreshCalls.incrementAndGet();
+            Thread.sleep(200);
+            return new SpotifyAuthService.SpotifyTokenResponse("access-new", "Bearer", null, 3600, "refresh-new");
+        });
+
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < PARALLEL_REQUESTS; i++) {
+            results.add(executor.submit(() -> {
+                startGate.await();
+                return provider.getValidAccessToken(1L);
+            }));
+        }
+        startGate.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("access-new");
+        }
+        assertThat(refreshCalls).hasValue(1);
+        verify(spotifyTokenService, times(1)).updateTokens(eq(1L), eq("refresh-new"), eq("access-new"), any());
+    }
+
+    @Test
+    void failedRefreshIsPropagatedToAllWaitingCallers() throws Exception {
+        storedTokens.put(1L, expiredTokens());
+        when(spotifyAuthService.refreshAccessToken("refresh-old")).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            throw new IllegalStateException("Spotify token request failed");
+        });
+
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> {
+                startGate.await();
+                return provider.getValidAccessToken(1L);
+            }));
+        }
+        startGate.countDown();
+
+        for (Future<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException ex) {
+                assertThat(ex.getCause()).isInstanceOf(IllegalStateException.class);
+                continue;
+            }
+            throw new AssertionError("Expected the refresh failure to reach every caller");
+        }
+    }
+
+    @Test
+    void refreshOfOneUserDoesNotBlockOtherUsers() throws Exception {
+        storedTokens.put(1L, expiredTokens());
+        storedTokens.put(2L, new SpotifyTokenService.DecryptedSpotifyTokens(
+                "refresh-other", "access-other-old", Instant.now().minusSeconds(5)));
+
+        CountDownLatch releaseFirstUser = new CountDownLatch(1);
+        when(spotifyAuthService.refreshAccessToken("refresh-old")).thenAnswer(invocation -> {
+            releaseFirstUser.await();
+            return new SpotifyAuthService.SpotifyTokenResponse("access-new", "Bearer", null, 3600, null);
+        });
+        when(spotifyAuthService.refreshAccessToken("refresh-other")).thenReturn(
+                new SpotifyAuthService.SpotifyTokenResponse("access-other-new", "Bearer", null, 3600, null));
+
+        Future<String> firstUser = executor.submit(() -> provider.getValidAccessToken(1L));
+        Future<String> secondUser = executor.submit(() -> provider.getValidAccessToken(2L));
+
+        assertThat(secondUser.get(5, TimeUnit.SECONDS)).isEqualTo("access-other-new");
+        assertThat(firstUser.isDone()).isFalse();
+
+        releaseFirstUser.countDown();
+        assertThat(firstUser.get(5, TimeUnit.SECONDS)).isEqualTo("access-new");
+    }
+
+    private SpotifyTokenService.DecryptedSpotifyTokens expiredTokens() {
+        return new SpotifyTokenService.DecryptedSpotifyTokens(
+                "refresh-old", "access-old", Instant.now().minusSeconds(5));
+    }
+}
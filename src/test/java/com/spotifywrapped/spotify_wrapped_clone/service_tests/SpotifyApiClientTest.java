@@ -0,0 +1,138 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiClient;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiException;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCallCancellation;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCircuitBreakers;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyRateLimiter;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyUnavailableException;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotifyApiClientTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private SpotifyRateLimiter rateLimiter;
+    private SpotifyCircuitBreakers circuitBreakers;
+    private SimpleMeterRegistry meterRegistry;
+    private SpotifyApiClient apiClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+
+        rateLimiter = new SpotifyRateLimiter(1000, 100, 0, Duration.ofSeconds(2), Duration.ofSeconds(2), Duration.ofMillis(5));
+        circuitBreakers = new SpotifyCircuitBreakers(
+                50, 100, Duration.ofSeconds(5), 10, 4, Duration.ofSeconds(30), 1, 5, Duration.ZERO);
+        meterRegistry = new SimpleMeterRegistry();
+        apiClient = new SpotifyApiClient(rateLimiter, circuitBreakers, meterRegistry, 2, Duration.ofMillis(10),
+                10, 10, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        apiClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void breakerOpensAfterServerErrorsAndThenFailsWithoutCallingSpotify() {
+        AtomicInteger hits = respond("/v1/me", 503, null);
+
+        for (int i = 0; i < 4; i++) {
+            SpotifyApiException ex = assertThrows(SpotifyApiException.class,
+                    () -> apiClient.get(baseUrl + "/me", "token", Map.class));
+            assertTrue(ex.isTransient());
+        }
+
+        assertThrows(SpotifyUnavailableException.class, () -> apiClient.get(baseUrl + "/me", "token", Map.class));
+        assertEquals(4, hits.get());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.getStates().get("me"));
+    }
+
+    @Test
+    void tooManyRequestsIsRetriedAfterRetryAfter() {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext("/v1/me/top/tracks", exchange -> {
+            boolean throttled = hits.incrementAndGet() == 1;
+            byte[] body = "{\"items\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (throttled) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            }
+            exchange.sendResponseHeaders(throttled ? 429 : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+
+        ResponseEntity<Map> response = apiClient.get(baseUrl + "/me/top/tracks", "token", Map.class);
+
+        assertTrue(response.getStatusCode().is2xxSuccessful());
+        assertEquals(2, hits.get());
+        assertEquals(1, rateLimiter.getThrottleEventCount());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.getStates().get("me/top"));
+        assertEquals(1, meterRegistry.get("spotify.api.requests").tags("endpoint", "me/top", "status", "4xx").timer().count());
+        assertEquals(1, meterRegistry.get("spotify.api.requests").tags("endpoint", "me/top", "status", "2xx").timer().count());
+    }
+
+    @Test
+    void cancellationAbortsTheRunningRequestBeforeTheReadTimeout() throws Exception {
+        CountDownLatch requestArrived = new CountDownLatch(1);
+        server.createContext("/v1/me", exchange -> {
+            requestArrived.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        apiClient = new SpotifyApiClient(rateLimiter, circuitBreakers, meterRegistry, 2, Duration.ofMillis(10),
+                10, 10, Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofSeconds(1), Duration.ofSeconds(30));
+
+        SpotifyCallCancellation cancellation = new SpotifyCallCancellation();
+        CompletableFuture<ResponseEntity<Map>> call = CompletableFuture.supplyAsync(
+                () -> cancellation.run(() -> apiClient.get(baseUrl + "/me", "token", Map.class)));
+        assertTrue(requestArrived.await(2, TimeUnit.SECONDS));
+
+        long cancelledAt = System.nanoTime();
+        cancellation.cancel();
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> call.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(SpotifyApiException.class, ex.getCause());
+        assertTrue(Duration.ofNanos(System.nanoTime() - cancelledAt).toMillis() < 1000);
+    }
+
+    private AtomicInteger respond(String path, int status, String body) {
+        AtomicInteger hits = new AtomicInteger();
+        server.createContext(path, exchange -> {
+            hits.incrementAndGet();
+            byte[] bytes = body != null ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        return hits;
+    }
+}
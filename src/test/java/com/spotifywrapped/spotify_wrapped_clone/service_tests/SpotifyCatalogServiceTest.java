@@ -0,0 +1,141 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogTrack;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiClient;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAuthService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService.SpotifyAlbum;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService.SpotifyArtist;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService.SpotifyImage;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService.SpotifyTrack;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService.TracksResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SpotifyCatalogServiceTest {
+
+    private SpotifyCatalogDBaccess spotifyCatalogDBaccess;
+    private SpotifyApiClient spotifyApiClient;
+    private SpotifyCatalogService catalogService;
+
+    @BeforeEach
+    void setUp() {
+        spotifyCatalogDBaccess = mock(SpotifyCatalogDBaccess.class);
+        spotifyApiClient = mock(SpotifyApiClient.class);
+        SpotifyAuthService spotifyAuthService = mock(SpotifyAuthService.class);
+        when(spotifyAuthService.requestClientCredentialsToken())
+                .thenReturn(new SpotifyAuthService.SpotifyTokenResponse("app-token", "Bearer", null, 3600, null));
+        when(spotifyCatalogDBaccess.findTracks(anyCollection())).thenReturn(Map.of());
+
+        catalogService = new SpotifyCatalogService(
+                spotifyCatalogDBaccess, spotifyAuthService, spotifyApiClient, 1000, 4, Duration.ofSeconds(5),
+                Duration.ofMinutes(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalogService.shutdown();
+    }
+
+    @Test
+    void missingIdsAreFetchedInBatchesOfFiftyAndCached() {
+        List<String> ids = IntStream.range(0, 120).mapToObj(i -> "track-" + i).toList();
+        Map<String, CatalogTrack> stored = new HashMap<>();
+        ids.subList(0, 20).forEach(id -> stored.put(id, catalogTrack(id)));
+        when(spotifyCatalogDBaccess.findTracks(anyCollection())).thenReturn(stored);
+        when(spotifyApiClient.get(anyString(), eq("app-token"), eq(TracksResponse.class)))
+                .thenAnswer(invocation -> tracksFor(invocation.getArgument(0)));
+
+        Map<String, CatalogTrack> first = catalogService.getTracks(ids);
+        Map<String, CatalogTrack> second = catalogService.getTracks(ids);
+
+        assertEquals(120, first.size());
+        assertEquals(first, second);
+        assertEquals("Song track-99", first.get("track-99").name());
+        verify(spotifyApiClient, times(2)).get(anyString(), anyString(), eq(TracksResponse.class));
+        verify(spotifyCatalogDBaccess, times(1)).findTracks(anyCollection());
+    }
+
+    @Test
+    void concurrentLookupsOfTheSameIdShareOneSpotifyCall() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(spotifyApiClient.get(anyString(), eq("app-token"), eq(TracksResponse.class))).thenAnswer(invocation -> {
+            inFlight.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return tracksFor(invocation.getArgument(0));
+        });
+
+        CompletableFuture<Map<String, CatalogTrack>> first =
+                CompletableFuture.supplyAsync(() -> catalogService.getTracks(List.of("track-1")));
+        assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Map<String, CatalogTrack>> second =
+                CompletableFuture.supplyAsync(() -> catalogService.getTracks(List.of("track-1", "track-1")));
+        release.countDown();
+
+        assertEquals("Song track-1", first.get(5, TimeUnit.SECONDS).get("track-1").name());
+        assertEquals("Song track-1", second.get(5, TimeUnit.SECONDS).get("track-1").name());
+        verify(spotifyApiClient, times(1)).get(anyString(), anyString(), eq(TracksResponse.class));
+    }
+
+    @Test
+    void primedTracksAreServedWithoutDatabaseOrSpotify() {
+        catalogService.primeTracks(List.of(new SpotifyTrack("track-1", "Song", 200_000,
+                List.of(new SpotifyArtist("artist-1", "Band", null, null)),
+                new SpotifyAlbum("album-1", "Album", List.of(new SpotifyImage("https://img/1", 640, 640))))));
+
+        CatalogTrack track = catalogService.getTracks(List.of("track-1")).get("track-1");
+
+        assertEquals(List.of("Band"), track.artistNames());
+        assertEquals("https://img/1", track.imageUrl());
+        verify(spotifyCatalogDBaccess).saveTracks(anyList());
+        verify(spotifyCatalogDBaccess, never()).findTracks(anyCollection());
+        verifyNoInteractions(spotifyApiClient);
+    }
+
+    @Test
+    void idsUnknownToSpotifyAreNotRequestedAgain() {
+        when(spotifyApiClient.get(anyString(), eq("app-token"), eq(TracksResponse.class)))
+                .thenReturn(ResponseEntity.ok(new TracksResponse(Arrays.asList(
+                        new SpotifyTrack("track-1", "Song track-1", 180_000, List.of(), null), null))));
+
+        Map<String, CatalogTrack> first = catalogService.getTracks(List.of("track-1", "deleted"));
+        Map<String, CatalogTrack> second = catalogService.getTracks(List.of("track-1", "deleted"));
+
+        assertEquals(Set.of("track-1"), first.keySet());
+        assertEquals(first, second);
+        verify(spotifyApiClient, times(1)).get(anyString(), anyString(), eq(TracksResponse.class));
+        verify(spotifyCatalogDBaccess, times(1)).findTracks(anyCollection());
+    }
+
+    private static ResponseEntity<TracksResponse> tracksFor(String uri) {
+        Collection<String> ids = Arrays.asList(uri.substring(uri.indexOf("ids=") + 4).split(","));
+        assertTrue(ids.size() <= 50);
+        return ResponseEntity.ok(new TracksResponse(ids.stream()
+                .map(id -> new SpotifyTrack(id, "Song " + id, 180_000, List.of(), null))
+                .toList()));
+    }
+
+    private static CatalogTrack catalogTrack(String id) {
+        return new CatalogTrack(id, "Song " + id, List.of(), List.of(), null, null, 180_000);
+    }
+}
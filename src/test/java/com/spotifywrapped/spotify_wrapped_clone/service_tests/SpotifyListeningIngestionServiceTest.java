@@ -0,0 +1,136 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningEventDBaccess.IngestionState;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningIndex;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAccessTokenProvider;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiClient;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService.SpotifyArtist;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService.SpotifyTrack;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyListeningIngestionService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyListeningIngestionService.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SpotifyListeningIngestionServiceTest {
+
+    private static final Instant PLAYED_AT = Instant.parse("2026-01-10T12:00:00.000Z");
+
+    private ListeningEventDBaccess listeningEventDBaccess;
+    private SpotifyAccessTokenProvider spotifyAccessTokenProvider;
+    private SpotifyApiClient spotifyApiClient;
+    private SpotifyListeningIngestionService ingestionService;
+
+    @BeforeEach
+    void setUp() {
+        listeningEventDBaccess = mock(ListeningEventDBaccess.class);
+        spotifyAccessTokenProvider = mock(SpotifyAccessTokenProvider.class);
+        spotifyApiClient = mock(SpotifyApiClient.class);
+        ingestionService = new SpotifyListeningIngestionService(
+                listeningEventDBaccess, spotifyAccessTokenProvider, spotifyApiClient, mock(ListeningIndex.class),
+                mock(SpotifyCatalogService.class),
+                true, 10, 2, 3, Duration.ofMinutes(30), Duration.ofMinutes(10), Duration.ofHours(2));
+        when(spotifyAccessTokenProvider.getValidAccessToken(anyLong())).thenReturn("token");
+        when(listeningEventDBaccess.claimDue(any(), any(), any())).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestionService.shutdown();
+    }
+
+    @Test
+    void idleUserIntervalDoublesAndBusyUserIntervalHalves() {
+        when(listeningEventDBaccess.findDueStates(any(), anyInt())).thenReturn(List.of(
+                new IngestionState(1L, 100L, 1800, PLAYED_AT),
+                new IngestionState(2L, 100L, 1800, PLAYED_AT)
+        ));
+        when(spotifyApiClient.get(contains("after=100"), eq("token"), eq(RecentlyPlayedResponse.class)))
+                .thenReturn(ResponseEntity.ok(new RecentlyPlayedResponse(List.of())))
+                .thenReturn(ResponseEntity.ok(plays(30)));
+
+        ingestionService.pollDueUsers();
+
+        verify(listeningEventDBaccess).appendEvents(anyLong(), eq(List.of()), eq(100L), eq(Duration.ofHours(1)), any());
+        verify(listeningEventDBaccess).appendEvents(
+                anyLong(), argThat(events -> events.size() == 30), eq(PLAYED_AT.plusSeconds(29 * 60).toEpochMilli()),
+                eq(Duration.ofMinutes(15)), any());
+    }
+
+    @Test
+    void callsPerMinuteAreCappedAcrossRuns() {
+        when(listeningEventDBaccess.findDueStates(any(), anyInt())).thenAnswer(invocation ->
+                IntStream.range(0, invocation.<Integer>getArgument(1))
+                        .mapToObj(i -> new IngestionState((long) i, null, null, null))
+                        .toList());
+        when(spotifyApiClient.get(anyString(), anyString(), eq(RecentlyPlayedResponse.class)))
+                .thenReturn(ResponseEntity.ok(new RecentlyPlayedResponse(List.of())));
+
+        ingestionService.pollDueUsers();
+        ingestionService.pollDueUsers();
+
+        verify(spotifyApiClient, times(3)).get(anyString(), anyString(), eq(RecentlyPlayedResponse.class));
+        assertEquals(3, ingestionService.getPolledUserCount());
+    }
+
+    @Test
+    void dueTokenRefreshCountsAgainstTheCallLimit() {
+        when(listeningEventDBaccess.findDueStates(any(), anyInt())).thenAnswer(invocation ->
+                IntStream.range(0, invocation.<Integer>getArgument(1))
+                        .mapToObj(i -> new IngestionState((long) i, null, null, null))
+                        .toList());
+        when(spotifyAccessTokenProvider.isRefreshDue(0L)).thenReturn(true);
+        when(spotifyApiClient.get(anyString(), anyString(), eq(RecentlyPlayedResponse.class)))
+                .thenReturn(ResponseEntity.ok(new RecentlyPlayedResponse(List.of())));
+
+        ingestionService.pollDueUsers();
+        ingestionService.pollDueUsers();
+
+        // Nutzer 0: Refresh + recently-played, Nutzer 1: recently-played → Limit von 3 erreicht
+        verify(spotifyApiClient, times(2)).get(anyString(), anyString(), eq(RecentlyPlayedResponse.class));
+        verify(listeningEventDBaccess, never()).appendEvents(eq(2L), any(), any(), any(), any());
+    }
+
+    @Test
+    void userClaimedByAnotherInstanceIsSkippedAndItsCallIsReleased() {
+        when(listeningEventDBaccess.findDueStates(any(), anyInt()))
+                .thenReturn(List.of(
+                        new IngestionState(1L, null, null, null),
+                        new IngestionState(2L, null, null, null),
+                        new IngestionState(3L, null, null, null)
+                ))
+                .thenReturn(List.of(new IngestionState(4L, null, null, null)));
+        when(listeningEventDBaccess.claimDue(argThat(state -> state.userId() == 1L), any(), any())).thenReturn(false);
+        when(spotifyApiClient.get(anyString(), anyString(), eq(RecentlyPlayedResponse.class)))
+                .thenReturn(ResponseEntity.ok(new RecentlyPlayedResponse(List.of())));
+
+        ingestionService.pollDueUsers();
+
+        // Nutzer 1 pollt die andere Instanz; sein Aufruf bleibt im Budget für Nutzer 4
+        verify(listeningEventDBaccess, never()).appendEvents(eq(1L), any(), any(), any(), any());
+        verify(listeningEventDBaccess, never()).saveState(eq(1L), any(), any(), any());
+        verify(spotifyApiClient, times(3)).get(anyString(), anyString(), eq(RecentlyPlayedResponse.class));
+        assertEquals(3, ingestionService.getPolledUserCount());
+    }
+
+    private RecentlyPlayedResponse plays(int count) {
+        return new RecentlyPlayedResponse(IntStream.range(0, count)
+                .mapToObj(i -> new PlayHistory(
+                        new SpotifyTrack("track-" + i, "Song " + i, 180_000,
+                                List.of(new SpotifyArtist("artist", "Band", null, null)), null),
+                        PLAYED_AT.plusSeconds(i * 60L).toString()))
+                .toList());
+    }
+}
@@ -0,0 +1,53 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCallPriority;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyRateLimitedException;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyRateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpotifyRateLimiterTest {
+
+    private final SpotifyRateLimiter rateLimiter = new SpotifyRateLimiter(
+            0.1, 3, 2, Duration.ofMillis(100), Duration.ofMillis(100), Duration.ofMillis(10));
+
+    @Test
+    void backgroundCallsLeaveTheReserveToInteractiveCalls() {
+        rateLimiter.acquire("me/player", SpotifyCallPriority.BACKGROUND);
+
+        assertThrows(SpotifyRateLimitedException.class,
+                () -> rateLimiter.acquire("me/player", SpotifyCallPriority.BACKGROUND));
+
+        rateLimiter.acquire("me/top", SpotifyCallPriority.INTERACTIVE);
+        rateLimiter.acquire("me/top", SpotifyCallPriority.INTERACTIVE);
+        assertThrows(SpotifyRateLimitedException.class,
+                () -> rateLimiter.acquire("me/top", SpotifyCallPriority.INTERACTIVE));
+        assertEquals(2, rateLimiter.getRejectedCallCount());
+        assertEquals(0, rateLimiter.getWaitingInteractiveCount());
+    }
+
+    @Test
+    void pausedCallClassFailsFastWhileOtherClassesContinue() {
+        rateLimiter.pause("me/top", Duration.ofSeconds(10));
+
+        SpotifyRateLimitedException rejected = assertThrows(SpotifyRateLimitedException.class,
+                () -> rateLimiter.acquire("me/top", SpotifyCallPriority.INTERACTIVE));
+
+        assertTrue(rejected.getRetryAfter().compareTo(Duration.ofSeconds(9)) > 0);
+        rateLimiter.acquire("tracks", SpotifyCallPriority.INTERACTIVE);
+        assertEquals(1, rateLimiter.getThrottleEventCount());
+    }
+
+    @Test
+    void shortPauseIsWaitedOutBeforeTheCallProceeds() {
+        rateLimiter.pause("me/top", Duration.ofMillis(30));
+        long start = System.nanoTime();
+
+        rateLimiter.acquire("me/top", SpotifyCallPriority.INTERACTIVE);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 25);
+    }
+}
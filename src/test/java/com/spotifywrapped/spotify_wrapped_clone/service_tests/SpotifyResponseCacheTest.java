@@ -0,0 +1,143 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiClient;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyApiException;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyResponseCache;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SpotifyResponseCacheTest {
+
+    private static final String URI = "https://api.spotify.com/v1/me";
+
+    private SpotifyApiClient spotifyApiClient;
+    private SpotifyResponseCache responseCache;
+    private final AtomicInteger mapperCalls = new AtomicInteger();
+    private final Function<Payload, String> mapper = payload -> {
+        mapperCalls.incrementAndGet();
+        return payload.name().toUpperCase();
+    };
+
+    @BeforeEach
+    void setUp() {
+        spotifyApiClient = mock(SpotifyApiClient.class);
+        responseCache = new SpotifyResponseCache(spotifyApiClient, new ObjectMapper(), 100, Duration.ofHours(1));
+    }
+
+    @Test
+    void freshEntryIsServedWithoutCallingSpotify() {
+        when(spotifyApiClient.get(eq(URI), eq("token"), isNull(), eq(Payload.class)))
+                .thenReturn(withEtag(new Payload("alice"), "\"v1\""));
+
+        SpotifyResponseCache.SpotifyCachedResponse<String> first = fetch(Duration.ofMinutes(5));
+        SpotifyResponseCache.SpotifyCachedResponse<String> second = fetch(Duration.ofMinutes(5));
+
+        assertEquals("ALICE", first.body());
+        assertEquals("\"ALICE\"", new String(second.json(), StandardCharsets.UTF_8));
+        assertSame(first, second);
+        verify(spotifyApiClient, times(1)).get(anyString(), anyString(), any(), eq(Payload.class));
+    }
+
+    @Test
+    void staleEntryIsRevalidatedWithEtagAndNotModifiedSkipsMapping() {
+        when(spotifyApiClient.get(eq(URI), eq("token"), isNull(), eq(Payload.class)))
+                .thenReturn(withEtag(new Payload("alice"), "\"v1\""));
+        when(spotifyApiClient.get(eq(URI), eq("token"), eq("\"v1\""), eq(Payload.class)))
+                .thenReturn(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+
+        SpotifyResponseCache.SpotifyCachedResponse<String> first = fetch(Duration.ZERO);
+        SpotifyResponseCache.SpotifyCachedResponse<String> revalidated = fetch(Duration.ZERO);
+
+        assertSame(first, revalidated);
+        assertEquals(1, mapperCalls.get());
+    }
+
+    @Test
+    void changedDataReplacesTheCachedEntry() {
+        when(spotifyApiClient.get(eq(URI), eq("token"), isNull(), eq(Payload.class)))
+                .thenReturn(withEtag(new Payload("alice"), "\"v1\""));
+        when(spotifyApiClient.get(eq(URI), eq("token"), eq("\"v1\""), eq(Payload.class)))
+                .thenReturn(withEtag(new Payload("bob"), "\"v2\""));
+
+        fetch(Duration.ZERO);
+        SpotifyResponseCache.SpotifyCachedResponse<String> updated = fetch(Duration.ZERO);
+
+        assertEquals("BOB", updated.body());
+        assertEquals(2, mapperCalls.get());
+    }
+
+    @Test
+    void missingAccessTokenReturnsNullWithoutCallingSpotify() {
+        SpotifyResponseCache.SpotifyCachedResponse<String> response =
+                responseCache.fetch(1L, URI, Duration.ofMinutes(5), Payload.class, mapper, () -> null);
+
+        assertNull(response);
+        verifyNoInteractions(spotifyApiClient);
+    }
+
+    @Test
+    void invalidateUserDropsCachedEntries() {
+        when(spotifyApiClient.get(eq(URI), eq("token"), isNull(), eq(Payload.class)))
+                .thenReturn(withEtag(new Payload("alice"), "\"v1\""));
+
+        fetch(Duration.ofMinutes(5));
+        responseCache.invalidateUser(1L);
+        fetch(Duration.ofMinutes(5));
+
+        verify(spotifyApiClient, times(2)).get(eq(URI), eq("token"), isNull(), eq(Payload.class));
+    }
+
+    @Test
+    void lastGoodResponseIsServedAsStaleWhileSpotifyIsUnavailable() {
+        when(spotifyApiClient.get(eq(URI), eq("token"), isNull(), eq(Payload.class)))
+                .thenReturn(withEtag(new Payload("alice"), "\"v1\""));
+        when(spotifyApiClient.get(eq(URI), eq("token"), eq("\"v1\""), eq(Payload.class)))
+                .thenThrow(new SpotifyUnavailableException("me", null));
+
+        SpotifyResponseCache.SpotifyCachedResponse<String> fresh = fetch(Duration.ZERO);
+        SpotifyResponseCache.SpotifyCachedResponse<String> stale = fetch(Duration.ZERO);
+
+        assertFalse(fresh.stale());
+        assertTrue(stale.stale());
+        assertEquals("ALICE", stale.body());
+        assertEquals(1, responseCache.getStaleResponseCount());
+    }
+
+    @Test
+    void nonTransientErrorsAreNotHiddenByStaleData() {
+        when(spotifyApiClient.get(eq(URI), eq("token"), isNull(), eq(Payload.class)))
+                .thenReturn(withEtag(new Payload("alice"), "\"v1\""));
+        when(spotifyApiClient.get(eq(URI), eq("token"), eq("\"v1\""), eq(Payload.class)))
+                .thenThrow(new SpotifyApiException("Spotify request failed: 401"));
+
+        fetch(Duration.ZERO);
+
+        assertThrows(SpotifyApiException.class, () -> fetch(Duration.ZERO));
+    }
+
+    private SpotifyResponseCache.SpotifyCachedResponse<String> fetch(Duration ttl) {
+        return responseCache.fetch(1L, URI, ttl, Payload.class, mapper, () -> "token");
+    }
+
+    private ResponseEntity<Payload> withEtag(Payload payload, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        return new ResponseEntity<>(payload, headers, HttpStatus.OK);
+    }
+
+    record Payload(String name) { }
+}
@@ -0,0 +1,87 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess.ReEncryptedToken;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess.StoredTokenCiphertext;
+import com.spotifywrapped.spotify_wrapped_clone.service.SensitiveDataService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenReEncryptionJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SpotifyTokenReEncryptionJobTest {
+
+    private static final Instant EXPIRY = Instant.parse("2026-01-01T12:00:00Z");
+
+    private SpotifyTokenDBaccess spotifyTokenDBaccess;
+    private SensitiveDataService sensitiveDataService;
+    private SpotifyTokenReEncryptionJob job;
+
+    @BeforeEach
+    void setUp() {
+        spotifyTokenDBaccess = mock(SpotifyTokenDBaccess.class);
+        sensitiveDataService = mock(SensitiveDataService.class);
+        when(sensitiveDataService.getActiveTokenKeyVersion()).thenReturn(2);
+        when(sensitiveDataService.decryptToken(any(), any())).thenAnswer(invocation -> {
+            String legacy = invocation.getArgument(1);
+            if (legacy == null) {
+                throw new IllegalStateException("Token key version 1 is not configured");
+            }
+            return legacy.substring(4);
+        });
+        when(sensitiveDataService.encryptToken(anyString()))
+                .thenAnswer(invocation -> ("v2:" + invocation.getArgument(0)).getBytes(StandardCharsets.UTF_8));
+        when(spotifyTokenDBaccess.findTokensWithKeyVersion(anyInt(), anyLong(), anyInt())).thenReturn(List.of());
+
+        job = new SpotifyTokenReEncryptionJob(spotifyTokenDBaccess, sensitiveDataService, true, 2, 0);
+    }
+
+    @Test
+    void reEncryptOutdatedTokensWalksEveryOlderVersionAndCountsOutcomes() {
+        when(spotifyTokenDBaccess.findTokensWithKeyVersion(0, 0L, 2))
+                .thenReturn(List.of(legacyRow(1L, "refresh-1"), legacyRow(2L, "refresh-2")));
+        when(spotifyTokenDBaccess.findTokensWithKeyVersion(0, 2L, 2))
+                .thenReturn(List.of(legacyRow(3L, "refresh-3")));
+        when(spotifyTokenDBaccess.findTokensWithKeyVersion(1, 0L, 2))
+                .thenReturn(List.of(new StoredTokenCiphertext(4L, 1, new byte[]{1}, null, new byte[]{1}, null, EXPIRY)));
+        // Zeile 2 wurde zwischenzeitlich von einem Refresh geschrieben
+        when(spotifyTokenDBaccess.updateReEncryptedTokens(anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size() == 2 ? 1 : invocation.<List<?>>getArgument(0).size());
+
+        job.reEncryptOutdatedTokens();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ReEncryptedToken>> updates = ArgumentCaptor.forClass(List.class);
+        verify(spotifyTokenDBaccess, times(3)).updateReEncryptedTokens(updates.capture());
+        ReEncryptedToken first = updates.getAllValues().getFirst().getFirst();
+
+        assertEquals(1L, first.id());
+        assertEquals(0, first.expectedKeyVersion());
+        assertEquals(EXPIRY, first.expectedExpiresAt());
+        assertEquals(2, first.keyVersion());
+        assertArrayEquals("v2:refresh-1".getBytes(StandardCharsets.UTF_8), first.refreshToken());
+        assertEquals(List.of(), updates.getAllValues().getLast());
+        verify(spotifyTokenDBaccess, never()).findTokensWithKeyVersion(eq(2), anyLong(), anyInt());
+
+        assertEquals(2, job.getReEncryptedCount());
+        assertEquals(1, job.getSkippedCount());
+        assertEquals(1, job.getFailedCount());
+    }
+
+    private static StoredTokenCiphertext legacyRow(Long id, String refreshToken) {
+        return new StoredTokenCiphertext(id, 0, null, "cbc:" + refreshToken, null, "cbc:access", EXPIRY);
+    }
+}
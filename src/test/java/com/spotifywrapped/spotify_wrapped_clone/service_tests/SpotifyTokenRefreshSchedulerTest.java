@@ -0,0 +1,66 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyAccessTokenProvider;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenRefreshScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SpotifyTokenRefreshSchedulerTest {
+
+    private SpotifyTokenDBaccess spotifyTokenDBaccess;
+    private SpotifyAccessTokenProvider spotifyAccessTokenProvider;
+    private SpotifyTokenRefreshScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        spotifyTokenDBaccess = mock(SpotifyTokenDBaccess.class);
+        spotifyAccessTokenProvider = mock(SpotifyAccessTokenProvider.class);
+        scheduler = new SpotifyTokenRefreshScheduler(
+                spotifyTokenDBaccess, spotifyAccessTokenProvider, true, 2, 2, Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void refreshExpiringTokensWalksAllBatchesAndCountsOutcomes() {
+        when(spotifyTokenDBaccess.findUserIdsWithAccessTokenExpiringBefore(any(), eq(0L), eq(2))).thenReturn(List.of(1L, 2L));
+        when(spotifyTokenDBaccess.findUserIdsWithAccessTokenExpiringBefore(any(), eq(2L), eq(2))).thenReturn(List.of(3L));
+        when(spotifyAccessTokenProvider.refreshIfExpiringBefore(eq(1L), any())).thenReturn(true);
+        when(spotifyAccessTokenProvider.refreshIfExpiringBefore(eq(2L), any())).thenReturn(false);
+        when(spotifyAccessTokenProvider.refreshIfExpiringBefore(eq(3L), any()))
+                .thenThrow(new IllegalStateException("Spotify token request failed"));
+
+        scheduler.refreshExpiringTokens();
+
+        assertEquals(1, scheduler.getRefreshedCount());
+        assertEquals(1, scheduler.getSkippedCount());
+        assertEquals(1, scheduler.getFailedCount());
+        verify(spotifyTokenDBaccess, times(2)).findUserIdsWithAccessTokenExpiringBefore(any(), any(), eq(2));
+    }
+
+    @Test
+    void disabledSchedulerDoesNotQueryTokens() {
+        SpotifyTokenRefreshScheduler disabled = new SpotifyTokenRefreshScheduler(
+                spotifyTokenDBaccess, spotifyAccessTokenProvider, false, 2, 2, Duration.ofMinutes(5));
+        try {
+            disabled.refreshExpiringTokens();
+        } finally {
+            disabled.shutdown();
+        }
+
+        verifyNoInteractions(spotifyTokenDBaccess, spotifyAccessTokenProvider);
+    }
+}
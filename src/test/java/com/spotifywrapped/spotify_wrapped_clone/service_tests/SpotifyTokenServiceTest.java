@@ -1,23 +1,44 @@
 package com.spotifywrapped.spotify_wrapped_clone.service_tests;
 
 import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyTokenDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.entities.SpotifyToken;
 import com.spotifywrapped.spotify_wrapped_clone.service.SensitiveDataService;
 import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyTokenService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.mock;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 class SpotifyTokenServiceTest {
 
+    private static final int KEY_VERSION = 2;
+
+    private SpotifyTokenDBaccess spotifyTokenDBaccess;
     private SpotifyTokenService spotifyTokenService;
 
     @BeforeEach
     void setUp() {
-        spotifyTokenService = new SpotifyTokenService(mock(SpotifyTokenDBaccess.class), mock(SensitiveDataService.class));
+        spotifyTokenDBaccess = mock(SpotifyTokenDBaccess.class);
+        SensitiveDataService sensitiveDataService = mock(SensitiveDataService.class);
+        when(sensitiveDataService.encryptToken(anyString()))
+                .thenAnswer(invocation -> ("enc:" + invocation.getArgument(0)).getBytes(StandardCharsets.UTF_8));
+        when(sensitiveDataService.decryptToken(any(), any())).thenAnswer(invocation -> {
+            byte[] envelope = invocation.getArgument(0);
+            return envelope != null ? new String(envelope, StandardCharsets.UTF_8).substring(4) : null;
+        });
+        when(sensitiveDataService.getActiveTokenKeyVersion()).thenReturn(KEY_VERSION);
+
+        spotifyTokenService = new SpotifyTokenService(spotifyTokenDBaccess, sensitiveDataService, 100);
     }
 
     @Test
@@ -51,4 +72,75 @@ class SpotifyTokenServiceTest {
         assertTrue(expiresAtZero.isAfter(now.plusSeconds(3600 - 5)), "Zero lifetimes should fall back to one hour");
         assertTrue(expiresAtNegative.isAfter(now.plusSeconds(3600 - 5)), "Negative lifetimes should fall back to one hour");
     }
+
+    @Test
+    void getDecryptedTokensServesValidTokensFromCache() {
+        when(spotifyTokenDBaccess.findByUserId(1L)).thenReturn(storedToken("refresh", "access", Instant.now().plusSeconds(600)));
+
+        SpotifyTokenService.DecryptedSpotifyTokens first = spotifyTokenService.getDecryptedTokens(1L);
+        SpotifyTokenService.DecryptedSpotifyTokens second = spotifyTokenService.getDecryptedTokens(1L);
+        boolean connected = spotifyTokenService.hasRefreshToken(1L);
+
+        assertEquals("access", first.accessToken());
+        assertEquals(first, second);
+        assertTrue(connected, "Cached tokens should count as connected");
+        verify(spotifyTokenDBaccess, times(1)).findByUserId(1L);
+        assertEquals(1, spotifyTokenService.getCacheStats().missCount());
+        assertEquals(2, spotifyTokenService.getCacheStats().hitCount());
+    }
+
+    @Test
+    void getDecryptedTokensDoesNotCacheExpiredAccessTokens() {
+        when(spotifyTokenDBaccess.findByUserId(1L)).thenReturn(storedToken("refresh", "access", Instant.now().minusSeconds(5)));
+
+        spotifyTokenService.getDecryptedTokens(1L);
+        SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.getDecryptedTokens(1L);
+
+        assertEquals("refresh", tokens.refreshToken());
+        verify(spotifyTokenDBaccess, times(2)).findByUserId(1L);
+    }
+
+    @Test
+    void updateTokensCachesTheSavedTokens() {
+        when(spotifyTokenDBaccess.findByUserId(1L))
+                .thenReturn(storedToken("refresh", "access-old", Instant.now().plusSeconds(600)));
+        when(spotifyTokenDBaccess.createOrUpdateToken(eq(1L), any(), any(), anyInt(), any()))
+                .thenReturn(storedToken("refresh", "access-new", Instant.now().plusSeconds(3600)));
+
+        spotifyTokenService.getDecryptedTokens(1L);
+        spotifyTokenService.updateTokens(1L, null, "access-new", Instant.now().plusSeconds(3600));
+        SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.getDecryptedTokens(1L);
+
+        assertEquals("access-new", tokens.accessToken());
+        assertEquals("refresh", tokens.refreshToken());
+        verify(spotifyTokenDBaccess).createOrUpdateToken(
+                eq(1L), eq(null), aryEq("enc:access-new".getBytes(StandardCharsets.UTF_8)), eq(KEY_VERSION), any());
+        // Kein zweites Lesen nach dem Schreiben (könnte vom Replica kommen)
+        verify(spotifyTokenDBaccess, times(1)).findByUserId(1L);
+    }
+
+    @Test
+    void tokensMissingOnTheReplicaAreReadFromThePrimary() {
+        when(spotifyTokenDBaccess.findCurrentByUserId(1L))
+                .thenReturn(storedToken("refresh", "access", Instant.now().plusSeconds(600)));
+
+        SpotifyTokenService.DecryptedSpotifyTokens tokens = spotifyTokenService.getDecryptedTokens(1L);
+
+        assertEquals("access", tokens.accessToken());
+        verify(spotifyTokenDBaccess).findByUserId(1L);
+        verify(spotifyTokenDBaccess).findCurrentByUserId(1L);
+    }
+
+    @Test
+    void hasRefreshTokenIsFalseWithoutStoredToken() {
+        assertFalse(spotifyTokenService.hasRefreshToken(42L));
+    }
+
+    private SpotifyToken storedToken(String refreshToken, String accessToken, Instant expiresAt) {
+        SpotifyToken token = new SpotifyToken();
+        token.setRefreshTokenCiphertext(("enc:" + refreshToken).getBytes(StandardCharsets.UTF_8));
+        token.setAccessTokenCiphertext(("enc:" + accessToken).getBytes(StandardCharsets.UTF_8));
+        token.setAccessTokenExpiresAt(expiresAt);
+        return token;
+    }
 }
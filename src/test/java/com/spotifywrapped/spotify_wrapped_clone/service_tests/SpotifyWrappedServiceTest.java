@@ -0,0 +1,103 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyProfileDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyTopArtistDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyTopTrackDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.SpotifyWrappedDto;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SpotifyWrappedServiceTest {
+
+    private static final long CALL_LATENCY_MILLIS = 200;
+
+    private SpotifyProfileService spotifyProfileService;
+    private SpotifyTopTracksService spotifyTopTracksService;
+    private SpotifyTopArtistsService spotifyTopArtistsService;
+    private SpotifyWrappedService spotifyWrappedService;
+    private final Long userId = 1L;
+
+    @BeforeEach
+    void setUp() {
+        spotifyProfileService = mock(SpotifyProfileService.class);
+        spotifyTopTracksService = mock(SpotifyTopTracksService.class);
+        spotifyTopArtistsService = mock(SpotifyTopArtistsService.class);
+        spotifyWrappedService = new SpotifyWrappedService(
+                spotifyProfileService, spotifyTopTracksService, spotifyTopArtistsService, 8, 16, Duration.ofSeconds(1));
+
+        when(spotifyProfileService.fetchProfile(userId)).thenAnswer(invocation ->
+                slow(new SpotifyResponseCache.SpotifyCachedResponse<>(
+                        new SpotifyProfileDto("Alice", 3, null, "premium"), new byte[0])));
+        when(spotifyTopTracksService.fetchTopTracks(eq(userId), any())).thenAnswer(invocation ->
+                slow(new SpotifyResult<>(List.of(new SpotifyTopTrackDto("Song", List.of("Band"), null)), false)));
+        when(spotifyTopArtistsService.fetchTopArtists(eq(userId), any())).thenAnswer(invocation ->
+                slow(new SpotifyResult<>(List.of(new SpotifyTopArtistDto("Band", List.of("rock"), null)), true)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        spotifyWrappedService.shutdown();
+    }
+
+    @Test
+    void fetchWrappedRunsAllCallsConcurrently() {
+        long start = System.nanoTime();
+
+        SpotifyWrappedDto wrapped = spotifyWrappedService.fetchWrapped(userId);
+
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue(elapsedMillis < 3 * CALL_LATENCY_MILLIS, "Seven calls should take about as long as the slowest one");
+        assertEquals("Alice", wrapped.profile().data().displayName());
+        assertEquals(List.of("short_term", "medium_term", "long_term"), List.copyOf(wrapped.topTracks().keySet()));
+        assertEquals("Song", wrapped.topTracks().get("long_term").data().getFirst().title());
+        assertEquals("Band", wrapped.topArtists().get("short_term").data().getFirst().name());
+        assertTrue(wrapped.topArtists().get("short_term").stale());
+        assertFalse(wrapped.topTracks().get("short_term").stale());
+    }
+
+    @Test
+    void failingOrSlowSectionsDoNotFailTheWholeResponse() throws InterruptedException {
+        when(spotifyTopTracksService.fetchTopTracks(userId, SpotifyTimeRange.SHORT_TERM))
+                .thenThrow(new IllegalStateException("Spotify request failed with status: 500"));
+        CountDownLatch slowCallAborted = new CountDownLatch(1);
+        when(spotifyTopArtistsService.fetchTopArtists(userId, SpotifyTimeRange.LONG_TERM)).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException ex) {
+                slowCallAborted.countDown();
+                throw ex;
+            }
+            return null;
+        });
+
+        SpotifyWrappedDto wrapped = spotifyWrappedService.fetchWrapped(userId);
+
+        // Deadline abgelaufen → der Aufruf selbst wird abgebrochen und gibt seinen Pool-Thread frei
+        assertTrue(slowCallAborted.await(500, TimeUnit.MILLISECONDS));
+
+        assertNull(wrapped.topTracks().get("short_term").data());
+        assertEquals("Spotify request failed", wrapped.topTracks().get("short_term").error());
+        assertEquals("Spotify did not answer in time", wrapped.topArtists().get("long_term").error());
+        assertNotNull(wrapped.profile().data());
+        assertNotNull(wrapped.topTracks().get("medium_term").data());
+        assertNull(wrapped.topArtists().get("medium_term").error());
+    }
+
+    private <D> D slow(D body) throws InterruptedException {
+        Thread.sleep(CALL_LATENCY_MILLIS);
+        return body;
+    }
+}
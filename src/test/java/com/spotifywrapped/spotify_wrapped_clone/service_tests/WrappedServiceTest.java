@@ -0,0 +1,63 @@
+package com.spotifywrapped.spotify_wrapped_clone.service_tests;
+
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.ListeningPeriodDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.ListeningRankDto;
+import com.spotifywrapped.spotify_wrapped_clone.api.dto.spotifydto.ListeningStatsDto;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess.DailyTotal;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.ListeningRollupDBaccess.RankedItem;
+import com.spotifywrapped.spotify_wrapped_clone.dbaccess.SpotifyCatalogDBaccess.CatalogTrack;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.AlbumImageService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningGranularity;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.ListeningIndex;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.SpotifyCatalogService;
+import com.spotifywrapped.spotify_wrapped_clone.service.spotify_services.WrappedService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WrappedServiceTest {
+
+    private static final LocalDate FROM = LocalDate.parse("2026-01-01");
+    private static final LocalDate TO = LocalDate.parse("2026-12-31");
+
+    private final ListeningRollupDBaccess listeningRollupDBaccess = mock(ListeningRollupDBaccess.class);
+    private final SpotifyCatalogService spotifyCatalogService = mock(SpotifyCatalogService.class);
+    private final WrappedService wrappedService = new WrappedService(
+            listeningRollupDBaccess, mock(ListeningIndex.class), spotifyCatalogService, mock(AlbumImageService.class));
+
+    @Test
+    void dailyRollupsAreSummedIntoTotalsAndCoarserPeriods() {
+        when(listeningRollupDBaccess.findDailyTotals(1L, FROM, TO)).thenReturn(List.of(
+                new DailyTotal(LocalDate.parse("2026-01-05"), 10, 1_800_000),
+                new DailyTotal(LocalDate.parse("2026-01-11"), 5, 600_000),
+                new DailyTotal(LocalDate.parse("2026-02-01"), 2, 300_000)
+        ));
+        when(listeningRollupDBaccess.findTopTracks(1L, FROM, TO, 5))
+                .thenReturn(List.of(new RankedItem("track-a", 7, 1_500_000)));
+        when(listeningRollupDBaccess.findTopArtists(1L, FROM, TO, 5)).thenReturn(List.of());
+        when(spotifyCatalogService.getTracks(List.of("track-a"))).thenReturn(Map.of(
+                "track-a", new CatalogTrack("track-a", "Song A", List.of(), List.of(), null, null, null)));
+
+        ListeningStatsDto monthly = wrappedService.getListeningStats(1L, FROM, TO, 5, ListeningGranularity.MONTH);
+        ListeningStatsDto weekly = wrappedService.getListeningStats(1L, FROM, TO, 5, ListeningGranularity.WEEK);
+
+        assertEquals(17, monthly.totalPlays());
+        assertEquals(45, monthly.totalMinutes());
+        assertEquals(List.of(new ListeningRankDto("track-a", "Song A", null, 7, 25)), monthly.topTracks());
+        assertEquals(List.of(
+                new ListeningPeriodDto(LocalDate.parse("2026-01-01"), 15, 40),
+                new ListeningPeriodDto(LocalDate.parse("2026-02-01"), 2, 5)
+        ), monthly.periods());
+        assertEquals(List.of(
+                new ListeningPeriodDto(LocalDate.parse("2026-01-05"), 15, 40),
+                new ListeningPeriodDto(LocalDate.parse("2026-01-26"), 2, 5)
+        ), weekly.periods());
+    }
+}